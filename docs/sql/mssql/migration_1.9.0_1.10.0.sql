@@ -39,3 +39,93 @@ ALTER TABLE push_device_registration ADD environment varchar(255);
 GO
 
 
+
+-- Changeset powerauth-push-server/1.10.x/20241120-inbox-keyset-index.xml::1::Wultra
+-- Create a new index on push_inbox(user_id, timestamp_created DESC, id)
+CREATE NONCLUSTERED INDEX push_inbox_user_created ON push_inbox(user_id, timestamp_created DESC, id);
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::1::Wultra
+-- Create a new table push_inbox_body
+CREATE TABLE push_inbox_body (body_hash varchar(64) NOT NULL, body varchar (max) NOT NULL, timestamp_created datetime2 NOT NULL, CONSTRAINT PK_PUSH_INBOX_BODY PRIMARY KEY (body_hash));
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::2::Wultra
+-- Add column body_hash to push_inbox table
+ALTER TABLE push_inbox ADD body_hash varchar(64);
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::3::Wultra
+-- Drop not null constraint of column body in push_inbox table, deduplicated body is stored in push_inbox_body table
+ALTER TABLE push_inbox ALTER COLUMN body varchar (max) NULL;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241122-push-message-retention.xml::1::Wultra
+-- Create a new index on push_message(timestamp_created)
+CREATE NONCLUSTERED INDEX push_message_created ON push_message(timestamp_created);
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::1::Wultra
+-- Create a new table push_message_body
+CREATE TABLE push_message_body (body_hash varchar(64) NOT NULL, message_body varchar(2048) NOT NULL, timestamp_last_stored datetime2 NOT NULL, CONSTRAINT PK_PUSH_MESSAGE_BODY PRIMARY KEY (body_hash));
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::2::Wultra
+-- Add column message_body_hash to push_message table
+ALTER TABLE push_message ADD message_body_hash varchar(64);
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::3::Wultra
+-- Drop not null constraint of column message_body in push_message table, deduplicated body is stored in push_message_body table
+ALTER TABLE push_message ALTER COLUMN message_body varchar(2048) NULL;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::4::Wultra
+-- Create a new index on push_message(message_body_hash)
+CREATE NONCLUSTERED INDEX push_message_body_hash ON push_message(message_body_hash);
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::1::Wultra
+-- Alter sequence push_credentials_seq to increment by 50
+ALTER SEQUENCE push_credentials_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::2::Wultra
+-- Alter sequence push_device_registration_seq to increment by 50
+ALTER SEQUENCE push_device_registration_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::3::Wultra
+-- Alter sequence push_message_seq to increment by 50
+ALTER SEQUENCE push_message_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::4::Wultra
+-- Alter sequence push_campaign_seq to increment by 50
+ALTER SEQUENCE push_campaign_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::5::Wultra
+-- Alter sequence push_campaign_user_seq to increment by 50
+ALTER SEQUENCE push_campaign_user_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::6::Wultra
+-- Alter sequence push_inbox_seq to increment by 50
+ALTER SEQUENCE push_inbox_seq INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241125-push-outbox.xml::1::Wultra
+-- Create a new sequence push_outbox_seq
+CREATE SEQUENCE push_outbox_seq START WITH 1 INCREMENT BY 50;
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241125-push-outbox.xml::2::Wultra
+-- Create a new table push_outbox
+CREATE TABLE push_outbox (id bigint NOT NULL, app_id varchar(255) NOT NULL, message varchar (max) NOT NULL, timestamp_created datetime2 NOT NULL, attempts int CONSTRAINT DF_push_outbox_attempts DEFAULT 0 NOT NULL, timestamp_claimed datetime2, timestamp_failed datetime2, CONSTRAINT PK_PUSH_OUTBOX PRIMARY KEY (id));
+GO
+
+-- Changeset powerauth-push-server/1.10.x/20241126-inbox-broadcast.xml::1::Wultra
+-- Create a new table push_inbox_broadcast
+CREATE TABLE push_inbox_broadcast (id varchar(37) NOT NULL, request varchar (max) NOT NULL, state varchar(32) NOT NULL, total_count bigint NOT NULL, posted_count bigint CONSTRAINT DF_push_inbox_broadcast_posted_count DEFAULT 0 NOT NULL, resume_position bigint CONSTRAINT DF_push_inbox_broadcast_resume_position DEFAULT 0 NOT NULL, error_message varchar(255), timestamp_created datetime2 NOT NULL, timestamp_claimed datetime2, timestamp_finished datetime2, CONSTRAINT PK_PUSH_INBOX_BROADCAST PRIMARY KEY (id));
+GO
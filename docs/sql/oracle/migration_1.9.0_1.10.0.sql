@@ -28,3 +28,75 @@ UPDATE push_app_credentials SET fcm_private_key = android_private_key, fcm_proje
 -- Changeset powerauth-push-server/1.10.x/20241108-device-registration-environment.xml::1::Roman Strobl
 -- Add columns environment to push_device_registration table
 ALTER TABLE push_device_registration ADD environment VARCHAR2(255);
+
+-- Changeset powerauth-push-server/1.10.x/20241120-inbox-keyset-index.xml::1::Wultra
+-- Create a new index on push_inbox(user_id, timestamp_created DESC, id)
+CREATE INDEX push_inbox_user_created ON push_inbox(user_id, timestamp_created DESC, id);
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::1::Wultra
+-- Create a new table push_inbox_body
+CREATE TABLE push_inbox_body (body_hash VARCHAR2(64) NOT NULL, body CLOB NOT NULL, timestamp_created TIMESTAMP NOT NULL, CONSTRAINT PK_PUSH_INBOX_BODY PRIMARY KEY (body_hash));
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::2::Wultra
+-- Add column body_hash to push_inbox table
+ALTER TABLE push_inbox ADD body_hash VARCHAR2(64);
+
+-- Changeset powerauth-push-server/1.10.x/20241121-inbox-body.xml::3::Wultra
+-- Drop not null constraint of column body in push_inbox table, deduplicated body is stored in push_inbox_body table
+ALTER TABLE push_inbox MODIFY body NULL;
+
+-- Changeset powerauth-push-server/1.10.x/20241122-push-message-retention.xml::1::Wultra
+-- Create a new index on push_message(timestamp_created)
+CREATE INDEX push_message_created ON push_message(timestamp_created);
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::1::Wultra
+-- Create a new table push_message_body
+CREATE TABLE push_message_body (body_hash VARCHAR2(64) NOT NULL, message_body VARCHAR2(2048) NOT NULL, timestamp_last_stored TIMESTAMP NOT NULL, CONSTRAINT PK_PUSH_MESSAGE_BODY PRIMARY KEY (body_hash));
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::2::Wultra
+-- Add column message_body_hash to push_message table
+ALTER TABLE push_message ADD message_body_hash VARCHAR2(64);
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::3::Wultra
+-- Drop not null constraint of column message_body in push_message table, deduplicated body is stored in push_message_body table
+ALTER TABLE push_message MODIFY message_body NULL;
+
+-- Changeset powerauth-push-server/1.10.x/20241123-push-message-body.xml::4::Wultra
+-- Create a new index on push_message(message_body_hash)
+CREATE INDEX push_message_body_hash ON push_message(message_body_hash);
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::1::Wultra
+-- Alter sequence push_credentials_seq to increment by 50
+ALTER SEQUENCE push_credentials_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::2::Wultra
+-- Alter sequence push_device_registration_seq to increment by 50
+ALTER SEQUENCE push_device_registration_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::3::Wultra
+-- Alter sequence push_message_seq to increment by 50
+ALTER SEQUENCE push_message_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::4::Wultra
+-- Alter sequence push_campaign_seq to increment by 50
+ALTER SEQUENCE push_campaign_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::5::Wultra
+-- Alter sequence push_campaign_user_seq to increment by 50
+ALTER SEQUENCE push_campaign_user_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241124-sequence-increment.xml::6::Wultra
+-- Alter sequence push_inbox_seq to increment by 50
+ALTER SEQUENCE push_inbox_seq INCREMENT BY 50;
+
+-- Changeset powerauth-push-server/1.10.x/20241125-push-outbox.xml::1::Wultra
+-- Create a new sequence push_outbox_seq
+CREATE SEQUENCE push_outbox_seq START WITH 1 INCREMENT BY 50 CACHE 20;
+
+-- Changeset powerauth-push-server/1.10.x/20241125-push-outbox.xml::2::Wultra
+-- Create a new table push_outbox
+CREATE TABLE push_outbox (id NUMBER(38, 0) NOT NULL, app_id VARCHAR2(255) NOT NULL, message CLOB NOT NULL, timestamp_created TIMESTAMP NOT NULL, attempts INTEGER DEFAULT 0 NOT NULL, timestamp_claimed TIMESTAMP, timestamp_failed TIMESTAMP, CONSTRAINT PK_PUSH_OUTBOX PRIMARY KEY (id));
+
+-- Changeset powerauth-push-server/1.10.x/20241126-inbox-broadcast.xml::1::Wultra
+-- Create a new table push_inbox_broadcast
+CREATE TABLE push_inbox_broadcast (id VARCHAR2(37) NOT NULL, request CLOB NOT NULL, state VARCHAR2(32) NOT NULL, total_count NUMBER(38, 0) NOT NULL, posted_count NUMBER(38, 0) DEFAULT 0 NOT NULL, resume_position NUMBER(38, 0) DEFAULT 0 NOT NULL, error_message VARCHAR2(255), timestamp_created TIMESTAMP NOT NULL, timestamp_claimed TIMESTAMP, timestamp_finished TIMESTAMP, CONSTRAINT PK_PUSH_INBOX_BROADCAST PRIMARY KEY (id));
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the regular JMH command line options and always enables
+ * the GC profiler, so that the allocation rate per operation is reported next to the throughput.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Run the benchmarks.
+     * @param args JMH command line options.
+     * @throws Exception In case the options are invalid or running the benchmarks fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        final boolean gcProfilerRequested = commandLineOptions.getProfilers().stream()
+                .anyMatch(profiler -> "gc".equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass()));
+        if (!gcProfilerRequested) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.benchmark;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of serializing push message bodies stored with sent messages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"SMALL", "EXTRAS", "LOCALIZED"})
+    private PushMessageBodyShape shape;
+
+    private JsonSerialization jsonSerialization;
+    private PushMessageBody pushMessageBody;
+    private String serializedBody;
+
+    @Setup
+    public void setup() throws PushServerException {
+        jsonSerialization = new JsonSerialization(JsonMapper.builder().findAndAddModules().build());
+        pushMessageBody = shape.create();
+        serializedBody = jsonSerialization.serializePushMessageBody(pushMessageBody);
+    }
+
+    @Benchmark
+    public String serialize() throws PushServerException {
+        return jsonSerialization.serializePushMessageBody(pushMessageBody);
+    }
+
+    @Benchmark
+    public PushMessageBody deserialize() throws PushServerException {
+        return jsonSerialization.deserializePushMessageBody(serializedBody);
+    }
+
+    @Benchmark
+    public PushMessageBody roundTrip() throws PushServerException {
+        return jsonSerialization.deserializePushMessageBody(jsonSerialization.serializePushMessageBody(pushMessageBody));
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.benchmark;
+
+import io.getlime.push.model.entity.PushMessageBody;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shapes of push message bodies used by the benchmarks.
+ */
+public enum PushMessageBodyShape {
+
+    /**
+     * Plain notification with a title, body and sound.
+     */
+    SMALL,
+
+    /**
+     * Notification with category, collapse key, expiration and custom data.
+     */
+    EXTRAS,
+
+    /**
+     * Notification localized on the device with localization keys and arguments.
+     */
+    LOCALIZED;
+
+    /**
+     * Create a new push message body of this shape.
+     * @return Push message body.
+     */
+    public PushMessageBody create() {
+        final PushMessageBody body = new PushMessageBody();
+        body.setSound("default");
+        switch (this) {
+            case SMALL -> {
+                body.setTitle("Balance update");
+                body.setBody("Your balance is now 1,234.56 EUR.");
+            }
+            case EXTRAS -> {
+                body.setTitle("Payment approval");
+                body.setBody("Approve the payment of 250.00 EUR to Example Shop.");
+                body.setCategory("payment");
+                body.setCollapseKey("1");
+                body.setValidUntil(Instant.now().plus(Duration.ofHours(1)));
+                final Map<String, Object> extras = new LinkedHashMap<>();
+                extras.put("_comment", "Payment approval request");
+                extras.put("operationId", "3a6f1c2e-9b7d-4e52-8f0a-6d1b2c3e4f50");
+                extras.put("operationType", "payment");
+                extras.put("amount", 250.00);
+                extras.put("currency", "EUR");
+                extras.put("attempt", 1);
+                body.setExtras(extras);
+            }
+            case LOCALIZED -> {
+                body.setTitleLocKey("payment.title");
+                body.setTitleLocArgs(new String[]{"Example Shop"});
+                body.setBodyLocKey("payment.body");
+                body.setBodyLocArgs(new String[]{"250.00", "EUR", "Example Shop"});
+                body.setBadge(3);
+                body.setIcon("ic_notification");
+                body.setCategory("payment");
+                body.setExtras(Map.of("operationId", "3a6f1c2e-9b7d-4e52-8f0a-6d1b2c3e4f50"));
+            }
+        }
+        return body;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.google.api.client.googleapis.util.Utils;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.util.Key;
+import com.google.firebase.messaging.MessagingErrorCode;
+import io.getlime.push.service.fcm.FcmModelConverter;
+import io.getlime.push.service.fcm.model.FcmErrorResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of handling the FCM success and error responses, per single response.
+ * <p>
+ * The {@code regex} and {@code map} benchmarks measure the previous handling for comparison. The benchmarks live
+ * in the service package to reach the package-private response name validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FcmResponseBenchmark {
+
+    private static final String SUCCESS_NAME = "projects/powerauth-push-benchmarks/messages/0:1500415314455276%31bd1c9631bd1c96";
+
+    private static final String ERROR_RESPONSE = """
+            {
+              "error": {
+                "code": 404,
+                "message": "Requested entity was not found.",
+                "status": "NOT_FOUND",
+                "details": [
+                  {
+                    "@type": "type.googleapis.com/google.rpc.BadRequest",
+                    "fieldViolations": [ { "field": "message.token", "description": "The registration token is not a valid FCM registration token" } ]
+                  },
+                  {
+                    "@type": "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                    "errorCode": "UNREGISTERED"
+                  }
+                ]
+              }
+            }
+            """;
+
+    private JsonFactory jsonFactory;
+    private FcmModelConverter fcmModelConverter;
+
+    @Setup
+    public void setup() {
+        jsonFactory = Utils.getDefaultJsonFactory();
+        fcmModelConverter = new FcmModelConverter();
+    }
+
+    @Benchmark
+    public boolean validateSuccessNameRegex() {
+        return SUCCESS_NAME.matches("projects/.+/messages/.+");
+    }
+
+    @Benchmark
+    public boolean validateSuccessName() {
+        return PushSendingWorker.isValidFcmResponseName(SUCCESS_NAME);
+    }
+
+    @Benchmark
+    public MessagingErrorCode convertErrorResponseMap() throws IOException {
+        final MappedErrorResponse response = new MappedErrorResponse();
+        jsonFactory.createJsonParser(ERROR_RESPONSE).parseAndClose(response);
+        return response.getMessagingErrorCode();
+    }
+
+    @Benchmark
+    public MessagingErrorCode convertErrorResponse() {
+        return fcmModelConverter.convertResponseToErrorCode(ERROR_RESPONSE);
+    }
+
+    /**
+     * Previous handling of the FCM error response, mapping the whole response before resolving the error code.
+     */
+    public static class MappedErrorResponse {
+
+        @Key("error")
+        private Map<String, Object> error;
+
+        MessagingErrorCode getMessagingErrorCode() {
+            if (error == null) {
+                return null;
+            }
+            final Object details = error.get("details");
+            if (details instanceof List) {
+                for (Object detail : (List<?>) details) {
+                    if (detail instanceof final Map<?, ?> detailMap
+                            && FcmErrorResponse.FCM_ERROR_TYPE.equals(detailMap.get("@type"))) {
+                        return FcmErrorResponse.toMessagingErrorCode((String) detailMap.get("errorCode"));
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.eatthepath.pushy.apns.DeliveryPriority;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Message;
+import io.getlime.push.benchmark.PushMessageBodyShape;
+import io.getlime.push.configuration.PushServiceConfiguration;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.entity.PushMessageAttributes;
+import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.model.enumeration.Priority;
+import io.getlime.push.service.fcm.FcmModelConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of building the APNs, FCM and HMS payloads of a single push message.
+ * <p>
+ * The benchmarks live in the service package to reach the package-private payload builders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PushPayloadBenchmark {
+
+    private static final String PUSH_TOKEN = "dGVzdC1wdXNoLXRva2VuLWZvci1iZW5jaG1hcmtzLW9ubHktMDEyMzQ1Njc4OWFiY2RlZg";
+
+    @Param({"SMALL", "EXTRAS", "LOCALIZED"})
+    private PushMessageBodyShape shape;
+
+    private PushMessageBody pushMessageBody;
+    private PushMessageAttributes attributes;
+    private PushSendingWorker pushSendingWorker;
+    private FcmModelConverter fcmModelConverter;
+    private Message fcmMessage;
+
+    @Setup
+    public void setup() {
+        pushMessageBody = shape.create();
+        attributes = new PushMessageAttributes();
+        attributes.setSilent(false);
+        attributes.setPersonal(true);
+        fcmModelConverter = new FcmModelConverter();
+        // CA certificates and FCM connections are only needed to create the HTTP clients, which are not used here
+        pushSendingWorker = new PushSendingWorker(new PushServiceConfiguration(), fcmModelConverter, null, null);
+        fcmMessage = pushSendingWorker.buildFcmMessage(pushMessageBody, attributes, Priority.HIGH, PUSH_TOKEN);
+    }
+
+    @Benchmark
+    public String payloadForApns() {
+        return ApnsPayloadGenerator.payloadForApns(pushMessageBody, false);
+    }
+
+    @Benchmark
+    public ApnsConfig payloadForFcm() {
+        return ApnsPayloadGenerator.payloadForFcm(pushMessageBody, false, DeliveryPriority.IMMEDIATE);
+    }
+
+    @Benchmark
+    public Message buildFcmMessage() {
+        return pushSendingWorker.buildFcmMessage(pushMessageBody, attributes, Priority.HIGH, PUSH_TOKEN);
+    }
+
+    @Benchmark
+    public io.getlime.push.service.hms.request.Message buildHmsMessage() throws PushServerException {
+        return pushSendingWorker.buildHmsMessage(pushMessageBody, attributes, Priority.HIGH, PUSH_TOKEN);
+    }
+
+    @Benchmark
+    public DataBuffer convertFcmMessageToFlux() {
+        return fcmModelConverter.convertMessageToFlux(fcmMessage, false).blockFirst();
+    }
+
+    @Benchmark
+    public DataBuffer buildAndConvertFcmMessage() {
+        final Message message = pushSendingWorker.buildFcmMessage(pushMessageBody, attributes, Priority.HIGH, PUSH_TOKEN);
+        return fcmModelConverter.convertMessageToFlux(message, false).blockFirst();
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.client;
+
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.push.model.entity.PushMessage;
+import io.getlime.push.model.entity.PushMessageSendResult;
+import io.getlime.push.model.enumeration.Mode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalescer of single push messages into batches per application and mode.
+ * <p>
+ * A batch is sent once it reaches the maximum size or once the batch window of its first message elapses,
+ * whichever comes first. Every message of the batch completes with the result of the whole batch, or with the error
+ * in case the batch was not accepted. The client therefore coalesces only messages sent in asynchronous mode, whose
+ * result is an acknowledgement of the accepted messages.
+ */
+class PushMessageCoalescer implements AutoCloseable {
+
+    /**
+     * Sender of a coalesced batch.
+     */
+    @FunctionalInterface
+    interface BatchSender {
+
+        /**
+         * Send the batch.
+         * @param appId Application ID.
+         * @param mode Mode of push notification sending.
+         * @param batch Push messages.
+         * @return Future with the result of the batch.
+         */
+        CompletableFuture<ObjectResponse<PushMessageSendResult>> send(String appId, Mode mode, List<PushMessage> batch);
+    }
+
+    private final BatchSender batchSender;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<BatchKey, PendingBatch> pendingBatches = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Constructor with the batch sender and batching limits.
+     * @param batchSender Sender of a coalesced batch.
+     * @param batchWindow Maximum duration a message waits for other messages of the same batch.
+     * @param maxBatchSize Maximum number of messages in a batch.
+     */
+    PushMessageCoalescer(final BatchSender batchSender, final Duration batchWindow, final int maxBatchSize) {
+        this.batchSender = batchSender;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "push-server-client-batching");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Add the message to the pending batch of the application and mode.
+     * @param appId Application ID.
+     * @param mode Mode of push notification sending.
+     * @param pushMessage Push message.
+     * @return Future with the result of the batch the message was sent in.
+     */
+    CompletableFuture<ObjectResponse<PushMessageSendResult>> submit(final String appId, final Mode mode, final PushMessage pushMessage) {
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> future = new CompletableFuture<>();
+        final PendingBatch fullBatch;
+        synchronized (pendingBatches) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new PushServerClientException("Push server client is closed."));
+            }
+            final BatchKey key = new BatchKey(appId, mode);
+            final PendingBatch batch = pendingBatches.computeIfAbsent(key, this::openBatch);
+            batch.messages.add(pushMessage);
+            batch.futures.add(future);
+            if (batch.messages.size() < maxBatchSize) {
+                return future;
+            }
+            pendingBatches.remove(key);
+            batch.timer.cancel(false);
+            fullBatch = batch;
+        }
+        send(fullBatch);
+        return future;
+    }
+
+    /**
+     * Send all pending batches and stop accepting new messages.
+     */
+    @Override
+    public void close() {
+        final List<PendingBatch> batches;
+        synchronized (pendingBatches) {
+            closed = true;
+            batches = new ArrayList<>(pendingBatches.values());
+            pendingBatches.clear();
+        }
+        batches.forEach(batch -> {
+            batch.timer.cancel(false);
+            send(batch);
+        });
+        scheduler.shutdown();
+    }
+
+    private PendingBatch openBatch(final BatchKey key) {
+        final PendingBatch batch = new PendingBatch(key);
+        batch.timer = scheduler.schedule(() -> flush(batch), batchWindowNanos, TimeUnit.NANOSECONDS);
+        return batch;
+    }
+
+    private void flush(final PendingBatch batch) {
+        synchronized (pendingBatches) {
+            // The batch may have been sent already because it reached the maximum size
+            if (!pendingBatches.remove(batch.key, batch)) {
+                return;
+            }
+        }
+        send(batch);
+    }
+
+    private void send(final PendingBatch batch) {
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> result;
+        try {
+            result = batchSender.send(batch.key.appId(), batch.key.mode(), batch.messages);
+        } catch (RuntimeException ex) {
+            batch.futures.forEach(future -> future.completeExceptionally(ex));
+            return;
+        }
+        result.whenComplete((response, throwable) -> batch.futures.forEach(future -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(response);
+            }
+        }));
+    }
+
+    private record BatchKey(String appId, Mode mode) {
+    }
+
+    private static class PendingBatch {
+
+        private final BatchKey key;
+        private final List<PushMessage> messages = new ArrayList<>();
+        private final List<CompletableFuture<ObjectResponse<PushMessageSendResult>>> futures = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+
+        private PendingBatch(final BatchKey key) {
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.client;
+
+import com.fasterxml.jackson.databind.Module;
+import com.wultra.core.rest.client.base.DefaultRestClient;
+import com.wultra.core.rest.client.base.RestClient;
+import com.wultra.core.rest.client.base.RestClientException;
+import io.getlime.core.rest.model.base.entity.Error;
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.core.rest.model.base.response.Response;
+import io.getlime.push.model.entity.PushMessage;
+import io.getlime.push.model.entity.PushMessageSendResult;
+import io.getlime.push.model.enumeration.Mode;
+import io.getlime.push.model.request.CreateDeviceRequest;
+import io.getlime.push.model.request.CreateInboxMessageRequest;
+import io.getlime.push.model.request.SendPushMessageBatchRequest;
+import io.getlime.push.model.request.SendPushMessageRequest;
+import io.getlime.push.model.response.GetInboxMessageCountResponse;
+import io.getlime.push.model.response.GetInboxMessageDetailResponse;
+import io.getlime.push.model.validator.CreateDeviceRequestValidator;
+import io.getlime.push.model.validator.SendPushMessageBatchRequestValidator;
+import io.getlime.push.model.validator.SendPushMessageRequestValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking client of the push server RESTful API, results are provided as {@link CompletableFuture} instances.
+ * <p>
+ * Requests are sent using the non-blocking methods of the REST client, configured the same way as the REST client of
+ * {@link PushServerClient}, so that many requests may be in progress at once without occupying a thread per request.
+ * In case batching is enabled in the configuration, single push messages sent in asynchronous mode are coalesced into
+ * batches per application within a short window. The client should be closed when no longer used, to send
+ * the pending batches.
+ */
+public class PushServerAsyncClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushServerAsyncClient.class);
+
+    private static final ParameterizedTypeReference<ObjectResponse<PushMessageSendResult>> SEND_RESULT_TYPE = new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+    private final PushMessageCoalescer coalescer;
+
+    /**
+     * Constructor with the push server base URL and default configuration.
+     * @param serviceBaseUrl Push server instance base URL.
+     * @throws PushServerClientException Thrown in case client initialization fails.
+     */
+    public PushServerAsyncClient(final String serviceBaseUrl) throws PushServerClientException {
+        this(createConfiguration(serviceBaseUrl));
+    }
+
+    /**
+     * Construct the push server client with the given configuration.
+     *
+     * @param config Client configuration.
+     * @param modules Optional jackson modules.
+     * @throws PushServerClientException Thrown in case client initialization fails.
+     */
+    public PushServerAsyncClient(final PushServerAsyncClientConfiguration config, final Module... modules) throws PushServerClientException {
+        if (!StringUtils.hasText(config.getBaseUrl())) {
+            throw new PushServerClientException("Push server base URL must not be empty.");
+        }
+        if (config.getMaxBatchSize() < 1 || config.getMaxBatchSize() > PushServerAsyncClientConfiguration.MAX_BATCH_SIZE) {
+            throw new PushServerClientException("Maximum batch size must be between 1 and " + PushServerAsyncClientConfiguration.MAX_BATCH_SIZE + ".");
+        }
+
+        try {
+            this.restClient = new DefaultRestClient(config, modules);
+        } catch (RestClientException ex) {
+            throw new PushServerClientException("Rest client initialization failed, error: " + ex.getMessage(), ex);
+        }
+
+        this.coalescer = config.isBatchingEnabled() && config.getMaxBatchSize() > 1
+                ? new PushMessageCoalescer(this::sendCoalescedBatch, config.getBatchWindow(), config.getMaxBatchSize())
+                : null;
+    }
+
+    // Client calls
+
+    /**
+     * Register a device to the push server.
+     *
+     * @param request Create device request.
+     * @return Future with true if device registration was successful, false otherwise.
+     */
+    public CompletableFuture<Boolean> createDevice(final CreateDeviceRequest request) {
+        final String error = CreateDeviceRequestValidator.validate(request);
+        if (error != null) {
+            return CompletableFuture.failedFuture(new PushServerClientException(error));
+        }
+
+        logger.debug("call={}, callType={}, action: createDevice, state: initiated, appId: {}, platform: {}",
+                "/push/device/create", "POST", request.getAppId(), request.getPlatform());
+        return postImpl("/push/device/create", new ObjectRequest<>(request), new ParameterizedTypeReference<Response>() {})
+                .thenApply(response -> Response.Status.OK.equals(response.getStatus()));
+    }
+
+    /**
+     * Send a single push message to application with given ID.
+     *
+     * @param appId PowerAuth application app ID.
+     * @param pushMessage Push message to be sent.
+     * @return Future with the result of sending.
+     * @see #sendPushMessage(String, Mode, PushMessage)
+     */
+    public CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessage(final String appId, final PushMessage pushMessage) {
+        return sendPushMessage(appId, Mode.SYNCHRONOUS, pushMessage);
+    }
+
+    /**
+     * Send a single push message to application with given ID.
+     * <p>
+     * In case batching is enabled and the message is sent in asynchronous mode, the message is sent within a batch
+     * together with other messages for the same application, and the future completes with the result of the whole
+     * batch.
+     *
+     * @param appId PowerAuth application app ID.
+     * @param mode Mode of push notification sending.
+     * @param pushMessage Push message to be sent.
+     * @return Future with the result of sending.
+     */
+    public CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessage(final String appId, final Mode mode, final PushMessage pushMessage) {
+        final SendPushMessageRequest request = new SendPushMessageRequest();
+        request.setMode(mode);
+        request.setAppId(appId);
+        request.setMessage(pushMessage);
+
+        // Validate request on the client side, so that an invalid message does not fail the whole batch.
+        final String error = SendPushMessageRequestValidator.validate(request);
+        if (error != null) {
+            return CompletableFuture.failedFuture(new PushServerClientException(error));
+        }
+
+        // Only messages sent in asynchronous mode are coalesced, the result of a synchronous send belongs to the message
+        if (coalescer != null && mode == Mode.ASYNCHRONOUS) {
+            return coalescer.submit(appId, mode, pushMessage);
+        }
+        return sendPushMessageImpl(request);
+    }
+
+    /**
+     * Send a push message batch to application with given ID.
+     *
+     * @param appId PowerAuth application app ID.
+     * @param batch Push message batch to be sent.
+     * @return Future with the result of sending.
+     */
+    public CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessageBatch(final String appId, final List<PushMessage> batch) {
+        return sendPushMessageBatch(appId, Mode.SYNCHRONOUS, batch);
+    }
+
+    /**
+     * Send a push message batch to application with given ID.
+     *
+     * @param appId PowerAuth application app ID.
+     * @param mode Mode of push notification sending.
+     * @param batch Push message batch to be sent.
+     * @return Future with the result of sending.
+     */
+    public CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessageBatch(final String appId, final Mode mode, final List<PushMessage> batch) {
+        final SendPushMessageBatchRequest request = new SendPushMessageBatchRequest();
+        request.setAppId(appId);
+        request.setMode(mode);
+        request.setBatch(batch);
+
+        // Validate request on the client side.
+        final String error = SendPushMessageBatchRequestValidator.validate(request);
+        if (error != null) {
+            return CompletableFuture.failedFuture(new PushServerClientException(error));
+        }
+        return sendPushMessageBatchImpl(request);
+    }
+
+    /**
+     * Post a message to an inbox of provided user.
+     * @param request Inbox message request.
+     * @return Future with the detail of the posted message.
+     */
+    public CompletableFuture<ObjectResponse<GetInboxMessageDetailResponse>> postMessage(final CreateInboxMessageRequest request) {
+        logger.debug("call={}, callType={}, action: postMessage, state: initiated, userId: {}", "/inbox/messages", "POST", request.getUserId());
+        final ParameterizedTypeReference<ObjectResponse<GetInboxMessageDetailResponse>> typeReference = new ParameterizedTypeReference<>() {};
+        return postImpl("/inbox/messages", new ObjectRequest<>(request), typeReference);
+    }
+
+    /**
+     * Fetch unread message count for a user with given ID.
+     * @param userId User ID.
+     * @param appId Application ID.
+     * @return Future with the count of unread messages.
+     */
+    public CompletableFuture<ObjectResponse<GetInboxMessageCountResponse>> fetchMessageCountForUser(final String userId, final String appId) {
+        final MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("userId", userId);
+        params.add("appId", appId);
+
+        final ParameterizedTypeReference<ObjectResponse<GetInboxMessageCountResponse>> typeReference = new ParameterizedTypeReference<>() {};
+        logger.debug("call={}, callType={}, action: fetchMessageCountForUser, state: initiated, userId: {}, appId: {}", "/inbox/messages/count", "GET", userId, appId);
+        return getImpl("/inbox/messages/count", params, typeReference);
+    }
+
+    /**
+     * Send the pending push message batches.
+     */
+    @Override
+    public void close() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    private CompletableFuture<ObjectResponse<PushMessageSendResult>> sendCoalescedBatch(final String appId, final Mode mode, final List<PushMessage> batch) {
+        if (batch.size() == 1) {
+            final SendPushMessageRequest request = new SendPushMessageRequest();
+            request.setMode(mode);
+            request.setAppId(appId);
+            request.setMessage(batch.get(0));
+            return sendPushMessageImpl(request);
+        }
+        final SendPushMessageBatchRequest request = new SendPushMessageBatchRequest();
+        request.setAppId(appId);
+        request.setMode(mode);
+        request.setBatch(batch);
+        return sendPushMessageBatchImpl(request);
+    }
+
+    private CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessageImpl(final SendPushMessageRequest request) {
+        logger.debug("call={}, callType={}, action: sendPushMessage, state: initiated, appId: {}, userId: {}",
+                "/push/message/send", "POST", request.getAppId(), request.getMessage().getUserId());
+        return postImpl("/push/message/send", new ObjectRequest<>(request), SEND_RESULT_TYPE);
+    }
+
+    private CompletableFuture<ObjectResponse<PushMessageSendResult>> sendPushMessageBatchImpl(final SendPushMessageBatchRequest request) {
+        logger.debug("call={}, callType={}, action: sendPushMessageBatch, state: initiated, appId: {}, batchSize: {}",
+                "/push/message/batch/send", "POST", request.getAppId(), request.getBatch().size());
+        return postImpl("/push/message/batch/send", new ObjectRequest<>(request), SEND_RESULT_TYPE);
+    }
+
+    // Generic HTTP client methods
+
+    /**
+     * Send a GET request.
+     *
+     * @param url specific url of method.
+     * @param params params to pass to url path.
+     * @param typeReference response type reference.
+     * @return Future with the object obtained after processing the response JSON.
+     */
+    private <T> CompletableFuture<T> getImpl(final String url, final MultiValueMap<String, String> params, final ParameterizedTypeReference<T> typeReference) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            restClient.getNonBlocking(url, params, null, typeReference,
+                    response -> future.complete(response.getBody()),
+                    ex -> future.completeExceptionally(convertException(ex, "HTTP GET request failed.")));
+        } catch (RestClientException ex) {
+            future.completeExceptionally(convertException(ex, "HTTP GET request failed."));
+        }
+        return future;
+    }
+
+    /**
+     * Send a POST request.
+     *
+     * @param url specific url of method.
+     * @param request request body.
+     * @param typeReference response type reference.
+     * @return Future with the object obtained after processing the response JSON.
+     */
+    private <T> CompletableFuture<T> postImpl(final String url, final Object request, final ParameterizedTypeReference<T> typeReference) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            restClient.postNonBlocking(url, request, typeReference,
+                    response -> future.complete(response.getBody()),
+                    ex -> future.completeExceptionally(convertException(ex, "HTTP POST request failed.")));
+        } catch (RestClientException ex) {
+            future.completeExceptionally(convertException(ex, "HTTP POST request failed."));
+        }
+        return future;
+    }
+
+    private static PushServerClientException convertException(final Throwable ex, final String message) {
+        logger.debug(ex.getMessage(), ex);
+        return new PushServerClientException(ex, new Error("PUSH_SERVER_CLIENT_ERROR", message));
+    }
+
+    private static PushServerAsyncClientConfiguration createConfiguration(final String serviceBaseUrl) {
+        final PushServerAsyncClientConfiguration config = new PushServerAsyncClientConfiguration();
+        config.setBaseUrl(serviceBaseUrl);
+        return config;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.client;
+
+import com.wultra.core.rest.client.base.RestClientConfiguration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of {@link PushServerAsyncClient}.
+ * <p>
+ * Connection settings, such as timeouts, proxy, HTTP basic authentication and TLS trust, are inherited from
+ * {@link RestClientConfiguration}, the same way as in case of {@link PushServerClient}.
+ */
+public class PushServerAsyncClientConfiguration extends RestClientConfiguration {
+
+    /**
+     * Maximum number of messages in a push message batch accepted by the push server.
+     */
+    public static final int MAX_BATCH_SIZE = 20;
+
+    private boolean batchingEnabled = false;
+    private Duration batchWindow = Duration.ofMillis(10);
+    private int maxBatchSize = MAX_BATCH_SIZE;
+
+    /**
+     * Get whether single push messages sent in asynchronous mode are coalesced into batches.
+     * @return Whether batching is enabled.
+     */
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    /**
+     * Set whether single push messages sent in asynchronous mode are coalesced into batches.
+     * @param batchingEnabled Whether batching is enabled.
+     */
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    /**
+     * Get maximum duration a single push message waits for other messages of the same batch.
+     * @return Batch window.
+     */
+    public Duration getBatchWindow() {
+        return batchWindow;
+    }
+
+    /**
+     * Set maximum duration a single push message waits for other messages of the same batch.
+     * @param batchWindow Batch window.
+     */
+    public void setBatchWindow(Duration batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Get maximum number of messages in a coalesced batch, at most {@value #MAX_BATCH_SIZE}.
+     * @return Maximum batch size.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set maximum number of messages in a coalesced batch, at most {@value #MAX_BATCH_SIZE}.
+     * @param maxBatchSize Maximum batch size.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+}
@@ -283,6 +283,72 @@ public class PushServerClient {
         return response.getStatus().equals(Response.Status.OK);
     }
 
+    /**
+     * Create or update a bulk of device registrations.
+     *
+     * @param devices Device registrations to be created or updated.
+     * @return Results of individual registrations.
+     * @throws PushServerClientException In case of network, response / JSON processing, or other IO error.
+     */
+    public ObjectResponse<DeviceBulkResponse> createDevices(final List<CreateDeviceRequest> devices) throws PushServerClientException {
+        final String error = DeviceBulkRequestValidator.validate(devices);
+        if (error != null) {
+            throw new PushServerClientException(error);
+        }
+
+        final CreateDeviceBulkRequest request = new CreateDeviceBulkRequest();
+        request.setDevices(devices);
+
+        logger.info("call={}, callType={}, action: createDevices, state: initiated, devices: {}", "/push/device/create/bulk", "POST", devices.size());
+        final ObjectResponse<DeviceBulkResponse> response = postObjectImpl("/push/device/create/bulk", new ObjectRequest<>(request), DeviceBulkResponse.class);
+        logger.info("call={}, callType={}, action: createDevices, state: succeeded", "/push/device/create/bulk", "POST");
+        return response;
+    }
+
+    /**
+     * Remove a bulk of device registrations.
+     *
+     * @param devices Device registrations to be removed.
+     * @return Results of individual removals.
+     * @throws PushServerClientException In case of network, response / JSON processing, or other IO error.
+     */
+    public ObjectResponse<DeviceBulkResponse> deleteDevices(final List<DeleteDeviceRequest> devices) throws PushServerClientException {
+        final String error = DeviceBulkRequestValidator.validate(devices);
+        if (error != null) {
+            throw new PushServerClientException(error);
+        }
+
+        final DeleteDeviceBulkRequest request = new DeleteDeviceBulkRequest();
+        request.setDevices(devices);
+
+        logger.info("call={}, callType={}, action: deleteDevices, state: initiated, devices: {}", "/push/device/delete/bulk", "POST", devices.size());
+        final ObjectResponse<DeviceBulkResponse> response = postObjectImpl("/push/device/delete/bulk", new ObjectRequest<>(request), DeviceBulkResponse.class);
+        logger.info("call={}, callType={}, action: deleteDevices, state: succeeded", "/push/device/delete/bulk", "POST");
+        return response;
+    }
+
+    /**
+     * Update status of a bulk of device registrations. Missing activation status is resolved by the push server.
+     *
+     * @param devices Device status updates.
+     * @return Results of individual status updates.
+     * @throws PushServerClientException In case of network, response / JSON processing, or other IO error.
+     */
+    public ObjectResponse<DeviceBulkResponse> updateDeviceStatuses(final List<UpdateDeviceStatusRequest> devices) throws PushServerClientException {
+        final String error = DeviceBulkRequestValidator.validate(devices);
+        if (error != null) {
+            throw new PushServerClientException(error);
+        }
+
+        final UpdateDeviceStatusBulkRequest request = new UpdateDeviceStatusBulkRequest();
+        request.setDevices(devices);
+
+        logger.info("call={}, callType={}, action: updateDeviceStatuses, state: initiated, devices: {}", "/push/device/status/update/bulk", "POST", devices.size());
+        final ObjectResponse<DeviceBulkResponse> response = postObjectImpl("/push/device/status/update/bulk", new ObjectRequest<>(request), DeviceBulkResponse.class);
+        logger.info("call={}, callType={}, action: updateDeviceStatuses, state: succeeded", "/push/device/status/update/bulk", "POST");
+        return response;
+    }
+
     /**
      * Send a single push message to application with given ID.
      *
@@ -817,6 +883,37 @@ public class PushServerClient {
         return response;
     }
 
+    /**
+     * Post a message to an inbox of users listed in the request or users of a campaign.
+     * The messages are posted in the background, use {@link #fetchBroadcastDetail(String)} to check the progress.
+     * @param request Broadcast request.
+     * @return Detail of the accepted broadcast.
+     * @throws PushServerClientException Thrown when communication with Push Server fails.
+     */
+    public ObjectResponse<GetInboxBroadcastDetailResponse> postBroadcast(CreateInboxBroadcastRequest request) throws PushServerClientException {
+        logger.info("call={}, callType={}, action: postBroadcast, state: initiated, campaignId: {}, subject: {}", "/inbox/messages/broadcast", "POST", request.getCampaignId(), request.getSubject());
+        final ObjectResponse<GetInboxBroadcastDetailResponse> response = postObjectImpl("/inbox/messages/broadcast", new ObjectRequest<>(request), GetInboxBroadcastDetailResponse.class);
+        logger.info("call={}, callType={}, action: postBroadcast, state: succeeded", "/inbox/messages/broadcast", "POST");
+        return response;
+    }
+
+    /**
+     * Fetch state and progress of a broadcast of an inbox message.
+     * @param id Broadcast ID.
+     * @return Detail of the broadcast.
+     * @throws PushServerClientException Thrown when communication with Push Server fails.
+     */
+    public ObjectResponse<GetInboxBroadcastDetailResponse> fetchBroadcastDetail(String id) throws PushServerClientException {
+        final MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("id", id);
+
+        logger.info("call={}, callType={}, action: fetchBroadcastDetail, state: initiated, id: {}", "/inbox/messages/broadcast/detail", "GET", id);
+        final ObjectResponse<GetInboxBroadcastDetailResponse> result = getObjectImpl("/inbox/messages/broadcast/detail", params, GetInboxBroadcastDetailResponse.class);
+        logger.info("call={}, callType={}, action: fetchBroadcastDetail, state: succeeded", "/inbox/messages/broadcast/detail", "GET");
+
+        return result;
+    }
+
     /**
      * Fetch the list of messages for a given user.
      * @param userId User ID.
@@ -841,6 +938,34 @@ public class PushServerClient {
         return result;
     }
 
+    /**
+     * Fetch the list of messages for a given user using keyset pagination.
+     * @param userId User ID.
+     * @param applications List of application IDs.
+     * @param onlyUnread Indication if only unread messages should be returned.
+     * @param after Cursor of the next page returned with the previous page, null for the first page.
+     * @param size Page size.
+     * @return Page of inbox messages with the cursor of the next page.
+     * @throws PushServerClientException Thrown when communication with Push Server fails.
+     */
+    public ObjectResponse<GetInboxMessageListResponse> fetchMessageListForUserByCursor(String userId, List<String> applications, boolean onlyUnread, String after, int size) throws PushServerClientException {
+        final MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("userId", userId);
+        params.add("applications", String.join(",", applications));
+        params.add("onlyUnread", Boolean.toString(onlyUnread));
+        if (after != null) {
+            params.add("after", after);
+        }
+        params.add("size", Integer.toString(size));
+
+        final ParameterizedTypeReference<ObjectResponse<GetInboxMessageListResponse>> typeReference = new ParameterizedTypeReference<>() {};
+        logger.info("call={}, callType={}, action: fetchMessageListForUserByCursor, state: initiated, userId: {}, onlyUnread: {}", "/inbox/messages/list/cursor", "GET", userId, onlyUnread);
+        final ObjectResponse<GetInboxMessageListResponse> result = getImpl("/inbox/messages/list/cursor", params, typeReference);
+        logger.info("call={}, callType={}, action: fetchMessageListForUserByCursor, state: succeeded", "/inbox/messages/list/cursor", "GET");
+
+        return result;
+    }
+
     /**
      * Fetch unread message count for a user with given ID.
      * @param userId User ID.
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.client;
+
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.push.model.entity.PushMessage;
+import io.getlime.push.model.entity.PushMessageSendResult;
+import io.getlime.push.model.enumeration.Mode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link PushMessageCoalescer}.
+ */
+class PushMessageCoalescerTest {
+
+    private final List<List<PushMessage>> sentBatches = new CopyOnWriteArrayList<>();
+
+    private final ObjectResponse<PushMessageSendResult> response = new ObjectResponse<>(new PushMessageSendResult(Mode.ASYNCHRONOUS));
+
+    private PushMessageCoalescer tested;
+
+    @AfterEach
+    void close() {
+        if (tested != null) {
+            tested.close();
+        }
+    }
+
+    @Test
+    void testSubmit_maxBatchSize() throws Exception {
+        tested = new PushMessageCoalescer(this::sendBatch, Duration.ofHours(1), 2);
+
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> first = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_1"));
+        assertFalse(first.isDone());
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> second = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_2"));
+
+        assertSame(response, first.get(1, TimeUnit.SECONDS));
+        assertSame(response, second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, sentBatches.size());
+        assertEquals(List.of("user_1", "user_2"), sentBatches.get(0).stream().map(PushMessage::getUserId).toList());
+    }
+
+    @Test
+    void testSubmit_batchWindow() throws Exception {
+        tested = new PushMessageCoalescer(this::sendBatch, Duration.ofMillis(50), 20);
+
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> first = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_1"));
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> other = tested.submit("other_app", Mode.ASYNCHRONOUS, createMessage("user_2"));
+
+        assertSame(response, first.get(1, TimeUnit.SECONDS));
+        assertSame(response, other.get(1, TimeUnit.SECONDS));
+        // Messages of different applications are sent in separate batches
+        assertEquals(2, sentBatches.size());
+        assertTrue(sentBatches.stream().allMatch(batch -> batch.size() == 1));
+    }
+
+    @Test
+    void testClose() throws Exception {
+        tested = new PushMessageCoalescer(this::sendBatch, Duration.ofHours(1), 20);
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> pending = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_1"));
+
+        tested.close();
+
+        assertSame(response, pending.get(1, TimeUnit.SECONDS));
+        assertEquals(1, sentBatches.size());
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> rejected = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_2"));
+        final ExecutionException exception = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(PushServerClientException.class, exception.getCause());
+        assertEquals(1, sentBatches.size());
+    }
+
+    @Test
+    void testSubmit_error() {
+        final PushServerClientException error = new PushServerClientException("Push server responded with HTTP status: 400");
+        tested = new PushMessageCoalescer((appId, mode, batch) -> CompletableFuture.failedFuture(error), Duration.ofHours(1), 2);
+
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> first = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_1"));
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> second = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_2"));
+
+        for (CompletableFuture<ObjectResponse<PushMessageSendResult>> future : List.of(first, second)) {
+            final ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            assertSame(error, exception.getCause());
+        }
+    }
+
+    @Test
+    void testSubmit_senderThrows() {
+        final IllegalStateException error = new IllegalStateException("Sender failed");
+        tested = new PushMessageCoalescer((appId, mode, batch) -> {
+            throw error;
+        }, Duration.ofHours(1), 1);
+
+        final CompletableFuture<ObjectResponse<PushMessageSendResult>> future = tested.submit("my_app", Mode.ASYNCHRONOUS, createMessage("user_1"));
+
+        final ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertSame(error, exception.getCause());
+    }
+
+    private CompletableFuture<ObjectResponse<PushMessageSendResult>> sendBatch(final String appId, final Mode mode, final List<PushMessage> batch) {
+        sentBatches.add(List.copyOf(batch));
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static PushMessage createMessage(final String userId) {
+        final PushMessage message = new PushMessage();
+        message.setUserId(userId);
+        return message;
+    }
+
+}
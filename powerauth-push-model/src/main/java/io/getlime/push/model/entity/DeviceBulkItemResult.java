@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a single item of a bulk device operation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceBulkItemResult {
+
+    /**
+     * Status of the item processing.
+     */
+    public enum Status {
+        /**
+         * Item was processed successfully.
+         */
+        OK,
+        /**
+         * Item processing failed.
+         */
+        ERROR
+    }
+
+    /**
+     * Index of the item in the request.
+     */
+    @Schema(description = "Index of the item in the request.")
+    private int index;
+
+    /**
+     * Status of the item processing.
+     */
+    @Schema(description = "Status of the item processing.")
+    private Status status;
+
+    /**
+     * Error message in case the item processing failed.
+     */
+    @Schema(description = "Error message in case the item processing failed.")
+    private String message;
+
+    /**
+     * Create a successful item result.
+     * @param index Index of the item in the request.
+     * @return Item result.
+     */
+    public static DeviceBulkItemResult ok(int index) {
+        return new DeviceBulkItemResult(index, Status.OK, null);
+    }
+
+    /**
+     * Create a failed item result.
+     * @param index Index of the item in the request.
+     * @param message Error message.
+     * @return Item result.
+     */
+    public static DeviceBulkItemResult error(int index, String message) {
+        return new DeviceBulkItemResult(index, Status.ERROR, message);
+    }
+
+}
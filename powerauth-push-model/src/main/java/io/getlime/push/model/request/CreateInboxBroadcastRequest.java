@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.request;
+
+import io.getlime.push.model.enumeration.MessageType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object for posting the same inbox message to many users, either to users listed in the request,
+ * or to users of a campaign.
+ */
+@Data
+public class CreateInboxBroadcastRequest {
+
+    /**
+     * Users to post the message to. Either users or campaign ID must be specified.
+     */
+    @Size(max = 100_000)
+    @Schema(description = "Users to post the message to. Either users or campaign ID must be specified.")
+    @ToString.Exclude
+    private List<@NotNull @Size(min = 1, max = 255) String> userIds = new ArrayList<>();
+
+    /**
+     * Campaign whose users the message is posted to. Either users or campaign ID must be specified.
+     */
+    @Schema(description = "Campaign whose users the message is posted to. Either users or campaign ID must be specified.")
+    private Long campaignId;
+
+    @NotNull
+    @Schema(type = "string", example = "text")
+    private MessageType type;
+
+    @NotNull
+    @Size(min = 8, max = 255)
+    @Schema(type = "string", example = "Example subject")
+    private String subject;
+
+    @NotNull
+    @Size(min = 8, max = 255)
+    @Schema(type = "string", example = "Example summary")
+    private String summary;
+
+    @NotNull
+    @Size(min = 8, max = 65536)
+    @Schema(type = "string", example = "Example message body")
+    @ToString.Exclude
+    private String body;
+
+    @NotNull
+    @NotEmpty
+    private List<@NotNull @Pattern(regexp="^[a-zA-Z0-9_-]{3,255}$") String> applications = new ArrayList<>();
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.response;
+
+import io.getlime.push.model.entity.DeviceBulkItemResult;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response object for bulk device operations, results are ordered by the item index in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceBulkResponse {
+
+    /**
+     * Results of individual items.
+     */
+    @Schema(description = "Results of individual items, ordered by the item index in the request.")
+    private List<DeviceBulkItemResult> results = new ArrayList<>();
+
+}
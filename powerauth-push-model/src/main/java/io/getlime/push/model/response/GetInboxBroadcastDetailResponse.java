@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.response;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Response object with the state and progress of an inbox broadcast.
+ */
+@Data
+public class GetInboxBroadcastDetailResponse {
+
+    /**
+     * State of the inbox broadcast.
+     */
+    public enum State {
+        /**
+         * Broadcast is waiting to be processed.
+         */
+        QUEUED,
+        /**
+         * Messages are being posted.
+         */
+        RUNNING,
+        /**
+         * All messages were posted.
+         */
+        COMPLETED,
+        /**
+         * Broadcast failed, messages posted before the failure are kept.
+         */
+        FAILED
+    }
+
+    private String id;
+    private State state;
+
+    private long totalCount;
+    private long postedCount;
+    private String errorMessage;
+    private Date timestampCreated;
+    private Date timestampFinished;
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.response;
+
+import io.getlime.push.model.entity.ListOfInboxMessages;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response object for cursor based listing of messages in inbox.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInboxMessageListResponse {
+
+    /**
+     * Messages on the page, ordered from the newest.
+     */
+    private ListOfInboxMessages messages = new ListOfInboxMessages();
+
+    /**
+     * Cursor to be passed as the {@code after} parameter to fetch the next page, {@code null} if there are no more messages.
+     */
+    @Schema(description = "Cursor to be passed as the 'after' parameter to fetch the next page, null if there are no more messages.")
+    private String nextCursor;
+
+}
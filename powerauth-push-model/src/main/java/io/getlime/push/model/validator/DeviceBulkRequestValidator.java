@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.model.validator;
+
+import java.util.List;
+
+/**
+ * Validator of the envelope of bulk device requests. Individual items are validated separately, so that an invalid
+ * item is reported in the item result and does not fail the whole bulk.
+ */
+public class DeviceBulkRequestValidator {
+
+    /**
+     * Maximum number of items in a single bulk request.
+     */
+    public static final int MAX_ITEMS = 10_000;
+
+    /**
+     * Validate list of items of a bulk device request.
+     *
+     * @param devices Items to be validated.
+     * @return Error message, or null in case of no error.
+     */
+    public static String validate(List<?> devices) {
+        if (devices == null) {
+            return "Devices must not be null.";
+        }
+        if (devices.isEmpty()) {
+            return "There are no devices in the request.";
+        }
+        if (devices.size() > MAX_ITEMS) {
+            return "Too many devices in the request - do not send more than " + MAX_ITEMS + " devices at once.";
+        }
+        return null;
+    }
+
+}
@@ -19,6 +19,7 @@ import org.springframework.batch.core.configuration.annotation.EnableBatchProces
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Spring Boot main class
@@ -26,6 +27,7 @@ import org.springframework.retry.annotation.EnableRetry;
 @SpringBootApplication
 @EnableBatchProcessing
 @EnableRetry
+@EnableScheduling
 public class PowerAuthPushServerJavaApplication {
 
     /**
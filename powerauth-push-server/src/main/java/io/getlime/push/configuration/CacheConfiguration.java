@@ -16,10 +16,14 @@
 
 package io.getlime.push.configuration;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import io.getlime.push.service.AppRelatedPushClient;
+import io.getlime.push.service.ActivationStatusService.ActivationStatusDetail;
 import io.getlime.push.service.AppRelatedPushClientCacheLoader;
+import io.getlime.push.service.InboxUnreadCountService.UnreadCount;
+import io.getlime.push.service.InboxUnreadCountService.UnreadCountKey;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -53,4 +57,56 @@ public class CacheConfiguration {
                 .build(cacheLoader);
     }
 
+    /**
+     * Configure short-lived cache of activation statuses used during device registration.
+     *
+     * @return cache of activation statuses keyed by activation ID
+     */
+    @Bean
+    public Cache<String, ActivationStatusDetail> activationStatusCache(
+            @Value("${powerauth.push.service.registration.activationStatus.cache.expireAfterWrite:5s}") final Duration expireAfterWrite,
+            @Value("${powerauth.push.service.registration.activationStatus.cache.maximumSize:10000}") final long maximumSize) {
+
+        logger.info("Initializing activation status cache with expireAfterWrite={}, maximumSize={}", expireAfterWrite, maximumSize);
+        return Caffeine.newBuilder()
+                .expireAfterWrite(expireAfterWrite)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Configure local cache of unread inbox message counters.
+     *
+     * @return cache of unread counters keyed by user ID and app ID
+     */
+    @Bean
+    public Cache<UnreadCountKey, UnreadCount> inboxUnreadCountCache(
+            @Value("${powerauth.push.service.inbox.unreadCount.cache.expireAfterWrite:60s}") final Duration expireAfterWrite,
+            @Value("${powerauth.push.service.inbox.unreadCount.cache.maximumSize:100000}") final long maximumSize) {
+
+        logger.info("Initializing inbox unread count cache with expireAfterWrite={}, maximumSize={}", expireAfterWrite, maximumSize);
+        return Caffeine.newBuilder()
+                .expireAfterWrite(expireAfterWrite)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Prepare a cache of deduplicated inbox message bodies. The bodies are immutable, so no expiration after write is needed.
+     * @param expireAfterAccess expiration of a body which is not read
+     * @param maximumSize maximum number of cached bodies
+     * @return cache of inbox message bodies keyed by body hash
+     */
+    @Bean
+    public Cache<String, String> inboxBodyCache(
+            @Value("${powerauth.push.service.inbox.body.cache.expireAfterAccess:1h}") final Duration expireAfterAccess,
+            @Value("${powerauth.push.service.inbox.body.cache.maximumSize:1000}") final long maximumSize) {
+
+        logger.info("Initializing inbox body cache with expireAfterAccess={}, maximumSize={}", expireAfterAccess, maximumSize);
+        return Caffeine.newBuilder()
+                .expireAfterAccess(expireAfterAccess)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
 }
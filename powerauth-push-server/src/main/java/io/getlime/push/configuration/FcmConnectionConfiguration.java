@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Configuration of connections to the FCM server shared by the FCM clients of all applications.
+ */
+@Configuration
+@Slf4j
+public class FcmConnectionConfiguration {
+
+    /**
+     * Configure connection provider of the FCM clients.
+     * <p>
+     * With HTTP/2 used, push messages are sent as concurrent streams multiplexed over a few long-lived
+     * connections, the pool is limited by {@code powerauth.push.service.fcm.http2.maxConnections}. HTTP/2 is
+     * negotiated without a fallback to HTTP/1.1, so that the pool never holds HTTP/1.1 connections capped by the
+     * HTTP/2 limit. Otherwise, the pool is limited by {@code powerauth.push.service.fcm.maxConnections}. The pool
+     * metrics are published with the prefix {@code reactor.netty.connection.provider} and tag {@code name=fcm}.
+     *
+     * @return connection provider of the FCM clients
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider fcmConnectionProvider(
+            final PushServiceConfiguration pushServiceConfiguration,
+            @Value("${powerauth.push.service.fcm.maxConnections:500}") final int maxConnections,
+            @Value("${powerauth.push.service.fcm.http2.maxConnections:4}") final int http2MaxConnections,
+            @Value("${powerauth.push.service.fcm.http2.maxConcurrentStreams:100}") final long http2MaxConcurrentStreams,
+            @Value("${powerauth.push.service.fcm.max-idle-time:200s}") final Duration maxIdleTime) {
+
+        final ConnectionProvider.Builder builder = ConnectionProvider.builder("fcm")
+                .maxIdleTime(maxIdleTime)
+                .metrics(true);
+        if (isHttp2Used(pushServiceConfiguration)) {
+            logger.info("Initializing FCM connection provider with HTTP/2, maxConnections={}, maxConcurrentStreams={}, maxIdleTime={}",
+                    http2MaxConnections, http2MaxConcurrentStreams, maxIdleTime);
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(http2MaxConnections)
+                    .maxConcurrentStreams(http2MaxConcurrentStreams)
+                    .build());
+        } else {
+            logger.info("Initializing FCM connection provider with HTTP/1.1, maxConnections={}, maxIdleTime={}", maxConnections, maxIdleTime);
+            builder.maxConnections(maxConnections);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Whether HTTP/2 is used for connections to the FCM server. HTTP/2 is used when enabled and the FCM URL uses TLS,
+     * HTTP/1.1 is used otherwise.
+     *
+     * @param pushServiceConfiguration Push service configuration.
+     * @return {@code true} in case HTTP/2 is used, {@code false} for HTTP/1.1.
+     */
+    public static boolean isHttp2Used(final PushServiceConfiguration pushServiceConfiguration) {
+        final String fcmSendMessageUrl = pushServiceConfiguration.getFcmSendMessageUrl();
+        return pushServiceConfiguration.isFcmHttp2Enabled()
+                && fcmSendMessageUrl != null
+                && fcmSendMessageUrl.regionMatches(true, 0, "https:", 0, 6);
+    }
+
+}
@@ -137,6 +137,18 @@ public class PushServiceConfiguration {
     @Value("${powerauth.push.service.fcm.sendMessageUrl}")
     private String fcmSendMessageUrl;
 
+    /**
+     * Whether HTTP/2 is negotiated with the FCM server, HTTP/1.1 is used otherwise.
+     */
+    @Value("${powerauth.push.service.fcm.http2.enabled}")
+    private boolean fcmHttp2Enabled;
+
+    /**
+     * Whether TCP keep-alive is enabled for connections to the FCM server.
+     */
+    @Value("${powerauth.push.service.fcm.keepAlive.enabled}")
+    private boolean fcmKeepAliveEnabled;
+
     /**
      * Flag indicating if proxy is enabled for HMS communication.
      */
@@ -198,18 +210,72 @@ public class PushServiceConfiguration {
     @Value("${powerauth.push.service.message.storage.enabled}")
     private boolean messageStorageEnabled;
 
+    /**
+     * Whether stored message bodies are deduplicated by hash.
+     */
+    @Value("${powerauth.push.service.message.storage.deduplication.enabled}")
+    private boolean messageStorageDeduplicationEnabled;
+
+    /**
+     * Maximum number of messages of a streamed request waiting for the provider response in synchronous mode.
+     */
+    @Value("${powerauth.push.service.message.stream.maxPending}")
+    private int messageStreamMaxPending;
+
+    /**
+     * Whether push messages sent in asynchronous mode are appended to the outbox and sent by the outbox dispatchers.
+     */
+    @Value("${powerauth.push.service.outbox.enabled}")
+    private boolean outboxEnabled;
+
+    /**
+     * Number of push messages appended to or taken from the outbox in a single batch.
+     */
+    @Value("${powerauth.push.service.outbox.batchSize}")
+    private int outboxBatchSize;
+
+    /**
+     * Maximum number of attempts to send a push message from the outbox before it is marked as failed.
+     */
+    @Value("${powerauth.push.service.outbox.maxAttempts}")
+    private int outboxMaxAttempts;
+
+    /**
+     * Duration after which a push message claimed from the outbox and not sent may be claimed again.
+     */
+    @Value("${powerauth.push.service.outbox.claimTimeout}")
+    private Duration outboxClaimTimeout;
+
     /**
      *  Whether multiple activations are enabled per registered device.
      */
     @Value("${powerauth.push.service.registration.multipleActivations.enabled}")
     private boolean registrationOfMultipleActivationsEnabled;
 
+    /**
+     * Whether device registration uses a single statement upsert, if supported by the database.
+     */
+    @Value("${powerauth.push.service.registration.upsert.enabled}")
+    private boolean registrationUpsertEnabled;
+
+    /**
+     * Number of items of a bulk device request processed in a single transaction using a JDBC batch.
+     */
+    @Value("${powerauth.push.service.registration.bulk.batchSize}")
+    private int registrationBulkBatchSize;
+
     /**
      * FCM connect timeout in milliseconds.
      */
     @Value("${powerauth.push.service.fcm.connect.timeout}")
     private int fcmConnectTimeout;
 
+    /**
+     * FCM maximum duration allowed between each network-level read operations.
+     */
+    @Value("${powerauth.push.service.fcm.response.timeout}")
+    private Duration fcmResponseTimeout;
+
     /**
      * APNS connect timeout in milliseconds.
      */
@@ -20,13 +20,18 @@ import io.getlime.core.rest.model.base.response.ObjectResponse;
 import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.push.errorhandling.exceptions.AppNotFoundException;
 import io.getlime.push.errorhandling.exceptions.InboxMessageNotFoundException;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.base.PagedResponse;
 import io.getlime.push.model.entity.ListOfInboxMessages;
+import io.getlime.push.model.request.CreateInboxBroadcastRequest;
 import io.getlime.push.model.request.CreateInboxMessageRequest;
 import io.getlime.push.model.request.ReadAllInboxMessagesRequest;
 import io.getlime.push.model.request.ReadInboxMessageRequest;
+import io.getlime.push.model.response.GetInboxBroadcastDetailResponse;
 import io.getlime.push.model.response.GetInboxMessageCountResponse;
 import io.getlime.push.model.response.GetInboxMessageDetailResponse;
+import io.getlime.push.model.response.GetInboxMessageListResponse;
+import io.getlime.push.service.InboxBroadcastService;
 import io.getlime.push.service.InboxService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -37,6 +42,8 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.util.Arrays;
@@ -52,15 +59,18 @@ import java.util.Arrays;
 public class InboxController {
 
     private final InboxService inboxService;
+    private final InboxBroadcastService inboxBroadcastService;
 
     /**
      * Default constructor of the controller with inbox service injection.
      *
      * @param inboxService Inbox service.
+     * @param inboxBroadcastService Inbox broadcast service.
      */
     @Autowired
-    public InboxController(InboxService inboxService) {
+    public InboxController(InboxService inboxService, InboxBroadcastService inboxBroadcastService) {
         this.inboxService = inboxService;
+        this.inboxBroadcastService = inboxBroadcastService;
     }
 
     /**
@@ -77,6 +87,35 @@ public class InboxController {
         return new ObjectResponse<>(inboxService.postMessage(request.getRequestObject()));
     }
 
+    /**
+     * Post a message to the inbox of many users in the background.
+     *
+     * @param request Request with a posted message detail and users or a campaign.
+     * @return Response with the broadcast detail.
+     * @throws AppNotFoundException In case an application for which this message was intended was not found.
+     * @throws PushServerException In case the request is invalid.
+     */
+    @PostMapping("messages/broadcast")
+    @Operation(summary = "Post a message to inbox of many users", description = "Post a message to inbox of users listed in the request or users of a campaign, the messages are posted in the background")
+    public ObjectResponse<GetInboxBroadcastDetailResponse> postBroadcast(
+            @Valid @RequestBody ObjectRequest<CreateInboxBroadcastRequest> request) throws AppNotFoundException, PushServerException {
+        return new ObjectResponse<>(inboxBroadcastService.postBroadcast(request.getRequestObject()));
+    }
+
+    /**
+     * Fetch state and progress of a broadcast.
+     *
+     * @param id Broadcast ID.
+     * @return Detail of the broadcast.
+     * @throws PushServerException In case the broadcast was not found.
+     */
+    @GetMapping("messages/broadcast/detail")
+    @Operation(summary = "Get a broadcast detail", description = "Fetch state and progress of a broadcast of an inbox message")
+    public ObjectResponse<GetInboxBroadcastDetailResponse> fetchBroadcastDetail(
+            @NotNull @RequestParam("id") String id) throws PushServerException {
+        return new ObjectResponse<>(inboxBroadcastService.fetchBroadcastDetail(id));
+    }
+
     /**
      * Get the list of messages.
      *
@@ -97,6 +136,29 @@ public class InboxController {
         return new PagedResponse<>(inboxService.fetchMessageListForUser(userId, Arrays.asList(applications.split(",")), onlyUnread, pageable), pageable.getPageNumber(), pageable.getPageSize());
     }
 
+    /**
+     * Get the list of messages using keyset pagination.
+     *
+     * @param userId User ID.
+     * @param applications Applications to fetch the detail for.
+     * @param onlyUnread Flag indicating if the message was read.
+     * @param after Cursor of the next page returned with the previous page, not specified for the first page.
+     * @param size Page size.
+     * @return Response with the messages and the cursor of the next page.
+     * @throws AppNotFoundException In case an application specified in the request intended was not found.
+     * @throws PushServerException In case the cursor is invalid.
+     */
+    @GetMapping("messages/list/cursor")
+    @Operation(summary = "List messages in inbox using a cursor", description = "List messages in inbox of a user, the next page is requested using the cursor returned with the previous page")
+    public ObjectResponse<GetInboxMessageListResponse> fetchMessageListForUserByCursor(
+            @NotNull @Size(min = 1, max = 255) @RequestParam("userId") String userId,
+            @NotNull @Size(min = 1, max = 255) @RequestParam("applications") @Schema(type = "string", example = "app-id-01,app-id-02") String applications,
+            @RequestParam(value = "onlyUnread", required = false, defaultValue = "false") boolean onlyUnread,
+            @Size(max = 64) @RequestParam(value = "after", required = false) @Schema(type = "string", example = "1700000000000,42") String after,
+            @Min(1) @Max(1000) @RequestParam(value = "size", required = false, defaultValue = "20") int size) throws AppNotFoundException, PushServerException {
+        return new ObjectResponse<>(inboxService.fetchMessageListForUserByCursor(userId, Arrays.asList(applications.split(",")), onlyUnread, after, size));
+    }
+
     /**
      * Obtain unread message count for a user.
      * @param userId User ID.
@@ -16,12 +16,11 @@
 package io.getlime.push.controller.rest;
 
 import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
 import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
-import io.getlime.push.model.request.CreateDeviceForActivationsRequest;
-import io.getlime.push.model.request.CreateDeviceRequest;
-import io.getlime.push.model.request.DeleteDeviceRequest;
-import io.getlime.push.model.request.UpdateDeviceStatusRequest;
+import io.getlime.push.model.request.*;
+import io.getlime.push.model.response.DeviceBulkResponse;
 import io.getlime.push.service.PushDeviceService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.AllArgsConstructor;
@@ -99,4 +98,46 @@ public class PushDeviceController {
         return pushDeviceService.deleteDevice(request.getRequestObject());
     }
 
+    /**
+     * Create or update a bulk of device registrations.
+     * @param request Bulk device registration request.
+     * @return Results of individual registrations.
+     * @throws PushServerException In case request object is invalid.
+     */
+    @PostMapping(value = "create/bulk")
+    @Operation(summary = "Create a bulk of devices",
+            description = "Create or update up to 10 000 device registrations at once. Each item has the same format as the request " +
+                    "of the create device endpoint. Items are stored in batches and the result of each item is reported separately.")
+    public ObjectResponse<DeviceBulkResponse> createDevicesBulk(@RequestBody ObjectRequest<CreateDeviceBulkRequest> request) throws PushServerException {
+        return new ObjectResponse<>(pushDeviceService.createDevicesBulk(request.getRequestObject()));
+    }
+
+    /**
+     * Update activation status for a bulk of device registrations.
+     * @param request Bulk status update request.
+     * @return Results of individual status updates.
+     * @throws PushServerException In case request object is invalid.
+     */
+    @RequestMapping(value = "status/update/bulk", method = {RequestMethod.POST, RequestMethod.PUT})
+    @Operation(summary = "Update status of a bulk of devices",
+            description = "Update the status of up to 10 000 device registrations at once, based on the associated activation IDs. " +
+                    "The result of each item is reported separately.")
+    public ObjectResponse<DeviceBulkResponse> updateDeviceStatusesBulk(@RequestBody ObjectRequest<UpdateDeviceStatusBulkRequest> request) throws PushServerException {
+        return new ObjectResponse<>(pushDeviceService.updateDeviceStatusesBulk(request.getRequestObject()));
+    }
+
+    /**
+     * Remove a bulk of device registrations.
+     * @param request Bulk removal request.
+     * @return Results of individual removals.
+     * @throws PushServerException In case request object is invalid.
+     */
+    @RequestMapping(value = "delete/bulk", method = {RequestMethod.POST, RequestMethod.DELETE})
+    @Operation(summary = "Delete a bulk of devices",
+            description = "Remove up to 10 000 devices identified by application ID and device token at once. " +
+                    "If device identifiers don't match, nothing happens for given item.")
+    public ObjectResponse<DeviceBulkResponse> deleteDevicesBulk(@RequestBody ObjectRequest<DeleteDeviceBulkRequest> request) throws PushServerException {
+        return new ObjectResponse<>(pushDeviceService.deleteDevicesBulk(request.getRequestObject()));
+    }
+
 }
@@ -15,6 +15,9 @@
  */
 package io.getlime.push.controller.rest;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import io.getlime.core.rest.model.base.request.ObjectRequest;
 import io.getlime.core.rest.model.base.response.ObjectResponse;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
@@ -30,11 +33,16 @@ import io.swagger.v3.oas.annotations.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -49,14 +57,17 @@ public class PushMessageController {
     private static final Logger logger = LoggerFactory.getLogger(PushMessageController.class);
 
     private final PushMessageSenderService pushMessageSenderService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor with push message sender service.
      * @param pushMessageSenderService Push message sender service.
+     * @param objectMapper Object mapper.
      */
     @Autowired
-    public PushMessageController(PushMessageSenderService pushMessageSenderService) {
+    public PushMessageController(PushMessageSenderService pushMessageSenderService, ObjectMapper objectMapper) {
         this.pushMessageSenderService = pushMessageSenderService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -129,4 +140,42 @@ public class PushMessageController {
         logger.info("The sendPushMessageBatch request succeeded, application ID: {}", requestObject.getAppId());
         return new ObjectResponse<>(result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Send a stream of push messages. The request body contains push messages in the newline delimited JSON format,
+     * the messages are parsed and sent one by one while the request body is being received.
+     *
+     * @param appId Application ID.
+     * @param mode Mode of push notification sending.
+     * @param inputStream Request body with push messages, one message per line.
+     * @return Response with message sending results.
+     * @throws PushServerException In case request is invalid.
+     */
+    @PostMapping(value = "stream/send", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Send a stream of push messages",
+                  description = "Send push messages to users using given application ID. Request body contains one message per line in the newline delimited JSON format. " +
+                          "Message and user definition is same as in \"send a single push message\" method. Messages are sent while the request body is being received, " +
+                          "in case an invalid message is found, the messages preceding it have already been sent.")
+    public ObjectResponse<BasePushMessageSendResult> sendPushMessageStream(@RequestParam String appId, @RequestParam(defaultValue = "SYNCHRONOUS") Mode mode, InputStream inputStream) throws PushServerException {
+        if (!StringUtils.hasText(appId)) {
+            throw new PushServerException("App ID must not be null.");
+        }
+        logger.info("Received sendPushMessageStream request, application ID: {}", appId);
+        final BasePushMessageSendResult result;
+        try (final MappingIterator<PushMessage> pushMessages = objectMapper.readerFor(PushMessage.class).readValues(inputStream)) {
+            result = pushMessageSenderService.sendPushMessage(appId, mode, pushMessages);
+        } catch (IOException ex) {
+            throw new PushServerException("Failed reading push message stream", ex);
+        } catch (RuntimeException ex) {
+            // Mapping iterator wraps parsing errors into unchecked exceptions
+            if (ex instanceof RuntimeJsonMappingException || ex.getCause() instanceof IOException) {
+                logger.warn("Invalid push message stream, application ID: {}, error: {}", appId, ex.getMessage());
+                throw new PushServerException("Invalid push message in stream", ex);
+            }
+            throw ex;
+        }
+        logger.info("The sendPushMessageStream request succeeded, application ID: {}", appId);
+        return new ObjectResponse<>(result);
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.errorhandling.exceptions;
+
+/**
+ * Exception for case when a push message was not sent, because the capacity for sending push messages was not
+ * granted in time or the wait for the capacity was interrupted. The message itself is valid and it may be sent again.
+ */
+public class PushCapacityExhaustedException extends PushServerException {
+
+    /**
+     * Constructor with message.
+     * @param message Message.
+     */
+    public PushCapacityExhaustedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor with message and cause.
+     * @param message Message.
+     * @param cause Cause.
+     */
+    public PushCapacityExhaustedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -17,10 +17,13 @@
 package io.getlime.push.repository;
 
 import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.aggregate.AppCredentialsVersion;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,4 +50,21 @@ public interface AppCredentialsRepository extends CrudRepository<AppCredentialsE
      */
     List<AppCredentialsEntity> findAllByAppIdIn(List<String> appIds);
 
+    /**
+     * Find entity IDs of app credentials for provided collection of app IDs.
+     * The credentials themselves (private keys) are not loaded.
+     * @param appIds App IDs.
+     * @return List of app credentials entity IDs.
+     */
+    @Query("SELECT a.id FROM AppCredentialsEntity a WHERE a.appId IN :appIds")
+    List<Long> findIdsByAppIdIn(Collection<String> appIds);
+
+    /**
+     * Find app IDs together with the last update timestamp of all app credentials.
+     * The credentials themselves (private keys) are not loaded.
+     * @return List of app credentials versions.
+     */
+    @Query("SELECT new io.getlime.push.repository.model.aggregate.AppCredentialsVersion(a.appId, a.timestampLastUpdated) FROM AppCredentialsEntity a")
+    List<AppCredentialsVersion> findAllVersions();
+
 }
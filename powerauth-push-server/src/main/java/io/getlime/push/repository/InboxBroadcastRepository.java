@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository;
+
+import io.getlime.push.repository.model.InboxBroadcastEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository for accessing inbox broadcasts.
+ * <p>
+ * Unfinished broadcasts are claimed by a single node until the claim expires, the progress is updated only by the node
+ * which posted messages from the expected position.
+ */
+@Repository
+public interface InboxBroadcastRepository extends CrudRepository<InboxBroadcastEntity, String> {
+
+    /**
+     * Find IDs of unfinished broadcasts which are not claimed or whose claim expired.
+     * @param claimExpiredBefore Timestamp before which the claim expires.
+     * @param limit Maximum number of IDs.
+     * @return IDs of the broadcasts, the oldest broadcast first.
+     */
+    @Query("SELECT b.id FROM InboxBroadcastEntity b WHERE b.timestampFinished IS NULL " +
+            "AND (b.timestampClaimed IS NULL OR b.timestampClaimed < :claimExpiredBefore) ORDER BY b.timestampCreated")
+    List<String> findClaimableIds(Date claimExpiredBefore, Limit limit);
+
+    /**
+     * Claim an unfinished broadcast which is not claimed or whose claim expired.
+     * @param id Broadcast ID.
+     * @param state State of the claimed broadcast.
+     * @param timestampClaimed Timestamp of the claim.
+     * @param claimExpiredBefore Timestamp before which the claim expires.
+     * @return Number of claimed broadcasts, zero in case the broadcast is claimed by another node or finished.
+     */
+    @Modifying
+    @Query("UPDATE InboxBroadcastEntity b SET b.state = :state, b.timestampClaimed = :timestampClaimed " +
+            "WHERE b.id = :id AND b.timestampFinished IS NULL " +
+            "AND (b.timestampClaimed IS NULL OR b.timestampClaimed < :claimExpiredBefore)")
+    int claim(String id, InboxBroadcastEntity.State state, Date timestampClaimed, Date claimExpiredBefore);
+
+    /**
+     * Move an unfinished broadcast from the expected position and extend its claim.
+     * @param id Broadcast ID.
+     * @param expectedPosition Position the messages were posted from.
+     * @param resumePosition Position the broadcast resumes from.
+     * @param postedCount Number of posted messages.
+     * @param timestampClaimed Timestamp of the claim.
+     * @return Number of updated broadcasts, zero in case the broadcast was moved by another node or finished.
+     */
+    @Modifying
+    @Query("UPDATE InboxBroadcastEntity b SET b.resumePosition = :resumePosition, b.postedCount = b.postedCount + :postedCount, " +
+            "b.timestampClaimed = :timestampClaimed " +
+            "WHERE b.id = :id AND b.resumePosition = :expectedPosition AND b.timestampFinished IS NULL")
+    int updateProgress(String id, long expectedPosition, long resumePosition, long postedCount, Date timestampClaimed);
+
+    /**
+     * Finish a broadcast at the expected position.
+     * @param id Broadcast ID.
+     * @param expectedPosition Position the broadcast was processed to.
+     * @param state Final state of the broadcast.
+     * @param errorMessage Error message in case the broadcast failed.
+     * @param timestampFinished Timestamp the broadcast was finished.
+     * @return Number of finished broadcasts, zero in case the broadcast was moved by another node or finished.
+     */
+    @Modifying
+    @Query("UPDATE InboxBroadcastEntity b SET b.state = :state, b.errorMessage = :errorMessage, b.timestampFinished = :timestampFinished " +
+            "WHERE b.id = :id AND b.resumePosition = :expectedPosition AND b.timestampFinished IS NULL")
+    int finish(String id, long expectedPosition, InboxBroadcastEntity.State state, String errorMessage, Date timestampFinished);
+
+    /**
+     * Delete broadcasts finished before given timestamp.
+     * @param timestampFinished Timestamp before which the broadcasts were finished.
+     * @return Number of deleted broadcasts.
+     */
+    @Modifying
+    @Query("DELETE FROM InboxBroadcastEntity b WHERE b.timestampFinished < :timestampFinished")
+    int deleteFinishedBefore(Date timestampFinished);
+
+}
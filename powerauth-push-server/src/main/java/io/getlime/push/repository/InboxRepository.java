@@ -18,6 +18,8 @@ package io.getlime.push.repository;
 
 import io.getlime.push.repository.model.AppCredentialsEntity;
 import io.getlime.push.repository.model.InboxMessageEntity;
+import io.getlime.push.repository.model.aggregate.InboxMessageKey;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -25,6 +27,7 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -38,31 +41,45 @@ import java.util.Optional;
 public interface InboxRepository extends PagingAndSortingRepository<InboxMessageEntity, String>, CrudRepository<InboxMessageEntity, String> {
 
     /**
-     * Find all messages for given user ID.
+     * Find keys of messages for given user ID and applications, ordered from the newest message.
+     * The messages are joined with applications directly, only the keys are selected to allow use of the index
+     * on push_inbox(user_id, timestamp_created, id), entities are loaded by {@link #findAllByIdInOrderByTimestampCreatedDescIdDesc(Collection)}.
      * @param userId User ID.
-     * @param applicationIds Application identifiers.
-     * @param pageable Paging parameters.
-     * @return List of messages for user ID.
+     * @param appCredentialsIds Application credentials entity identifiers.
+     * @param onlyUnread Should the query return only messages that are not read?
+     * @param pageable Paging parameters, the sort is ignored.
+     * @return List of message keys.
      */
-    @Query("SELECT o FROM InboxMessageEntity o WHERE o.id IN (" +
-            "SELECT DISTINCT o1.id FROM InboxMessageEntity o1 INNER JOIN o1.applications a " +
-            "WHERE o1.userId = :userId AND a.appId IN :applicationIds" +
-            ") ORDER BY o.timestampCreated DESC")
-    List<InboxMessageEntity> findInboxMessagesForUserAndApplications(String userId, List<String> applicationIds, Pageable pageable);
+    @Query("SELECT DISTINCT new io.getlime.push.repository.model.aggregate.InboxMessageKey(o.id, o.timestampCreated) " +
+            "FROM InboxMessageEntity o INNER JOIN o.applications a " +
+            "WHERE o.userId = :userId AND a.id IN :appCredentialsIds AND (:onlyUnread = false OR o.isRead = false) " +
+            "ORDER BY o.timestampCreated DESC, o.id DESC")
+    List<InboxMessageKey> findInboxMessageKeys(String userId, Collection<Long> appCredentialsIds, boolean onlyUnread, Pageable pageable);
 
     /**
-     * Find messages for given user ID in a given read state.
+     * Find keys of messages for given user ID and applications created before the message identified by the cursor,
+     * ordered from the newest message.
      * @param userId User ID.
-     * @param applicationIds Application identifiers.
-     * @param read Should the query return read messages, or those that are not read?
-     * @param pageable Paging parameters.
-     * @return List of messages for user ID with provided read state.
+     * @param appCredentialsIds Application credentials entity identifiers.
+     * @param onlyUnread Should the query return only messages that are not read?
+     * @param timestampCreated Timestamp of the last message of the previous page.
+     * @param id Entity ID of the last message of the previous page.
+     * @param limit Maximum number of returned keys.
+     * @return List of message keys.
      */
-    @Query("SELECT o FROM InboxMessageEntity o WHERE o.id IN (" +
-            "SELECT DISTINCT o1.id FROM InboxMessageEntity o1 INNER JOIN o1.applications a " +
-            "WHERE o1.userId = :userId AND a.appId IN :applicationIds AND o1.isRead = :read" +
-            ") ORDER BY o.timestampCreated DESC")
-    List<InboxMessageEntity> findAllByUserIdAndApplicationsContainingAndReadOrderByTimestampCreatedDesc(String userId, List<String> applicationIds, boolean read, Pageable pageable);
+    @Query("SELECT DISTINCT new io.getlime.push.repository.model.aggregate.InboxMessageKey(o.id, o.timestampCreated) " +
+            "FROM InboxMessageEntity o INNER JOIN o.applications a " +
+            "WHERE o.userId = :userId AND a.id IN :appCredentialsIds AND (:onlyUnread = false OR o.isRead = false) " +
+            "AND (o.timestampCreated < :timestampCreated OR (o.timestampCreated = :timestampCreated AND o.id < :id)) " +
+            "ORDER BY o.timestampCreated DESC, o.id DESC")
+    List<InboxMessageKey> findInboxMessageKeysAfter(String userId, Collection<Long> appCredentialsIds, boolean onlyUnread, Date timestampCreated, Long id, Limit limit);
+
+    /**
+     * Find messages with given entity IDs, ordered from the newest message.
+     * @param ids Entity IDs.
+     * @return List of messages.
+     */
+    List<InboxMessageEntity> findAllByIdInOrderByTimestampCreatedDescIdDesc(Collection<Long> ids);
 
     /**
      * Find first message with given ID.
@@ -71,6 +88,24 @@ public interface InboxRepository extends PagingAndSortingRepository<InboxMessage
      */
     Optional<InboxMessageEntity> findFirstByInboxId(String inboxId);
 
+    /**
+     * Find app IDs of applications the message is posted for.
+     * Only the app IDs are selected, the app credentials (private keys) are not loaded.
+     * @param id Inbox message entity ID.
+     * @return List of app IDs.
+     */
+    @Query("SELECT a.appId FROM InboxMessageEntity o INNER JOIN o.applications a WHERE o.id = :id")
+    List<String> findAppIdsByInboxMessageId(Long id);
+
+    /**
+     * Find app IDs of all applications of unread messages for given user ID and application.
+     * @param userId User ID.
+     * @param app Application.
+     * @return List of distinct app IDs.
+     */
+    @Query("SELECT DISTINCT a.appId FROM InboxMessageEntity i INNER JOIN i.applications a WHERE i.userId = :userId AND :app MEMBER OF i.applications AND i.isRead = false")
+    List<String> findAppIdsOfUnreadMessages(String userId, AppCredentialsEntity app);
+
     /**
      * Return how many there are records for given user ID with provided read state.
      * @param userId User ID.
@@ -17,6 +17,7 @@
 package io.getlime.push.repository;
 
 import io.getlime.push.repository.model.PushCampaignUserEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -52,6 +53,23 @@ public interface PushCampaignUserRepository extends PagingAndSortingRepository<P
      */
     List<PushCampaignUserEntity> findAllByCampaignId(Long campaignId, Pageable pageable);
 
+    /**
+     * Find users who are added to given campaign with the entity ID greater than the given one, ordered by the entity ID.
+     * Used for keyset pagination over all users of a campaign.
+     * @param campaignId Campaign ID.
+     * @param id Entity ID of the last user of the previous page.
+     * @param limit Maximum number of returned users.
+     * @return List of users who are added in given campaign.
+     */
+    List<PushCampaignUserEntity> findByCampaignIdAndIdGreaterThanOrderByIdAsc(Long campaignId, Long id, Limit limit);
+
+    /**
+     * Count users who are added to given campaign.
+     * @param campaignId Campaign ID.
+     * @return Count of users.
+     */
+    long countByCampaignId(Long campaignId);
+
     /**
      * Delete all users who are associated with given campaign.
      * @param campaignId Campaign ID.
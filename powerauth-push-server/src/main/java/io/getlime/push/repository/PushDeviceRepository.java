@@ -17,6 +17,8 @@
 package io.getlime.push.repository;
 
 import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -55,6 +57,13 @@ public interface PushDeviceRepository extends CrudRepository<PushDeviceRegistrat
      */
     List<PushDeviceRegistrationEntity> findByActivationId(String activationId);
 
+    /**
+     * Check whether a device registration exists for given activation ID.
+     * @param activationId Activation ID.
+     * @return True if a device registration exists, false otherwise.
+     */
+    boolean existsByActivationId(String activationId);
+
     /**
      * Find all device registrations by given user ID and app ID. This list represents all devices that a single user
      * has registered.
@@ -81,4 +90,15 @@ public interface PushDeviceRepository extends CrudRepository<PushDeviceRegistrat
      */
     void deleteAllByAppCredentialsIdAndPushToken(Long rid, String pushToken);
 
+    /**
+     * Delete records with given app ID and push token which belong to another activation, using a single statement.
+     * @param rid Credentials database record ID.
+     * @param pushToken Push token.
+     * @param activationId Activation ID whose registration should be kept.
+     * @return Number of deleted records.
+     */
+    @Query("DELETE FROM PushDeviceRegistrationEntity d WHERE d.appCredentials.id = :rid AND d.pushToken = :pushToken AND d.activationId <> :activationId")
+    @Modifying
+    int deleteOtherActivationsByAppCredentialsIdAndPushToken(Long rid, String pushToken, String activationId);
+
 }
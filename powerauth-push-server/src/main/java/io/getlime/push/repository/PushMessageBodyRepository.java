@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository;
+
+import io.getlime.push.repository.model.PushMessageBodyEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+/**
+ * Repository for accessing deduplicated push message bodies.
+ */
+@Repository
+public interface PushMessageBodyRepository extends CrudRepository<PushMessageBodyEntity, String> {
+
+    /**
+     * Delete bodies last stored before given timestamp which are not referenced by any push message.
+     * @param timestampLastStored Timestamp before which the bodies were last stored.
+     * @return Number of deleted bodies.
+     */
+    @Modifying
+    @Query("DELETE FROM PushMessageBodyEntity b WHERE b.timestampLastStored < :timestampLastStored " +
+            "AND NOT EXISTS (SELECT m.id FROM PushMessageEntity m WHERE m.messageBodyHash = b.bodyHash)")
+    int deleteUnreferencedStoredBefore(Date timestampLastStored);
+
+}
@@ -17,10 +17,15 @@
 package io.getlime.push.repository;
 
 import io.getlime.push.repository.model.PushMessageEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -39,4 +44,23 @@ public interface PushMessageRepository extends CrudRepository<PushMessageEntity,
      * @return List of all messages with given status.
      */
     List<PushMessageEntity> findByStatus(PushMessageEntity.Status status);
+
+    /**
+     * Find IDs of the oldest push messages created before given timestamp, using index push_message_created.
+     * @param timestampCreated Timestamp before which the messages were created.
+     * @param limit Maximum number of IDs.
+     * @return IDs of push messages.
+     */
+    @Query("SELECT m.id FROM PushMessageEntity m WHERE m.timestampCreated < :timestampCreated ORDER BY m.timestampCreated")
+    List<Long> findIdsByTimestampCreatedBefore(Date timestampCreated, Limit limit);
+
+    /**
+     * Delete push messages with given IDs.
+     * @param ids IDs of push messages.
+     * @return Number of deleted messages.
+     */
+    @Modifying
+    @Query("DELETE FROM PushMessageEntity m WHERE m.id IN :ids")
+    int deleteByIdIn(Collection<Long> ids);
+
 }
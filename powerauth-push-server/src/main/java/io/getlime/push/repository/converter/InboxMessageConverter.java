@@ -19,16 +19,17 @@ package io.getlime.push.repository.converter;
 import io.getlime.push.model.entity.InboxMessage;
 import io.getlime.push.model.entity.ListOfInboxMessages;
 import io.getlime.push.model.enumeration.MessageType;
+import io.getlime.push.model.request.CreateInboxBroadcastRequest;
 import io.getlime.push.model.request.CreateInboxMessageRequest;
 import io.getlime.push.model.response.GetInboxMessageDetailResponse;
 import io.getlime.push.repository.model.AppCredentialsEntity;
 import io.getlime.push.repository.model.InboxMessageEntity;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Converter for inbox related entities.
@@ -52,25 +53,50 @@ public class InboxMessageConverter {
         if (source == null) {
             return null;
         }
+        return convert(id, userId, source.getType(), source.getSubject(), source.getSummary(), source.getBody(), apps, date);
+    }
+
+    /**
+     * Convert from API broadcast request model to database entity for a single user.
+     *
+     * @param id Random UUID identifier.
+     * @param userId User ID.
+     * @param source Broadcast request model.
+     * @param apps Apps for the model.
+     * @param date Date on which the message should be created.
+     * @return Database entity.
+     */
+    public InboxMessageEntity convert(UUID id, String userId, CreateInboxBroadcastRequest source, List<AppCredentialsEntity> apps, Date date) {
+        if (source == null) {
+            return null;
+        }
+        return convert(id, userId, source.getType(), source.getSubject(), source.getSummary(), source.getBody(), apps, date);
+    }
+
+    private static InboxMessageEntity convert(UUID id, String userId, MessageType type, String subject, String summary, String body, List<AppCredentialsEntity> apps, Date date) {
         final InboxMessageEntity destination = new InboxMessageEntity();
         destination.setInboxId(id.toString());
         destination.setUserId(userId);
         destination.setApplications(apps);
-        destination.setMessageType(source.getType().getValue());
-        destination.setSubject(source.getSubject());
-        destination.setSummary(source.getSummary());
-        destination.setBody(source.getBody());
+        destination.setMessageType(type.getValue());
+        destination.setSubject(subject);
+        destination.setSummary(summary);
+        destination.setBody(body);
         destination.setTimestampCreated(date);
         return destination;
     }
 
     /**
-     * Convert from database entity to API detail response.
+     * Convert from database entity to API detail response. The app IDs are passed separately to avoid loading
+     * the lazy applications relation including the app credentials. The body is passed separately, because it may
+     * be stored deduplicated outside the entity.
      *
      * @param source Database entity.
+     * @param appIds App IDs of applications the message is posted for.
+     * @param body Message body.
      * @return API response (detail).
      */
-    public GetInboxMessageDetailResponse convertResponse(InboxMessageEntity source) {
+    public GetInboxMessageDetailResponse convertResponse(InboxMessageEntity source, List<String> appIds, String body) {
         if (source == null) {
             return null;
         }
@@ -80,11 +106,11 @@ public class InboxMessageConverter {
         destination.setType(MessageType.fromLowerCaseString(source.getMessageType()));
         destination.setSubject(source.getSubject());
         destination.setSummary(source.getSummary());
-        destination.setBody(source.getBody());
+        destination.setBody(body);
         destination.setRead(source.isRead());
         destination.setTimestampCreated(source.getTimestampCreated());
         destination.setTimestampRead(source.getTimestampRead());
-        destination.setApplications(source.getApplications().stream().map(AppCredentialsEntity::getAppId).collect(Collectors.toList()));
+        destination.setApplications(new ArrayList<>(appIds));
         return destination;
     }
 
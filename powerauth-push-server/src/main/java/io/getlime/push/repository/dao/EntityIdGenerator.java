@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+/**
+ * Generator of IDs for entities inserted by native statements. The IDs are generated by the identifier generator
+ * of the entity, so that the native inserts share the blocks allocated by the pooled-lo optimizer with the JPA
+ * inserts, instead of fetching a sequence value which allocates a whole block for every row.
+ */
+class EntityIdGenerator {
+
+    private final EntityManager entityManager;
+    private final Class<?> entityClass;
+
+    private volatile BeforeExecutionGenerator generator;
+
+    /**
+     * Constructor with the entity manager and the entity class.
+     * @param entityManager Entity manager.
+     * @param entityClass Class of the entity with a sequence based ID.
+     */
+    EntityIdGenerator(final EntityManager entityManager, final Class<?> entityClass) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Generate the ID for a new entity, within the current transaction.
+     * @param entity New entity, or null when the entity is not instantiated.
+     * @return Generated ID.
+     */
+    Long generate(final Object entity) {
+        final SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        return (Long) resolveGenerator().generate(session, entity, null, EventType.INSERT);
+    }
+
+    private BeforeExecutionGenerator resolveGenerator() {
+        if (generator == null) {
+            generator = (BeforeExecutionGenerator) entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getMappingMetamodel()
+                    .getEntityDescriptor(entityClass)
+                    .getGenerator();
+        }
+        return generator;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import io.getlime.push.repository.InboxBroadcastRepository;
+import io.getlime.push.repository.model.InboxBroadcastEntity;
+import io.getlime.push.repository.model.InboxMessageEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Data access object for inbox broadcasts.
+ * <p>
+ * Messages of a chunk are inserted in the same transaction which moves the broadcast from the expected position, so
+ * that a broadcast resumed by another node neither loses nor duplicates messages.
+ */
+@Repository
+@Transactional
+public class InboxBroadcastDAO {
+
+    private final InboxBroadcastRepository inboxBroadcastRepository;
+    private final InboxMessageDAO inboxMessageDAO;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param inboxBroadcastRepository Inbox broadcast repository.
+     * @param inboxMessageDAO Inbox message DAO.
+     */
+    @Autowired
+    public InboxBroadcastDAO(InboxBroadcastRepository inboxBroadcastRepository, InboxMessageDAO inboxMessageDAO) {
+        this.inboxBroadcastRepository = inboxBroadcastRepository;
+        this.inboxMessageDAO = inboxMessageDAO;
+    }
+
+    /**
+     * Create a broadcast.
+     * @param broadcast Broadcast.
+     * @return Created broadcast.
+     */
+    public InboxBroadcastEntity create(final InboxBroadcastEntity broadcast) {
+        return inboxBroadcastRepository.save(broadcast);
+    }
+
+    /**
+     * Find a broadcast.
+     * @param id Broadcast ID.
+     * @return Broadcast, empty in case it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<InboxBroadcastEntity> findById(final String id) {
+        return inboxBroadcastRepository.findById(id);
+    }
+
+    /**
+     * Find IDs of unfinished broadcasts which are not claimed by any node.
+     * @param claimTimeout Duration after which a claim expires.
+     * @param limit Maximum number of IDs.
+     * @return IDs of the broadcasts, the oldest broadcast first.
+     */
+    @Transactional(readOnly = true)
+    public List<String> findClaimableIds(final Duration claimTimeout, final int limit) {
+        return inboxBroadcastRepository.findClaimableIds(claimExpiredBefore(claimTimeout), Limit.of(limit));
+    }
+
+    /**
+     * Claim an unfinished broadcast which is not claimed by another node.
+     * @param id Broadcast ID.
+     * @param claimTimeout Duration after which a claim expires.
+     * @return True in case the broadcast was claimed.
+     */
+    public boolean claim(final String id, final Duration claimTimeout) {
+        return inboxBroadcastRepository.claim(id, InboxBroadcastEntity.State.RUNNING, new Date(), claimExpiredBefore(claimTimeout)) > 0;
+    }
+
+    /**
+     * Insert messages of a chunk and move the broadcast to the next position, extending its claim.
+     * @param id Broadcast ID.
+     * @param expectedPosition Position the messages were posted from.
+     * @param resumePosition Position the broadcast resumes from.
+     * @param messages Inbox messages.
+     * @param onPosted Action called within the transaction once the messages are inserted, e.g. registering changes
+     * applied after commit.
+     * @throws OptimisticLockingFailureException In case the broadcast was moved by another node or finished, the messages
+     * are not inserted.
+     */
+    public void postChunk(final String id, final long expectedPosition, final long resumePosition, final List<InboxMessageEntity> messages, final Runnable onPosted) {
+        inboxMessageDAO.insertAll(messages);
+        final int count = inboxBroadcastRepository.updateProgress(id, expectedPosition, resumePosition, messages.size(), new Date());
+        if (count == 0) {
+            throw new OptimisticLockingFailureException("Inbox broadcast was moved by another node: " + id);
+        }
+        onPosted.run();
+    }
+
+    /**
+     * Finish a broadcast at the expected position.
+     * @param id Broadcast ID.
+     * @param expectedPosition Position the broadcast was processed to.
+     * @param state Final state of the broadcast.
+     * @param errorMessage Error message in case the broadcast failed.
+     * @return True in case the broadcast was finished, false in case it was moved by another node or finished.
+     */
+    public boolean finish(final String id, final long expectedPosition, final InboxBroadcastEntity.State state, final String errorMessage) {
+        return inboxBroadcastRepository.finish(id, expectedPosition, state, errorMessage, new Date()) > 0;
+    }
+
+    /**
+     * Delete broadcasts finished before given timestamp.
+     * @param timestampFinished Timestamp before which the broadcasts were finished.
+     * @return Number of deleted broadcasts.
+     */
+    public int deleteFinishedBefore(final Date timestampFinished) {
+        return inboxBroadcastRepository.deleteFinishedBefore(timestampFinished);
+    }
+
+    private static Date claimExpiredBefore(final Duration claimTimeout) {
+        return new Date(System.currentTimeMillis() - claimTimeout.toMillis());
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.InboxMessageEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.OracleDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data access object for inbox messages using JDBC batching, used for posting a message to many users.
+ */
+@Repository
+@Transactional
+public class InboxMessageDAO {
+
+    private static final String INSERT = "INSERT INTO push_inbox (id, inbox_id, user_id, message_type, subject, summary, body, body_hash, is_read, timestamp_created) " +
+            "VALUES (:id, :inboxId, :userId, :messageType, :subject, :summary, :body, :bodyHash, :read, :timestampCreated)";
+
+    private static final String INSERT_APP = "INSERT INTO push_inbox_app (inbox_id, app_credentials_id) " +
+            "VALUES (:id, :appCredentialsId)";
+
+    private static final String BODY_COLUMNS = "body_hash, body, timestamp_created";
+
+    private static final String BODY_VALUES = ":bodyHash, :body, :timestampCreated";
+
+    private static final String INSERT_BODY_POSTGRESQL = "INSERT INTO push_inbox_body (" + BODY_COLUMNS + ") " +
+            "VALUES (" + BODY_VALUES + ") ON CONFLICT (body_hash) DO NOTHING";
+
+    private static final String INSERT_BODY_ORACLE = "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(push_inbox_body (body_hash)) */ " +
+            "INTO push_inbox_body (" + BODY_COLUMNS + ") VALUES (" + BODY_VALUES + ")";
+
+    private static final String INSERT_BODY_MSSQL = "MERGE INTO push_inbox_body WITH (HOLDLOCK) AS b " +
+            "USING (SELECT CAST(:bodyHash AS VARCHAR(64)) AS body_hash) AS s ON (b.body_hash = s.body_hash) " +
+            "WHEN NOT MATCHED THEN INSERT (" + BODY_COLUMNS + ") VALUES (" + BODY_VALUES + ");";
+
+    private static final String INSERT_BODY_DEFAULT = "INSERT INTO push_inbox_body (" + BODY_COLUMNS + ") " +
+            "SELECT " + BODY_VALUES + " WHERE NOT EXISTS (SELECT 1 FROM push_inbox_body WHERE body_hash = :bodyHash)";
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityIdGenerator idGenerator;
+
+    private volatile String insertBodyStatement;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param entityManager Entity manager.
+     * @param jdbcTemplate JDBC template, participating in the JPA transaction.
+     */
+    @Autowired
+    public InboxMessageDAO(EntityManager entityManager, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = new EntityIdGenerator(entityManager, InboxMessageEntity.class);
+    }
+
+    /**
+     * Insert inbox messages together with their applications using JDBC batches, in a single transaction.
+     * The entity ID is generated from sequence {@code push_inbox_seq} in blocks, the applications are
+     * linked using the generated entity ID of the message.
+     *
+     * @param messages Inbox messages with inbox ID and applications set.
+     */
+    public void insertAll(final List<InboxMessageEntity> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        final List<SqlParameterSource> messageParameters = new ArrayList<>(messages.size());
+        final List<SqlParameterSource> appParameters = new ArrayList<>(messages.size());
+        for (InboxMessageEntity message : messages) {
+            final Long id = idGenerator.generate(message);
+            messageParameters.add(new MapSqlParameterSource()
+                    .addValue("id", id, Types.BIGINT)
+                    .addValue("inboxId", message.getInboxId(), Types.VARCHAR)
+                    .addValue("userId", message.getUserId(), Types.VARCHAR)
+                    .addValue("messageType", message.getMessageType(), Types.VARCHAR)
+                    .addValue("subject", message.getSubject(), Types.VARCHAR)
+                    .addValue("summary", message.getSummary(), Types.VARCHAR)
+                    .addValue("body", message.getBody(), Types.VARCHAR)
+                    .addValue("bodyHash", message.getBodyHash(), Types.VARCHAR)
+                    .addValue("read", message.isRead(), Types.BOOLEAN)
+                    .addValue("timestampCreated", new Timestamp(message.getTimestampCreated().getTime()), Types.TIMESTAMP));
+            for (AppCredentialsEntity app : message.getApplications()) {
+                appParameters.add(new MapSqlParameterSource()
+                        .addValue("id", id, Types.BIGINT)
+                        .addValue("appCredentialsId", app.getId(), Types.BIGINT));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT, messageParameters.toArray(SqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(INSERT_APP, appParameters.toArray(SqlParameterSource[]::new));
+    }
+
+    /**
+     * Insert a deduplicated inbox message body unless a body with the same hash is already stored, within the calling
+     * transaction. The databases with a native insert ignoring the duplicate key do not fail on a concurrent insert
+     * of the same body, the body is then only inserted by the transaction which commits first.
+     *
+     * @param bodyHash Hash of the body.
+     * @param body Message body.
+     * @param timestampCreated Timestamp the body was stored.
+     */
+    public void insertBodyIfAbsent(final String bodyHash, final String body, final Date timestampCreated) {
+        jdbcTemplate.update(resolveInsertBodyStatement(), new MapSqlParameterSource()
+                .addValue("bodyHash", bodyHash, Types.VARCHAR)
+                .addValue("body", body, Types.VARCHAR)
+                .addValue("timestampCreated", new Timestamp(timestampCreated.getTime()), Types.TIMESTAMP));
+    }
+
+    private String resolveInsertBodyStatement() {
+        if (insertBodyStatement == null) {
+            final Dialect dialect = resolveDialect();
+            if (dialect instanceof PostgreSQLDialect) {
+                insertBodyStatement = INSERT_BODY_POSTGRESQL;
+            } else if (dialect instanceof OracleDialect) {
+                insertBodyStatement = INSERT_BODY_ORACLE;
+            } else if (dialect instanceof SQLServerDialect) {
+                insertBodyStatement = INSERT_BODY_MSSQL;
+            } else {
+                insertBodyStatement = INSERT_BODY_DEFAULT;
+            }
+        }
+        return insertBodyStatement;
+    }
+
+    private Dialect resolveDialect() {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import io.getlime.push.repository.model.PlatformConverter;
+import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.*;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data access object for device registrations using dialect specific native statements and JDBC batching.
+ */
+@Repository
+@Transactional
+@Slf4j
+public class PushDeviceRegistrationDAO {
+
+    private static final String COLUMNS = "id, activation_id, user_id, app_id, platform, push_token, environment, timestamp_last_registered, is_active";
+
+    private static final String UPDATE_SET = "user_id = :userId, app_id = :appId, platform = :platform, push_token = :pushToken, environment = :environment, " +
+            "timestamp_last_registered = :timestampLastRegistered, is_active = :active";
+
+    private static final String VALUES = ":activationId, :userId, :appId, :platform, :pushToken, :environment, :timestampLastRegistered, :active";
+
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO push_device_registration (" + COLUMNS + ") " +
+            "VALUES (:id, " + VALUES + ") " +
+            "ON CONFLICT (activation_id) DO UPDATE SET " + UPDATE_SET;
+
+    private static final String UPSERT_ORACLE = "MERGE INTO push_device_registration d " +
+            "USING (SELECT CAST(:activationId AS VARCHAR2(37)) AS activation_id FROM dual) s ON (d.activation_id = s.activation_id) " +
+            "WHEN MATCHED THEN UPDATE SET " + UPDATE_SET + " " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (:id, " + VALUES + ")";
+
+    private static final String UPSERT_MSSQL = "MERGE INTO push_device_registration WITH (HOLDLOCK) AS d " +
+            "USING (SELECT CAST(:activationId AS VARCHAR(37)) AS activation_id) AS s ON (d.activation_id = s.activation_id) " +
+            "WHEN MATCHED THEN UPDATE SET " + UPDATE_SET + " " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (:id, " + VALUES + ");";
+
+    private static final String UPSERT_H2 = "MERGE INTO push_device_registration d " +
+            "USING (SELECT CAST(:activationId AS VARCHAR(37)) AS activation_id) s ON (d.activation_id = s.activation_id) " +
+            "WHEN MATCHED THEN UPDATE SET " + UPDATE_SET + " " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (:id, " + VALUES + ")";
+
+    private static final String DELETE_OTHER_ACTIVATIONS = "DELETE FROM push_device_registration " +
+            "WHERE app_id = :appId AND push_token = :pushToken AND activation_id <> :activationId";
+
+    private static final String DELETE_BY_APP_AND_TOKEN = "DELETE FROM push_device_registration WHERE app_id = :appId AND push_token = :pushToken";
+
+    private static final String UPDATE_STATUS = "UPDATE push_device_registration SET is_active = :active WHERE activation_id = :activationId";
+
+    private static final PlatformConverter PLATFORM_CONVERTER = new PlatformConverter();
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityIdGenerator idGenerator;
+
+    private volatile String upsertStatement;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param entityManager Entity manager.
+     * @param jdbcTemplate JDBC template, participating in the JPA transaction.
+     */
+    @Autowired
+    public PushDeviceRegistrationDAO(EntityManager entityManager, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = new EntityIdGenerator(entityManager, PushDeviceRegistrationEntity.class);
+    }
+
+    /**
+     * Whether the single statement upsert is supported for the database in use.
+     * @return True if upsert is supported, false otherwise.
+     */
+    public boolean isUpsertSupported() {
+        return resolveUpsertStatement() != null;
+    }
+
+    /**
+     * Insert or update the device registration identified by its activation ID using a single statement,
+     * relying on the unique index on {@code push_device_registration(activation_id)}.
+     * The application of an existing registration is updated as well, as when the registration is updated by entity.
+     *
+     * @param device Device registration to insert or update.
+     * @return Number of affected rows.
+     */
+    public int upsert(final PushDeviceRegistrationEntity device) {
+        return upsertAll(List.of(device))[0];
+    }
+
+    /**
+     * Insert or update device registrations identified by activation ID using a JDBC batch.
+     *
+     * @param devices Device registrations to insert or update.
+     * @return Number of affected rows for each device registration.
+     * @see #upsert(PushDeviceRegistrationEntity)
+     */
+    public int[] upsertAll(final List<PushDeviceRegistrationEntity> devices) {
+        final String statement = resolveUpsertStatement();
+        if (statement == null) {
+            throw new IllegalStateException("Upsert of device registration is not supported for the database in use");
+        }
+        final SqlParameterSource[] parameters = devices.stream()
+                .map(this::toUpsertParameters)
+                .toArray(SqlParameterSource[]::new);
+        return executeBatch(statement, parameters);
+    }
+
+    /**
+     * Delete registrations with the same application and push token which belong to other activations, using a JDBC batch.
+     *
+     * @param devices Device registrations whose push token is being registered.
+     * @return Number of deleted rows for each device registration.
+     */
+    public int[] deleteOtherActivations(final List<PushDeviceRegistrationEntity> devices) {
+        final SqlParameterSource[] parameters = devices.stream()
+                .map(device -> new MapSqlParameterSource()
+                        .addValue("appId", device.getAppCredentials().getId(), Types.BIGINT)
+                        .addValue("pushToken", device.getPushToken(), Types.VARCHAR)
+                        .addValue("activationId", device.getActivationId(), Types.VARCHAR))
+                .toArray(SqlParameterSource[]::new);
+        return executeBatch(DELETE_OTHER_ACTIVATIONS, parameters);
+    }
+
+    /**
+     * Delete registrations by application and push token, using a JDBC batch.
+     *
+     * @param appIds Application record IDs.
+     * @param pushTokens Push tokens, matching the application record IDs by index.
+     * @return Number of deleted rows for each pair of application and push token.
+     */
+    public int[] deleteAllByAppAndPushToken(final List<Long> appIds, final List<String> pushTokens) {
+        final SqlParameterSource[] parameters = new SqlParameterSource[appIds.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = new MapSqlParameterSource()
+                    .addValue("appId", appIds.get(i), Types.BIGINT)
+                    .addValue("pushToken", pushTokens.get(i), Types.VARCHAR);
+        }
+        return executeBatch(DELETE_BY_APP_AND_TOKEN, parameters);
+    }
+
+    /**
+     * Update active flag of registrations by activation ID, using a JDBC batch.
+     *
+     * @param activeByActivationId Active flag by activation ID.
+     * @return Number of updated rows for each activation, in the iteration order of the map.
+     */
+    public int[] updateActive(final Map<String, Boolean> activeByActivationId) {
+        final SqlParameterSource[] parameters = activeByActivationId.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("activationId", entry.getKey(), Types.VARCHAR)
+                        .addValue("active", entry.getValue(), Types.BOOLEAN))
+                .toArray(SqlParameterSource[]::new);
+        return executeBatch(UPDATE_STATUS, parameters);
+    }
+
+    private int[] executeBatch(final String statement, final SqlParameterSource[] parameters) {
+        if (parameters.length == 0) {
+            return new int[0];
+        }
+        // Pending changes, e.g. a new application, must be visible to the native statement
+        entityManager.flush();
+        final int[] result = jdbcTemplate.batchUpdate(statement, parameters);
+        // Some drivers do not report row counts of batched statements
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == Statement.SUCCESS_NO_INFO) {
+                result[i] = 1;
+            }
+        }
+        return result;
+    }
+
+    private SqlParameterSource toUpsertParameters(final PushDeviceRegistrationEntity device) {
+        // Nullable values are bound with explicit types, otherwise some drivers fail to resolve the type of null.
+        // The ID is generated for every row, it is used only when the row is inserted.
+        return new MapSqlParameterSource()
+                .addValue("id", idGenerator.generate(device), Types.BIGINT)
+                .addValue("activationId", device.getActivationId(), Types.VARCHAR)
+                .addValue("userId", device.getUserId(), Types.VARCHAR)
+                .addValue("appId", device.getAppCredentials().getId(), Types.BIGINT)
+                .addValue("platform", PLATFORM_CONVERTER.convertToDatabaseColumn(device.getPlatform()), Types.VARCHAR)
+                .addValue("pushToken", device.getPushToken(), Types.VARCHAR)
+                .addValue("environment", device.getEnvironment(), Types.VARCHAR)
+                .addValue("timestampLastRegistered", new Timestamp(device.getTimestampLastRegistered().getTime()), Types.TIMESTAMP)
+                .addValue("active", device.getActive(), Types.BOOLEAN);
+    }
+
+    private String resolveUpsertStatement() {
+        if (upsertStatement == null) {
+            final Dialect dialect = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            final String statement;
+            if (dialect instanceof PostgreSQLDialect) {
+                statement = UPSERT_POSTGRESQL;
+            } else if (dialect instanceof OracleDialect) {
+                statement = UPSERT_ORACLE;
+            } else if (dialect instanceof SQLServerDialect) {
+                statement = UPSERT_MSSQL;
+            } else if (dialect instanceof H2Dialect) {
+                statement = UPSERT_H2;
+            } else {
+                logger.info("Upsert of device registration is not supported for dialect: {}", dialect.getClass().getName());
+                statement = "";
+            }
+            upsertStatement = statement;
+        }
+        return upsertStatement.isEmpty() ? null : upsertStatement;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import io.getlime.push.repository.PushMessageBodyRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.*;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * Data access object for deduplicated push message bodies.
+ */
+@Repository
+@Transactional
+public class PushMessageBodyDAO {
+
+    private static final String COLUMNS = "body_hash, message_body, timestamp_last_stored";
+
+    private static final String VALUES = ":bodyHash, :messageBody, :timestampLastStored";
+
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO push_message_body (" + COLUMNS + ") VALUES (" + VALUES + ") " +
+            "ON CONFLICT (body_hash) DO UPDATE SET timestamp_last_stored = EXCLUDED.timestamp_last_stored";
+
+    private static final String UPSERT_ORACLE = "MERGE INTO push_message_body b " +
+            "USING (SELECT CAST(:bodyHash AS VARCHAR2(64)) AS body_hash FROM dual) s ON (b.body_hash = s.body_hash) " +
+            "WHEN MATCHED THEN UPDATE SET timestamp_last_stored = :timestampLastStored " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (" + VALUES + ")";
+
+    private static final String UPSERT_MSSQL = "MERGE INTO push_message_body WITH (HOLDLOCK) AS b " +
+            "USING (SELECT CAST(:bodyHash AS VARCHAR(64)) AS body_hash) AS s ON (b.body_hash = s.body_hash) " +
+            "WHEN MATCHED THEN UPDATE SET timestamp_last_stored = :timestampLastStored " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (" + VALUES + ");";
+
+    private static final String UPSERT_H2 = "MERGE INTO push_message_body b " +
+            "USING (SELECT CAST(:bodyHash AS VARCHAR(64)) AS body_hash) s ON (b.body_hash = s.body_hash) " +
+            "WHEN MATCHED THEN UPDATE SET timestamp_last_stored = :timestampLastStored " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (" + VALUES + ")";
+
+    private static final String UPDATE = "UPDATE push_message_body SET timestamp_last_stored = :timestampLastStored WHERE body_hash = :bodyHash";
+
+    private static final String INSERT = "INSERT INTO push_message_body (" + COLUMNS + ") VALUES (" + VALUES + ")";
+
+    private final PushMessageBodyRepository pushMessageBodyRepository;
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile String upsertStatement;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param pushMessageBodyRepository Push message body repository.
+     * @param entityManager Entity manager.
+     * @param jdbcTemplate JDBC template, participating in the JPA transaction.
+     */
+    @Autowired
+    public PushMessageBodyDAO(PushMessageBodyRepository pushMessageBodyRepository, EntityManager entityManager, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.pushMessageBodyRepository = pushMessageBodyRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the body, or refresh the timestamp it was last stored when a body with the same hash exists, within
+     * the transaction storing the push message. The refreshed row stays locked until the message is committed,
+     * so that the purge of unreferenced bodies does not delete it in the meantime.
+     *
+     * @param bodyHash Hash of the serialized body.
+     * @param messageBody Serialized message body.
+     * @param timestampLastStored Timestamp the body was stored.
+     */
+    public void upsert(String bodyHash, String messageBody, Date timestampLastStored) {
+        final SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("bodyHash", bodyHash, Types.VARCHAR)
+                .addValue("messageBody", messageBody, Types.VARCHAR)
+                .addValue("timestampLastStored", new Timestamp(timestampLastStored.getTime()), Types.TIMESTAMP);
+        final String statement = resolveUpsertStatement();
+        if (statement != null) {
+            jdbcTemplate.update(statement, parameters);
+        } else if (jdbcTemplate.update(UPDATE, parameters) == 0) {
+            jdbcTemplate.update(INSERT, parameters);
+        }
+    }
+
+    /**
+     * Delete bodies last stored before given timestamp which are no longer referenced by any push message.
+     *
+     * @param timestampLastStored Timestamp before which the bodies were last stored.
+     * @return Number of deleted bodies.
+     */
+    public int deleteUnreferencedStoredBefore(Date timestampLastStored) {
+        return pushMessageBodyRepository.deleteUnreferencedStoredBefore(timestampLastStored);
+    }
+
+    private String resolveUpsertStatement() {
+        if (upsertStatement == null) {
+            final Dialect dialect = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            if (dialect instanceof PostgreSQLDialect) {
+                upsertStatement = UPSERT_POSTGRESQL;
+            } else if (dialect instanceof OracleDialect) {
+                upsertStatement = UPSERT_ORACLE;
+            } else if (dialect instanceof SQLServerDialect) {
+                upsertStatement = UPSERT_MSSQL;
+            } else if (dialect instanceof H2Dialect) {
+                upsertStatement = UPSERT_H2;
+            } else {
+                upsertStatement = "";
+            }
+        }
+        return upsertStatement.isEmpty() ? null : upsertStatement;
+    }
+
+}
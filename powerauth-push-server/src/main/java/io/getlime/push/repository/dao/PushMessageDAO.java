@@ -16,6 +16,9 @@
 
 package io.getlime.push.repository.dao;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.entity.PushMessageAttributes;
 import io.getlime.push.model.entity.PushMessageBody;
@@ -23,10 +26,20 @@ import io.getlime.push.repository.PushMessageRepository;
 import io.getlime.push.repository.model.PushMessageEntity;
 import io.getlime.push.repository.serialization.JsonSerialization;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
  * Data access object for PushMessage repo.
@@ -38,21 +51,47 @@ import java.util.Date;
 public class PushMessageDAO {
 
     private final PushMessageRepository pushMessageRepository;
+    private final PushMessageBodyDAO pushMessageBodyDAO;
     private final JsonSerialization jsonSerialization;
+    private final PushServiceConfiguration pushServiceConfiguration;
+
+    /**
+     * Duration for which a body known to be stored is not stored again.
+     */
+    private static final Duration STORED_BODY_EXPIRATION = Duration.ofHours(1);
+
+    /**
+     * Minimum duration since a body was last stored before it may be purged, longer than the expiration of the
+     * hashes known to be stored on any node.
+     */
+    private static final Duration BODY_PURGE_GRACE_PERIOD = STORED_BODY_EXPIRATION.multipliedBy(2);
+
+    /**
+     * Hashes of bodies known to be stored, so that a body repeated for many devices is stored only once.
+     */
+    private final Cache<String, Boolean> storedBodyHashes = Caffeine.newBuilder()
+            .expireAfterWrite(STORED_BODY_EXPIRATION)
+            .maximumSize(10_000)
+            .build();
 
     /**
      * Constructor with autowired dependencies.
      * @param pushMessageRepository Push message repository.
+     * @param pushMessageBodyDAO Push message body DAO.
      * @param jsonSerialization Helper JSON serialization object.
+     * @param pushServiceConfiguration Push service configuration.
      */
     @Autowired
-    public PushMessageDAO(PushMessageRepository pushMessageRepository, JsonSerialization jsonSerialization) {
+    public PushMessageDAO(PushMessageRepository pushMessageRepository, PushMessageBodyDAO pushMessageBodyDAO, JsonSerialization jsonSerialization, PushServiceConfiguration pushServiceConfiguration) {
         this.pushMessageRepository = pushMessageRepository;
+        this.pushMessageBodyDAO = pushMessageBodyDAO;
         this.jsonSerialization = jsonSerialization;
+        this.pushServiceConfiguration = pushServiceConfiguration;
     }
 
     /**
-     * Stores a push message in the database table `push_message`.
+     * Stores a push message in the database table `push_message`. In case the deduplication of stored bodies
+     * is enabled, the body is stored once in table `push_message_body` and the message references its hash.
      *
      * @param pushMessageBody Push message body to be stored.
      * @param pushMessageAttributes Attributes of the push message.
@@ -77,7 +116,11 @@ public class PushMessageDAO {
         entity.setStatus(PushMessageEntity.Status.PENDING);
         entity.setTimestampCreated(new Date());
         String messageBody = jsonSerialization.serializePushMessageBody(pushMessageBody);
-        entity.setMessageBody(messageBody);
+        if (pushServiceConfiguration.isMessageStorageDeduplicationEnabled()) {
+            entity.setMessageBodyHash(storeMessageBody(messageBody));
+        } else {
+            entity.setMessageBody(messageBody);
+        }
         return pushMessageRepository.save(entity);
     }
 
@@ -90,4 +133,69 @@ public class PushMessageDAO {
     public <S extends PushMessageEntity> S save(S s) {
         return pushMessageRepository.save(s);
     }
+
+    /**
+     * Delete a bounded batch of the oldest push messages created before given timestamp, in a single transaction.
+     *
+     * @param timestampCreated Timestamp before which the messages were created.
+     * @param batchSize Maximum number of messages to delete.
+     * @return Number of deleted messages.
+     */
+    public int deleteCreatedBefore(Date timestampCreated, int batchSize) {
+        final List<Long> ids = pushMessageRepository.findIdsByTimestampCreatedBefore(timestampCreated, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return pushMessageRepository.deleteByIdIn(ids);
+    }
+
+    /**
+     * Delete deduplicated bodies last stored before given timestamp which are no longer referenced by any push message.
+     * Bodies stored within the grace period are kept, even if the timestamp is later, since their hashes may still be
+     * known to be stored by some node.
+     *
+     * @param timestampLastStored Timestamp before which the bodies were last stored.
+     * @return Number of deleted bodies.
+     */
+    public int deleteUnreferencedBodiesStoredBefore(Date timestampLastStored) {
+        final Date gracePeriodStart = Date.from(Instant.now().minus(BODY_PURGE_GRACE_PERIOD));
+        final int deletedCount = pushMessageBodyDAO.deleteUnreferencedStoredBefore(
+                timestampLastStored.before(gracePeriodStart) ? timestampLastStored : gracePeriodStart);
+        if (deletedCount > 0) {
+            storedBodyHashes.invalidateAll();
+        }
+        return deletedCount;
+    }
+
+    private String storeMessageBody(String messageBody) {
+        final String bodyHash = hash(messageBody);
+        if (storedBodyHashes.getIfPresent(bodyHash) == null) {
+            pushMessageBodyDAO.upsert(bodyHash, messageBody, new Date());
+            // The hash is known to be stored only once the body is committed together with the message
+            afterCommit(() -> storedBodyHashes.put(bodyHash, Boolean.TRUE));
+        }
+        return bodyHash;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String hash(String messageBody) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(messageBody.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
 }
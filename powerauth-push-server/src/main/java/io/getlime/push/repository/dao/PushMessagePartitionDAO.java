@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Data access object managing monthly range partitions of table push_message on PostgreSQL.
+ * <p>
+ * The table must be converted to a table partitioned by range of column timestamp_created beforehand, the partitions
+ * managed by this object are named {@code push_message_pYYYYMM}. Other partitions are left untouched.
+ */
+@Repository
+@Transactional
+@Slf4j
+public class PushMessagePartitionDAO {
+
+    private static final String PARENT_TABLE = "push_message";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("^push_message_p(\\d{4})(0[1-9]|1[0-2])$");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String SELECT_PARTITIONED = "SELECT COUNT(*) FROM pg_partitioned_table pt " +
+            "JOIN pg_class c ON c.oid = pt.partrelid " +
+            "WHERE c.relname = :tableName AND c.relnamespace = current_schema()::regnamespace";
+
+    private static final String SELECT_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = :tableName AND p.relnamespace = current_schema()::regnamespace";
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param entityManager Entity manager.
+     * @param jdbcTemplate JDBC template.
+     */
+    @Autowired
+    public PushMessagePartitionDAO(EntityManager entityManager, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Whether the database is PostgreSQL and table push_message is partitioned.
+     * @return True if the partitions can be managed.
+     */
+    @Transactional(readOnly = true)
+    public boolean isPartitioned() {
+        final Dialect dialect = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+        if (!(dialect instanceof PostgreSQLDialect)) {
+            logger.warn("Partitioning of push messages is supported on PostgreSQL only, dialect: {}", dialect.getClass().getName());
+            return false;
+        }
+        final Long count = jdbcTemplate.queryForObject(SELECT_PARTITIONED, new MapSqlParameterSource("tableName", PARENT_TABLE), Long.class);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Find the managed monthly partitions.
+     * @return Map of months to partition names, sorted by month.
+     */
+    @Transactional(readOnly = true)
+    public Map<YearMonth, String> findPartitions() {
+        final List<String> names = jdbcTemplate.queryForList(SELECT_PARTITIONS, new MapSqlParameterSource("tableName", PARENT_TABLE), String.class);
+        final Map<YearMonth, String> partitions = new TreeMap<>();
+        for (String name : names) {
+            parseMonth(name).ifPresent(month -> partitions.put(month, name));
+        }
+        return partitions;
+    }
+
+    /**
+     * Create a partition for messages created in given month.
+     * @param month Month of the partition.
+     */
+    public void createPartition(YearMonth month) {
+        final String name = partitionName(month);
+        // DDL statements do not support bind parameters, the values are derived from the month only
+        jdbcTemplate.getJdbcOperations().execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT_TABLE +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        logger.info("Created push message partition: {}", name);
+    }
+
+    /**
+     * Drop the partition for messages created in given month.
+     * @param month Month of the partition.
+     */
+    public void dropPartition(YearMonth month) {
+        final String name = partitionName(month);
+        jdbcTemplate.getJdbcOperations().execute("DROP TABLE IF EXISTS " + name);
+        logger.info("Dropped push message partition: {}", name);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    private static Optional<YearMonth> parseMonth(String partitionName) {
+        final Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import io.getlime.push.repository.model.PushOutboxEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.OracleDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data access object for the outbox of push messages accepted for asynchronous sending.
+ * <p>
+ * Messages are appended using JDBC batches and claimed by dispatchers of all nodes using row locks which skip rows
+ * locked by other dispatchers, so that each message is dispatched by a single node. A claimed message is not claimed
+ * again until the claim expires, messages which failed to be sent repeatedly are marked as failed and kept aside
+ * until they are purged.
+ */
+@Repository
+@Transactional
+public class PushOutboxDAO {
+
+    private static final String COLUMNS = "id, app_id, message, attempts";
+
+    private static final String CLAIMABLE = "timestamp_failed IS NULL AND (timestamp_claimed IS NULL OR timestamp_claimed < :claimExpiredBefore)";
+
+    private static final String LOCK_POSTGRESQL = "SELECT " + COLUMNS + " FROM push_outbox WHERE " + CLAIMABLE + " ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED";
+
+    private static final String LOCK_ORACLE = "SELECT " + COLUMNS + " FROM push_outbox WHERE " + CLAIMABLE + " ORDER BY id FOR UPDATE SKIP LOCKED";
+
+    private static final String LOCK_MSSQL = "SELECT TOP (:limit) " + COLUMNS + " FROM push_outbox WITH (ROWLOCK, UPDLOCK, READPAST) WHERE " + CLAIMABLE + " ORDER BY id";
+
+    private static final String LOCK_DEFAULT = "SELECT " + COLUMNS + " FROM push_outbox WHERE " + CLAIMABLE + " ORDER BY id LIMIT :limit FOR UPDATE";
+
+    private static final String CLAIM = "UPDATE push_outbox SET attempts = attempts + 1, timestamp_claimed = :timestampClaimed WHERE id IN (:ids)";
+
+    private static final String RELEASE = "UPDATE push_outbox SET attempts = attempts - 1, timestamp_claimed = NULL WHERE id IN (:ids)";
+
+    private static final String MARK_FAILED = "UPDATE push_outbox SET timestamp_failed = :timestampFailed WHERE id IN (:ids)";
+
+    private static final String DELETE = "DELETE FROM push_outbox WHERE id IN (:ids)";
+
+    private static final String DELETE_FAILED = "DELETE FROM push_outbox WHERE timestamp_failed < :timestampFailed";
+
+    private static final String INSERT = "INSERT INTO push_outbox (id, app_id, message, timestamp_created, attempts) " +
+            "VALUES (:id, :appId, :message, :timestampCreated, 0)";
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityIdGenerator idGenerator;
+
+    private volatile String lockStatement;
+
+    /**
+     * Constructor with autowired dependencies.
+     * @param entityManager Entity manager.
+     * @param jdbcTemplate JDBC template, participating in the JPA transaction.
+     */
+    @Autowired
+    public PushOutboxDAO(EntityManager entityManager, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = new EntityIdGenerator(entityManager, PushOutboxEntity.class);
+    }
+
+    /**
+     * Append serialized push messages to the outbox using a JDBC batch. The entity ID is generated from sequence
+     * {@code push_outbox_seq} in blocks, like for the entities persisted by JPA.
+     *
+     * @param appId Application ID.
+     * @param messages Push messages serialized as JSON.
+     */
+    public void insertAll(final String appId, final List<String> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        final Timestamp timestampCreated = new Timestamp(new Date().getTime());
+        final SqlParameterSource[] parameters = messages.stream()
+                .map(message -> new MapSqlParameterSource()
+                        .addValue("id", idGenerator.generate(null), Types.BIGINT)
+                        .addValue("appId", appId, Types.VARCHAR)
+                        .addValue("message", message, Types.VARCHAR)
+                        .addValue("timestampCreated", timestampCreated, Types.TIMESTAMP))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT, parameters);
+    }
+
+    /**
+     * Claim the oldest messages in the outbox which are neither claimed nor locked by another dispatcher. The number
+     * of attempts of the claimed messages is incremented and the claim is committed once the method returns, so
+     * that the messages are sent outside of the transaction.
+     *
+     * @param limit Maximum number of messages.
+     * @param claimTimeout Duration after which a message claimed and not removed from the outbox may be claimed again.
+     * @return Claimed messages, including the incremented number of attempts.
+     */
+    public List<PushOutboxEntity> claimBatch(final int limit, final Duration claimTimeout) {
+        final long now = System.currentTimeMillis();
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("limit", limit, Types.INTEGER)
+                .addValue("claimExpiredBefore", new Timestamp(now - claimTimeout.toMillis()), Types.TIMESTAMP);
+        final List<PushOutboxEntity> entries = jdbcTemplate.query(resolveLockStatement(), parameters, resultSet -> {
+            // Oracle locks rows skipping the locked ones as they are fetched, so the limit is applied while reading
+            final List<PushOutboxEntity> result = new ArrayList<>();
+            while (result.size() < limit && resultSet.next()) {
+                final PushOutboxEntity entry = new PushOutboxEntity();
+                entry.setId(resultSet.getLong("id"));
+                entry.setAppId(resultSet.getString("app_id"));
+                entry.setMessage(resultSet.getString("message"));
+                entry.setAttempts(resultSet.getInt("attempts") + 1);
+                result.add(entry);
+            }
+            return result;
+        });
+        if (!entries.isEmpty()) {
+            jdbcTemplate.update(CLAIM, new MapSqlParameterSource()
+                    .addValue("timestampClaimed", new Timestamp(now), Types.TIMESTAMP)
+                    .addValue("ids", entries.stream().map(PushOutboxEntity::getId).toList()));
+        }
+        return entries;
+    }
+
+    /**
+     * Release the claim of messages which were not sent for a transient reason, e.g. exhausted sending capacity, so
+     * that they are claimed again by the next batch. The release does not count as an attempt.
+     *
+     * @param ids IDs of the released messages.
+     */
+    public void release(final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(RELEASE, new MapSqlParameterSource().addValue("ids", ids));
+    }
+
+    /**
+     * Mark messages which failed to be sent repeatedly as failed, so that they are not claimed anymore.
+     *
+     * @param ids IDs of the failed messages.
+     */
+    public void markFailed(final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(MARK_FAILED, new MapSqlParameterSource()
+                .addValue("timestampFailed", new Timestamp(System.currentTimeMillis()), Types.TIMESTAMP)
+                .addValue("ids", ids));
+    }
+
+    /**
+     * Delete messages delivered to the providers from the outbox.
+     *
+     * @param ids IDs of the delivered messages.
+     */
+    public void deleteAll(final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(DELETE, new MapSqlParameterSource().addValue("ids", ids));
+    }
+
+    /**
+     * Delete messages marked as failed before given timestamp.
+     *
+     * @param timestampFailed Messages marked as failed before this timestamp are deleted.
+     * @return Number of deleted messages.
+     */
+    public int deleteFailedBefore(final Date timestampFailed) {
+        return jdbcTemplate.update(DELETE_FAILED, new MapSqlParameterSource()
+                .addValue("timestampFailed", new Timestamp(timestampFailed.getTime()), Types.TIMESTAMP));
+    }
+
+    private String resolveLockStatement() {
+        if (lockStatement == null) {
+            final Dialect dialect = resolveDialect();
+            if (dialect instanceof PostgreSQLDialect) {
+                lockStatement = LOCK_POSTGRESQL;
+            } else if (dialect instanceof OracleDialect) {
+                lockStatement = LOCK_ORACLE;
+            } else if (dialect instanceof SQLServerDialect) {
+                lockStatement = LOCK_MSSQL;
+            } else {
+                lockStatement = LOCK_DEFAULT;
+            }
+        }
+        return lockStatement;
+    }
+
+    private Dialect resolveDialect() {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+    }
+
+}
@@ -43,7 +43,7 @@ public class AppCredentialsEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_app_credentials", sequenceName = "push_credentials_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_app_credentials", sequenceName = "push_credentials_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_app_credentials")
     private Long id;
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Database entity representing a deduplicated inbox message body, identified by the hash of its content.
+ */
+@Entity
+@Table(name = "push_inbox_body")
+@Getter
+@Setter
+@ToString
+public class InboxBodyEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2953377262129711805L;
+
+    /**
+     * SHA-256 hash of the body, hex encoded.
+     */
+    @Id
+    @Column(name = "body_hash", length = 64)
+    private String bodyHash;
+
+    /**
+     * Message body.
+     */
+    @Column(name = "body", nullable = false)
+    @ToString.Exclude
+    private String body;
+
+    /**
+     * Timestamp the body was first stored.
+     */
+    @Column(name = "timestamp_created", nullable = false)
+    private Date timestampCreated;
+
+}
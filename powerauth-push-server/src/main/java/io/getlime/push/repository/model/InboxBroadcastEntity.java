@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Length;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Database entity representing a broadcast of an inbox message to many users, together with its progress, so that
+ * the broadcast may be resumed by any node.
+ */
+@Entity
+@Table(name = "push_inbox_broadcast")
+@Getter
+@Setter
+@ToString
+public class InboxBroadcastEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 3356115999299797152L;
+
+    /**
+     * State of the broadcast.
+     */
+    public enum State {
+
+        /**
+         * Broadcast is waiting to be processed.
+         */
+        QUEUED,
+
+        /**
+         * Messages are being posted.
+         */
+        RUNNING,
+
+        /**
+         * All messages were posted.
+         */
+        COMPLETED,
+
+        /**
+         * Broadcast failed, messages posted before the failure are kept.
+         */
+        FAILED
+    }
+
+    /**
+     * Broadcast ID.
+     */
+    @Id
+    @Column(name = "id", length = 37)
+    private String id;
+
+    /**
+     * Broadcast request serialized as JSON.
+     */
+    @Column(name = "request", nullable = false, length = Length.LONG32)
+    @ToString.Exclude
+    private String request;
+
+    /**
+     * State of the broadcast.
+     */
+    @Column(name = "state", nullable = false, length = 32)
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    /**
+     * Number of users the message is posted to.
+     */
+    @Column(name = "total_count", nullable = false)
+    private long totalCount;
+
+    /**
+     * Number of posted messages.
+     */
+    @Column(name = "posted_count", nullable = false)
+    private long postedCount;
+
+    /**
+     * Position the broadcast resumes from, number of processed users from the request or ID of the last processed
+     * campaign user.
+     */
+    @Column(name = "resume_position", nullable = false)
+    private long resumePosition;
+
+    /**
+     * Error message in case the broadcast failed.
+     */
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    /**
+     * Timestamp the broadcast was accepted.
+     */
+    @Column(name = "timestamp_created", nullable = false)
+    private Date timestampCreated;
+
+    /**
+     * Timestamp the broadcast was last claimed or progressed, the broadcast is not claimed by another node until
+     * the claim expires.
+     */
+    @Column(name = "timestamp_claimed")
+    private Date timestampClaimed;
+
+    /**
+     * Timestamp the broadcast was finished.
+     */
+    @Column(name = "timestamp_finished")
+    private Date timestampFinished;
+
+}
@@ -22,6 +22,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
@@ -45,7 +46,7 @@ public class InboxMessageEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_app_inbox", sequenceName = "push_inbox_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_app_inbox", sequenceName = "push_inbox_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_app_inbox")
     private Long id;
 
@@ -63,8 +64,10 @@ public class InboxMessageEntity implements Serializable {
 
     /**
      * Mapping to the relation table between inbox messages and applications (credentials).
+     * Reads of inbox messages should use projections of app IDs, the batch size avoids N+1 selects in case the relation is accessed.
      */
     @ManyToMany
+    @BatchSize(size = 100)
     @JoinTable(
             name = "push_inbox_app",
             joinColumns = @JoinColumn(name = "inbox_id", referencedColumnName = "id", nullable = false),
@@ -92,11 +95,17 @@ public class InboxMessageEntity implements Serializable {
     private String summary;
 
     /**
-     * Message body.
+     * Message body, {@code null} in case the body is stored deduplicated and referenced by its hash.
      */
-    @Column(name = "body", nullable = false)
+    @Column(name = "body")
     private String body;
 
+    /**
+     * Hash of the deduplicated body stored in table push_inbox_body, {@code null} in case the body is stored inline.
+     */
+    @Column(name = "body_hash")
+    private String bodyHash;
+
     /**
      * Flag indicating if the message was read.
      */
@@ -125,12 +134,13 @@ public class InboxMessageEntity implements Serializable {
                 && messageType.equals(that.messageType)
                 && subject.equals(that.subject)
                 && summary.equals(that.summary)
-                && body.equals(that.body)
+                && Objects.equals(body, that.body)
+                && Objects.equals(bodyHash, that.bodyHash)
                 && timestampCreated.equals(that.timestampCreated);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(inboxId, userId, applications, messageType, subject, summary, body, timestampCreated);
+        return Objects.hash(inboxId, userId, applications, messageType, subject, summary, body, bodyHash, timestampCreated);
     }
 }
@@ -25,7 +25,7 @@ import jakarta.persistence.Converter;
  * @author Lubos Racansky, lubos.racansky@wultra.com
  */
 @Converter
-class PlatformConverter implements AttributeConverter<Platform, String> {
+public class PlatformConverter implements AttributeConverter<Platform, String> {
 
     @Override
     public String convertToDatabaseColumn(final Platform attribute) {
@@ -39,7 +39,7 @@ public class PushCampaignEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_campaign", sequenceName = "push_campaign_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_campaign", sequenceName = "push_campaign_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_campaign")
     private Long id;
 
@@ -38,7 +38,7 @@ public class PushCampaignUserEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_campaign_user", sequenceName = "push_campaign_user_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_campaign_user", sequenceName = "push_campaign_user_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_campaign_user")
     private Long id;
 
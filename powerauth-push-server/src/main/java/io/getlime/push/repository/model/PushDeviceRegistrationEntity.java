@@ -45,7 +45,7 @@ public class PushDeviceRegistrationEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_device_registration", sequenceName = "push_device_registration_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_device_registration", sequenceName = "push_device_registration_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_device_registration")
     private Long id;
 
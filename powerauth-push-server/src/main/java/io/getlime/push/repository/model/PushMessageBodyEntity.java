@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Database entity representing a deduplicated push message body, identified by the hash of its content.
+ */
+@Entity
+@Table(name = "push_message_body")
+@Getter
+@Setter
+@ToString
+public class PushMessageBodyEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -4412630950937466925L;
+
+    /**
+     * SHA-256 hash of the serialized message body, hex encoded.
+     */
+    @Id
+    @Column(name = "body_hash", length = 64)
+    private String bodyHash;
+
+    /**
+     * Serialized message body.
+     */
+    @Column(name = "message_body", nullable = false, updatable = false)
+    private String messageBody;
+
+    /**
+     * Timestamp the body was last stored, refreshed when a node stores the body not known to it, so that a body
+     * known to any node is not purged.
+     */
+    @Column(name = "timestamp_last_stored", nullable = false)
+    private Date timestampLastStored;
+
+}
@@ -84,7 +84,7 @@ public class PushMessageEntity implements Serializable {
      */
     @Id
     @Column(name = "id")
-    @SequenceGenerator(name = "push_message", sequenceName = "push_message_seq", allocationSize = 1)
+    @SequenceGenerator(name = "push_message", sequenceName = "push_message_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_message")
     private Long id;
 
@@ -119,11 +119,17 @@ public class PushMessageEntity implements Serializable {
     private Boolean personal;
 
     /**
-     * Message body.
+     * Message body, {@code null} in case the body is stored deduplicated and referenced by its hash.
      */
-    @Column(name = "message_body", nullable = false, updatable = false)
+    @Column(name = "message_body", updatable = false)
     private String messageBody;
 
+    /**
+     * Hash of the deduplicated body stored in table push_message_body, {@code null} in case the body is stored inline.
+     */
+    @Column(name = "message_body_hash", updatable = false)
+    private String messageBodyHash;
+
     /**
      * Timestamp created.
      */
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Database entity representing a push message accepted for asynchronous sending and waiting in the outbox.
+ */
+@Entity
+@Table(name = "push_outbox")
+@Getter
+@Setter
+@ToString
+public class PushOutboxEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -4205741683519416530L;
+
+    @Id
+    @Column(name = "id")
+    @SequenceGenerator(name = "push_outbox", sequenceName = "push_outbox_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "push_outbox")
+    private Long id;
+
+    /**
+     * Application ID.
+     */
+    @Column(name = "app_id", nullable = false)
+    private String appId;
+
+    /**
+     * Push message serialized as JSON.
+     */
+    @Column(name = "message", nullable = false, length = 8192)
+    @ToString.Exclude
+    private String message;
+
+    /**
+     * Timestamp the message was accepted.
+     */
+    @Column(name = "timestamp_created", nullable = false)
+    private Date timestampCreated;
+
+    /**
+     * Number of times the message was claimed for sending.
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    /**
+     * Timestamp the message was last claimed for sending, the message is not claimed again until the claim expires.
+     */
+    @Column(name = "timestamp_claimed")
+    private Date timestampClaimed;
+
+    /**
+     * Timestamp the message was moved aside after it failed to be sent repeatedly, such message is not sent anymore.
+     */
+    @Column(name = "timestamp_failed")
+    private Date timestampFailed;
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model.aggregate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight projection of app credentials carrying only the app ID and the last update timestamp.
+ * Used to detect credentials changed by another node without loading the private keys.
+ *
+ * @param appId App ID.
+ * @param timestampLastUpdated Timestamp of the last credentials update, {@code null} if never updated.
+ */
+public record AppCredentialsVersion(String appId, LocalDateTime timestampLastUpdated) {
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.model.aggregate;
+
+import java.util.Date;
+
+/**
+ * Keyset pagination key of an inbox message, corresponds to the index on push_inbox(user_id, timestamp_created, id).
+ *
+ * @param id Inbox message entity ID.
+ * @param timestampCreated Timestamp the message was created.
+ */
+public record InboxMessageKey(Long id, Date timestampCreated) {
+}
@@ -19,7 +19,9 @@ package io.getlime.push.repository.serialization;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.entity.PushMessage;
 import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.model.request.CreateInboxBroadcastRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -83,4 +85,68 @@ public class JsonSerialization {
         }
         return messageString;
     }
+
+    /**
+     * Parsing push message from JSON to PushMessage object.
+     *
+     * @param message Message to parse.
+     * @return PushMessage
+     * @throws PushServerException In case object mapping fails.
+     */
+    public PushMessage deserializePushMessage(String message) throws PushServerException {
+        try {
+            return objectMapper.readValue(message, PushMessage.class);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            throw new PushServerException("Failed parsing from JSON", e);
+        }
+    }
+
+    /**
+     * Method used for serializing push message into JSON.
+     *
+     * @param message Push message to be serialized.
+     * @return JSON containing the push message.
+     * @throws PushServerException In case object mapping fails.
+     */
+    public String serializePushMessage(PushMessage message) throws PushServerException {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            logger.error(e.getMessage(), e);
+            throw new PushServerException("Failed parsing into JSON", e);
+        }
+    }
+
+    /**
+     * Parsing inbox broadcast request from JSON to CreateInboxBroadcastRequest object.
+     *
+     * @param request Request to parse.
+     * @return CreateInboxBroadcastRequest
+     * @throws PushServerException In case object mapping fails.
+     */
+    public CreateInboxBroadcastRequest deserializeInboxBroadcastRequest(String request) throws PushServerException {
+        try {
+            return objectMapper.readValue(request, CreateInboxBroadcastRequest.class);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            throw new PushServerException("Failed parsing from JSON", e);
+        }
+    }
+
+    /**
+     * Method used for serializing inbox broadcast request into JSON.
+     *
+     * @param request Inbox broadcast request to be serialized.
+     * @return JSON containing the request.
+     * @throws PushServerException In case object mapping fails.
+     */
+    public String serializeInboxBroadcastRequest(CreateInboxBroadcastRequest request) throws PushServerException {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            logger.error(e.getMessage(), e);
+            throw new PushServerException("Failed parsing into JSON", e);
+        }
+    }
 }
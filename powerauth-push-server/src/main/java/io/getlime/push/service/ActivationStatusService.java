@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import com.wultra.security.powerauth.client.model.enumeration.ActivationStatus;
+import com.wultra.security.powerauth.client.model.error.PowerAuthClientException;
+import com.wultra.security.powerauth.client.model.response.GetActivationStatusResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service resolving activation status from PowerAuth server.
+ * <p>
+ * Lookups of multiple activations are executed in parallel. Resolved statuses are kept in a short-lived cache,
+ * so repeated registrations of the same device do not need a PowerAuth round trip.
+ */
+@Service
+@Slf4j
+public class ActivationStatusService {
+
+    private final PowerAuthClient powerAuthClient;
+    private final Cache<String, ActivationStatusDetail> activationStatusCache;
+    private final ExecutorService executorService;
+
+    /**
+     * Service constructor.
+     * @param powerAuthClient PowerAuth client.
+     * @param activationStatusCache Cache of activation statuses keyed by activation ID.
+     * @param parallelism Maximum number of concurrent activation status lookups.
+     */
+    public ActivationStatusService(
+            final PowerAuthClient powerAuthClient,
+            final Cache<String, ActivationStatusDetail> activationStatusCache,
+            @Value("${powerauth.push.service.registration.activationStatus.lookupParallelism:4}") final int parallelism) {
+        this.powerAuthClient = powerAuthClient;
+        this.activationStatusCache = activationStatusCache;
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            final Thread thread = new Thread(runnable, "activation-status-lookup-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fetch activation status, use the cached value if available.
+     * @param activationId Activation ID.
+     * @return Activation status detail or {@code null} if the activation does not exist.
+     * @throws PowerAuthClientException In case communication with PowerAuth server fails.
+     */
+    public ActivationStatusDetail fetchActivationStatus(final String activationId) throws PowerAuthClientException {
+        final ActivationStatusDetail cached = activationStatusCache.getIfPresent(activationId);
+        if (cached != null) {
+            logger.debug("Activation status resolved from cache, activation ID: {}", activationId);
+            return cached;
+        }
+        final GetActivationStatusResponse response = powerAuthClient.getActivationStatus(activationId);
+        if (response == null) {
+            return null;
+        }
+        final ActivationStatusDetail detail = new ActivationStatusDetail(activationId, response.getUserId(), response.getActivationStatus());
+        activationStatusCache.put(activationId, detail);
+        return detail;
+    }
+
+    /**
+     * Fetch activation statuses of given activations. Activations not present in the cache are looked up in parallel.
+     * Activations whose status could not be resolved are missing in the result.
+     * @param activationIds Activation IDs.
+     * @return Activation status details keyed by activation ID.
+     */
+    public Map<String, ActivationStatusDetail> fetchActivationStatuses(final Collection<String> activationIds) {
+        final Set<String> distinctActivationIds = new LinkedHashSet<>(activationIds);
+        if (distinctActivationIds.size() == 1) {
+            final String activationId = distinctActivationIds.iterator().next();
+            final ActivationStatusDetail detail = fetchActivationStatusSafely(activationId);
+            return detail != null ? Map.of(activationId, detail) : Collections.emptyMap();
+        }
+
+        final Map<String, CompletableFuture<ActivationStatusDetail>> lookups = new LinkedHashMap<>();
+        for (String activationId : distinctActivationIds) {
+            lookups.put(activationId, CompletableFuture.supplyAsync(() -> fetchActivationStatusSafely(activationId), executorService));
+        }
+
+        final Map<String, ActivationStatusDetail> result = new HashMap<>();
+        lookups.forEach((activationId, lookup) -> {
+            final ActivationStatusDetail detail = lookup.join();
+            if (detail != null) {
+                result.put(activationId, detail);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Remove activation status from the cache, e.g. when PowerAuth server notifies about a status change.
+     * @param activationId Activation ID.
+     */
+    public void invalidate(final String activationId) {
+        activationStatusCache.invalidate(activationId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    private ActivationStatusDetail fetchActivationStatusSafely(final String activationId) {
+        try {
+            return fetchActivationStatus(activationId);
+        } catch (PowerAuthClientException | RuntimeException ex) {
+            logger.warn("Activation status lookup failed, activation ID: {}, error: {}", activationId, ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Activation status detail relevant for device registration.
+     *
+     * @param activationId Activation ID.
+     * @param userId User ID.
+     * @param activationStatus Activation status.
+     */
+    public record ActivationStatusDetail(String activationId, String userId, ActivationStatus activationStatus) {
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.getlime.push.repository.AppCredentialsRepository;
+import io.getlime.push.repository.model.aggregate.AppCredentialsVersion;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cross-node invalidation of the {@link AppRelatedPushClient} cache.
+ * <p>
+ * Administration on a single node refreshes the local cache after commit only. Other nodes of a cluster periodically
+ * poll the app IDs and {@code timestamp_last_updated} column of all app credentials (without loading the private keys)
+ * and refresh the entries whose version differs from the cached one. Entries of removed applications are invalidated.
+ */
+@Component
+@ConditionalOnProperty(value = "powerauth.push.service.clients.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+@AllArgsConstructor
+@Slf4j
+public class AppRelatedPushClientCacheInvalidator {
+
+    private final AppCredentialsRepository appCredentialsRepository;
+
+    private final LoadingCache<String, AppRelatedPushClient> appRelatedPushClientCache;
+
+    /**
+     * Compare versions of the cached app credentials with the database and refresh the stale ones.
+     */
+    @Scheduled(
+            initialDelayString = "${powerauth.push.service.clients.cache.invalidation.pollInterval:10s}",
+            fixedDelayString = "${powerauth.push.service.clients.cache.invalidation.pollInterval:10s}")
+    public void invalidateChangedAppCredentials() {
+        final Set<String> cachedAppIds = Set.copyOf(appRelatedPushClientCache.asMap().keySet());
+        if (cachedAppIds.isEmpty()) {
+            logger.trace("AppRelatedPushClient cache is empty, nothing to invalidate");
+            return;
+        }
+
+        final Map<String, LocalDateTime> versions = new HashMap<>();
+        try {
+            for (AppCredentialsVersion version : appCredentialsRepository.findAllVersions()) {
+                versions.put(version.appId(), version.timestampLastUpdated());
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to fetch app credentials versions, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+            return;
+        }
+
+        for (String appId : cachedAppIds) {
+            if (!versions.containsKey(appId)) {
+                logger.info("AppCredentials does not exist anymore, invalidating cache for app: {}", appId);
+                appRelatedPushClientCache.invalidate(appId);
+                continue;
+            }
+            final AppRelatedPushClient cached = appRelatedPushClientCache.getIfPresent(appId);
+            if (cached == null || cached.getAppCredentials() == null) {
+                continue;
+            }
+            final LocalDateTime lastUpdatedInDb = versions.get(appId);
+            final LocalDateTime lastUpdatedInCache = cached.getAppCredentials().getTimestampLastUpdated();
+            if (!Objects.equals(lastUpdatedInCache, lastUpdatedInDb)) {
+                logger.info("AppCredentials changed on another node, refreshing cache for app: {}", appId);
+                appRelatedPushClientCache.refresh(appId);
+            }
+        }
+    }
+
+}
@@ -16,20 +16,19 @@
 
 package io.getlime.push.service;
 
-import com.wultra.security.powerauth.client.PowerAuthClient;
 import com.wultra.security.powerauth.client.model.enumeration.ActivationStatus;
-import com.wultra.security.powerauth.client.model.error.PowerAuthClientException;
-import com.wultra.security.powerauth.client.model.response.GetActivationStatusResponse;
+import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.enumeration.ApnsEnvironment;
 import io.getlime.push.model.enumeration.MobilePlatform;
 import io.getlime.push.model.request.CreateDeviceForActivationsRequest;
 import io.getlime.push.model.request.CreateDeviceRequest;
-import io.getlime.push.model.request.UpdateDeviceStatusRequest;
 import io.getlime.push.repository.PushDeviceRepository;
+import io.getlime.push.repository.dao.PushDeviceRegistrationDAO;
 import io.getlime.push.repository.model.AppCredentialsEntity;
 import io.getlime.push.repository.model.Platform;
 import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
+import io.getlime.push.service.ActivationStatusService.ActivationStatusDetail;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -38,9 +37,13 @@ import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -55,18 +58,41 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class DeviceRegistrationService {
 
     private final PushDeviceRepository pushDeviceRepository;
-    private final PowerAuthClient powerAuthClient;
+    private final PushDeviceRegistrationDAO pushDeviceRegistrationDAO;
+    private final PushServiceConfiguration config;
+    private final InvalidTokenFilter invalidTokenFilter;
 
+    /**
+     * Create or update device registration.
+     * The activation status is expected to be resolved before the transaction is started, see
+     * {@link ActivationStatusService#fetchActivationStatus(String)}, so that the DB connection is held only for the
+     * lookup and save. In case of a concurrent insert, only the short DB transaction is retried.
+     * <p>
+     * Unless associated activations are enabled, the registration is stored using a single statement upsert on
+     * activation ID when supported by the database, see {@link PushDeviceRegistrationDAO#upsert(PushDeviceRegistrationEntity)}.
+     *
+     * @param requestObject Device registration request.
+     * @param appCredentials App credentials.
+     * @param activation Resolved activation status, {@code null} if the activation does not exist.
+     * @throws PushServerException In case the registration fails.
+     */
     @Retryable(retryFor = DataIntegrityViolationException.class,
             maxAttemptsExpression = "${powerauth.push.service.registration.retry.maxAttempts:2}",
             backoff = @Backoff(delayExpression = "${powerauth.push.service.registration.retry.backoff:100}"))
-    @Transactional
-    public void createOrUpdateDevice(final CreateDeviceRequest requestObject, final AppCredentialsEntity appCredentials) throws PushServerException {
+    @Transactional(rollbackFor = PushServerException.class)
+    public void createOrUpdateDevice(final CreateDeviceRequest requestObject, final AppCredentialsEntity appCredentials,
+                                     final ActivationStatusDetail activation) throws PushServerException {
         final String appId = requestObject.getAppId();
         final String pushToken = requestObject.getToken();
         final MobilePlatform platform = requestObject.getPlatform();
         final ApnsEnvironment environment = requestObject.getEnvironment();
         final String activationId = requestObject.getActivationId();
+        flagInvalidToken(appId, pushToken);
+
+        if (isUpsertEnabled()) {
+            upsertDevice(requestObject, appCredentials, activation);
+            return;
+        }
 
         final List<PushDeviceRegistrationEntity> devices = lookupDeviceRegistrations(appId, activationId, pushToken);
         final PushDeviceRegistrationEntity device;
@@ -92,17 +118,29 @@ public class DeviceRegistrationService {
         device.setTimestampLastRegistered(new Date());
         device.setPlatform(convert(platform));
         device.setEnvironment(environment != null ? environment.getKey() : null);
-        updateActivationForDevice(device, activationId);
+        updateActivationForDevice(device, activationId, activation);
         pushDeviceRepository.save(device);
     }
 
+    /**
+     * Create or update device registrations for multiple associated activations.
+     * Activation statuses are expected to be resolved before the transaction is started, see
+     * {@link ActivationStatusService#fetchActivationStatuses(java.util.Collection)}.
+     *
+     * @param request Device registration request.
+     * @param appCredentials App credentials.
+     * @param activationStatuses Activation statuses keyed by activation ID.
+     * @throws PushServerException In case any of the registrations fails.
+     */
     @Transactional
-    public void createOrUpdateDevices(final CreateDeviceForActivationsRequest request, final AppCredentialsEntity appCredentials) throws PushServerException {
+    public void createOrUpdateDevices(final CreateDeviceForActivationsRequest request, final AppCredentialsEntity appCredentials,
+                                      final Map<String, ActivationStatusDetail> activationStatuses) throws PushServerException {
         final String appId = request.getAppId();
         final String pushToken = request.getToken();
         final MobilePlatform platform = request.getPlatform();
         final ApnsEnvironment environment = request.getEnvironment();
         final List<String> activationIds = request.getActivationIds();
+        flagInvalidToken(appId, pushToken);
 
         // Initialize loop variables.
         final AtomicBoolean registrationFailed = new AtomicBoolean(false);
@@ -135,7 +173,7 @@ public class DeviceRegistrationService {
                 device.setTimestampLastRegistered(new Date());
                 device.setPlatform(convert(platform));
                 device.setEnvironment(environment != null ? environment.getKey() : null);
-                updateActivationForDevice(device, activationId);
+                updateActivationForDevice(device, activationId, activationStatuses.get(activationId));
                 PushDeviceRegistrationEntity registeredDevice = pushDeviceRepository.save(device);
                 usedDeviceRegistrationIds.add(registeredDevice.getId());
             } catch (PushServerException ex) {
@@ -149,26 +187,168 @@ public class DeviceRegistrationService {
         }
     }
 
+    /**
+     * Update status of all device registrations for given activation.
+     *
+     * @param activationId Activation ID.
+     * @param activationStatus Activation status, resolved before the transaction is started.
+     */
     @Transactional
-    public void updateStatus(final UpdateDeviceStatusRequest request) throws PushServerException {
-        final String activationId = request.getActivationId();
-
+    public void updateStatus(final String activationId, final ActivationStatus activationStatus) {
         final List<PushDeviceRegistrationEntity> device = pushDeviceRepository.findByActivationId(activationId);
 
-        final ActivationStatus activationStatus = request.getActivationStatus() == null ? fetchActivationStatus(activationId) : request.getActivationStatus();
-
         for (PushDeviceRegistrationEntity registration : device) {
             registration.setActive(activationStatus == ActivationStatus.ACTIVE);
             pushDeviceRepository.save(registration);
         }
     }
 
+    /**
+     * Whether device registrations may be created in bulk using JDBC batches.
+     * @return True if bulk upsert is available, false if devices need to be registered one by one.
+     */
+    public boolean isBulkUpsertEnabled() {
+        return isUpsertEnabled();
+    }
+
+    /**
+     * Prepare a device registration entity for the bulk upsert.
+     * @param requestObject Device registration request.
+     * @param appCredentials App credentials.
+     * @param activation Resolved activation status.
+     * @return Device registration entity, not persisted.
+     * @throws PushServerException In case the activation is not usable for registration.
+     */
+    public PushDeviceRegistrationEntity prepareDevice(final CreateDeviceRequest requestObject, final AppCredentialsEntity appCredentials,
+                                                      final ActivationStatusDetail activation) throws PushServerException {
+        final ApnsEnvironment environment = requestObject.getEnvironment();
+        flagInvalidToken(requestObject.getAppId(), requestObject.getToken());
+        final PushDeviceRegistrationEntity device = initDeviceRegistrationEntity(appCredentials, requestObject.getToken());
+        device.setTimestampLastRegistered(new Date());
+        device.setPlatform(convert(requestObject.getPlatform()));
+        device.setEnvironment(environment != null ? environment.getKey() : null);
+        updateActivationForDevice(device, requestObject.getActivationId(), activation);
+        return device;
+    }
+
+    /**
+     * Create or update device registrations using JDBC batches. Registrations of other activations with the same
+     * push token are deleted. In case the same push token or activation occurs in the batch more than once, only the
+     * last registration is applied.
+     * @param devices Device registrations prepared by {@link #prepareDevice(CreateDeviceRequest, AppCredentialsEntity, ActivationStatusDetail)}.
+     * @throws IllegalStateException In case multiple registrations of other activations exist for a push token and
+     * the activation is not registered yet, the whole batch is rolled back.
+     */
+    @Transactional
+    public void upsertDevices(final List<PushDeviceRegistrationEntity> devices) {
+        final List<PushDeviceRegistrationEntity> lastDevices = filterLastDevices(devices);
+        final int[] deleted = pushDeviceRegistrationDAO.deleteOtherActivations(lastDevices);
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 1 && !pushDeviceRepository.existsByActivationId(lastDevices.get(i).getActivationId())) {
+                // Push token can be associated with multiple activations only when associated activations are enabled.
+                final PushDeviceRegistrationEntity device = lastDevices.get(i);
+                logger.info("Multiple device registrations found: app ID: {}, activation ID: {}, platform: {}", device.getAppCredentials().getAppId(), device.getActivationId(), device.getPlatform());
+                throw new IllegalStateException("Multiple device registrations found for push token, activation ID: " + device.getActivationId());
+            }
+        }
+        pushDeviceRegistrationDAO.upsertAll(lastDevices);
+    }
+
+    /**
+     * Delete device registrations by application and push token using a JDBC batch.
+     * @param appCredentialsIds Application record IDs.
+     * @param pushTokens Push tokens, matching the application record IDs by index.
+     */
+    @Transactional
+    public void deleteDevices(final List<Long> appCredentialsIds, final List<String> pushTokens) {
+        pushDeviceRegistrationDAO.deleteAllByAppAndPushToken(appCredentialsIds, pushTokens);
+    }
+
+    /**
+     * Update status of device registrations using a JDBC batch.
+     * @param activationStatuses Activation statuses by activation ID, resolved before the transaction is started.
+     * @return Activation IDs without any device registration.
+     */
+    @Transactional
+    public Set<String> updateStatuses(final Map<String, ActivationStatus> activationStatuses) {
+        final Map<String, Boolean> activeByActivationId = new LinkedHashMap<>();
+        activationStatuses.forEach((activationId, status) -> activeByActivationId.put(activationId, status == ActivationStatus.ACTIVE));
+        final int[] counts = pushDeviceRegistrationDAO.updateActive(activeByActivationId);
+        final Set<String> notFound = new HashSet<>();
+        int i = 0;
+        for (String activationId : activeByActivationId.keySet()) {
+            if (counts[i++] == 0) {
+                notFound.add(activationId);
+            }
+        }
+        return notFound;
+    }
+
     @Transactional
     public void delete(final String appId, final String pushToken) {
         final List<PushDeviceRegistrationEntity> devices = pushDeviceRepository.findByAppCredentialsAppIdAndPushToken(appId, pushToken);
         pushDeviceRepository.deleteAll(devices);
     }
 
+    // Later registrations supersede earlier ones with the same activation or push token, as if registered one by one
+    private static List<PushDeviceRegistrationEntity> filterLastDevices(final List<PushDeviceRegistrationEntity> devices) {
+        final Set<String> activationIds = new HashSet<>();
+        final Set<List<Object>> pushTokens = new HashSet<>();
+        final List<PushDeviceRegistrationEntity> result = new ArrayList<>(devices.size());
+        for (int i = devices.size() - 1; i >= 0; i--) {
+            final PushDeviceRegistrationEntity device = devices.get(i);
+            final List<Object> pushToken = List.of(device.getAppCredentials().getId(), device.getPushToken());
+            if (!activationIds.contains(device.getActivationId()) && !pushTokens.contains(pushToken)) {
+                activationIds.add(device.getActivationId());
+                pushTokens.add(pushToken);
+                result.add(device);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Registration of a push token recently rejected as invalid is not refused, messages to the token are skipped until the filter forgets it
+    private void flagInvalidToken(final String appId, final String pushToken) {
+        if (invalidTokenFilter.mightContain(appId, pushToken)) {
+            logger.warn("Registered push token was recently rejected as invalid by the push service provider, messages to the token are not sent, app ID: {}", appId);
+        }
+    }
+
+    private boolean isUpsertEnabled() {
+        return config.isRegistrationUpsertEnabled()
+                && !config.isRegistrationOfMultipleActivationsEnabled()
+                && pushDeviceRegistrationDAO.isUpsertSupported();
+    }
+
+    /**
+     * Create or update device registration without prior lookups.
+     * <br/>
+     * At first, registrations of other activations with the same push token are deleted, the user removed an activation
+     * and created a new one while the push token remained the same. Then the registration is upserted by activation ID.
+     * @param requestObject Device registration request.
+     * @param appCredentials App credentials.
+     * @param activation Resolved activation status.
+     * @throws PushServerException In case the activation is not usable or multiple registrations exist for the push token
+     * while the activation is not registered yet.
+     */
+    private void upsertDevice(final CreateDeviceRequest requestObject, final AppCredentialsEntity appCredentials, final ActivationStatusDetail activation) throws PushServerException {
+        final String activationId = requestObject.getActivationId();
+        final String pushToken = requestObject.getToken();
+
+        final int deleted = pushDeviceRepository.deleteOtherActivationsByAppCredentialsIdAndPushToken(appCredentials.getId(), pushToken, activationId);
+        // An existing registration of the activation is updated, as in case of the lookup by activation ID
+        if (deleted > 1 && !pushDeviceRepository.existsByActivationId(activationId)) {
+            // Push token can be associated with multiple activations only when associated activations are enabled.
+            logger.info("Multiple device registrations found: app ID: {}, activation ID: {}, platform: {}", requestObject.getAppId(), activationId, requestObject.getPlatform());
+            throw new PushServerException("Multiple device registrations found for push token. Use the /push/device/create/multi endpoint for this scenario.");
+        }
+
+        logger.info("Upserting device registration: app ID: {}, activation ID: {}, platform: {}", requestObject.getAppId(), activationId, requestObject.getPlatform());
+        final PushDeviceRegistrationEntity device = prepareDevice(requestObject, appCredentials, activation);
+        pushDeviceRegistrationDAO.upsert(device);
+    }
+
     /**
      * Lookup device registrations using app ID, activation ID and push token.
      * <br/>
@@ -231,35 +411,22 @@ public class DeviceRegistrationService {
     }
 
     /**
-     * Update activation for given device in case activation exists in PowerAuth server and it is not in REMOVED state.
-     * Otherwise fail the device registration because registration could not be associated with an activation.
+     * Update activation for given device using already resolved activation status.
      * @param device Push device registration entity.
      * @param activationId Activation ID.
-     * @throws PushServerException Throw in case communication with PowerAuth server fails.
+     * @param activation Resolved activation status, {@code null} if the status could not be resolved.
+     * @throws PushServerException Throw in case the activation status is unknown or the activation is removed.
      */
-    private void updateActivationForDevice(PushDeviceRegistrationEntity device, String activationId) throws PushServerException {
-        try {
-            final GetActivationStatusResponse activation = powerAuthClient.getActivationStatus(activationId);
-            if (activation != null && !ActivationStatus.REMOVED.equals(activation.getActivationStatus())) {
-                device.setActivationId(activationId);
-                device.setActive(activation.getActivationStatus().equals(ActivationStatus.ACTIVE));
-                device.setUserId(activation.getUserId());
-                return;
-            }
-            throw new PushServerException("Device registration failed because associated activation is not ACTIVE");
-        } catch (PowerAuthClientException ex) {
-            logger.warn(ex.getMessage(), ex);
+    private static void updateActivationForDevice(PushDeviceRegistrationEntity device, String activationId, ActivationStatusDetail activation) throws PushServerException {
+        if (activation == null) {
             throw new PushServerException("Device registration failed because activation status is unknown");
         }
-    }
-
-    private ActivationStatus fetchActivationStatus(final String activationId) throws PushServerException {
-        try {
-            return powerAuthClient.getActivationStatus(activationId).getActivationStatus();
-        } catch (PowerAuthClientException ex) {
-            logger.warn(ex.getMessage(), ex);
-            throw new PushServerException("Update device status failed because activation status is unknown");
+        if (ActivationStatus.REMOVED.equals(activation.activationStatus())) {
+            throw new PushServerException("Device registration failed because associated activation is not ACTIVE");
         }
+        device.setActivationId(activationId);
+        device.setActive(ActivationStatus.ACTIVE.equals(activation.activationStatus()));
+        device.setUserId(activation.userId());
     }
 
     private static Platform convert(final MobilePlatform source) {
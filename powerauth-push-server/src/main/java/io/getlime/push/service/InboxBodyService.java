@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.getlime.push.repository.InboxBodyRepository;
+import io.getlime.push.repository.dao.InboxMessageDAO;
+import io.getlime.push.repository.model.InboxBodyEntity;
+import io.getlime.push.repository.model.InboxMessageEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+
+/**
+ * Service storing inbox message bodies deduplicated by the hash of their content.
+ * <p>
+ * When the deduplication is enabled, the body of a new message is stored once in table push_inbox_body and the
+ * inbox message only references its hash. Bodies are immutable, so the frequently read ones are kept in a cache.
+ */
+@Service
+@Slf4j
+public class InboxBodyService {
+
+    private final InboxBodyRepository inboxBodyRepository;
+    private final InboxMessageDAO inboxMessageDAO;
+    private final Cache<String, String> inboxBodyCache;
+    private final boolean deduplicationEnabled;
+
+    /**
+     * Constructor with injected beans.
+     * @param inboxBodyRepository Inbox body repository.
+     * @param inboxMessageDAO Inbox message DAO.
+     * @param inboxBodyCache Cache of bodies keyed by hash.
+     * @param deduplicationEnabled Whether bodies of new messages are deduplicated.
+     */
+    public InboxBodyService(
+            final InboxBodyRepository inboxBodyRepository,
+            final InboxMessageDAO inboxMessageDAO,
+            final Cache<String, String> inboxBodyCache,
+            @Value("${powerauth.push.service.inbox.body.deduplication.enabled:false}") final boolean deduplicationEnabled) {
+        this.inboxBodyRepository = inboxBodyRepository;
+        this.inboxMessageDAO = inboxMessageDAO;
+        this.inboxBodyCache = inboxBodyCache;
+        this.deduplicationEnabled = deduplicationEnabled;
+    }
+
+    /**
+     * Whether bodies of new messages are deduplicated.
+     * @return True if deduplication is enabled.
+     */
+    public boolean isDeduplicationEnabled() {
+        return deduplicationEnabled;
+    }
+
+    /**
+     * Store the body unless a body with the same hash is already stored. The body is inserted within the calling
+     * transaction, so it is not stored when the transaction storing the message rolls back. The body is not put
+     * into the cache before it is committed, it is cached once it is read.
+     * @param body Message body.
+     * @return Hash of the body.
+     */
+    public String storeBody(final String body) {
+        final String bodyHash = hash(body);
+        inboxMessageDAO.insertBodyIfAbsent(bodyHash, body, new Date());
+        return bodyHash;
+    }
+
+    /**
+     * Resolve the body of the message, either stored inline or referenced by hash.
+     * @param message Inbox message.
+     * @return Message body.
+     */
+    public String resolveBody(final InboxMessageEntity message) {
+        final String bodyHash = message.getBodyHash();
+        if (bodyHash == null) {
+            return message.getBody();
+        }
+        final String body = inboxBodyCache.get(bodyHash, key -> inboxBodyRepository.findById(key)
+                .map(InboxBodyEntity::getBody)
+                .orElse(null));
+        if (body == null) {
+            logger.warn("Inbox body was not found, message ID: {}, hash: {}", message.getInboxId(), bodyHash);
+        }
+        return body;
+    }
+
+    /**
+     * Compute the SHA-256 hash of the body, hex encoded.
+     * @param body Message body.
+     * @return Hash of the body.
+     */
+    static String hash(final String body) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+}
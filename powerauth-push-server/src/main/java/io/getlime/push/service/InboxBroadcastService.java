@@ -0,0 +1,338 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.errorhandling.exceptions.AppNotFoundException;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.request.CreateInboxBroadcastRequest;
+import io.getlime.push.model.response.GetInboxBroadcastDetailResponse;
+import io.getlime.push.repository.AppCredentialsRepository;
+import io.getlime.push.repository.PushCampaignRepository;
+import io.getlime.push.repository.PushCampaignUserRepository;
+import io.getlime.push.repository.converter.InboxMessageConverter;
+import io.getlime.push.repository.dao.InboxBroadcastDAO;
+import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.InboxBroadcastEntity;
+import io.getlime.push.repository.model.InboxMessageEntity;
+import io.getlime.push.repository.model.PushCampaignUserEntity;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service posting the same inbox message to many users in the background.
+ * <p>
+ * Users are either listed in the request or read from a campaign. Broadcasts and their progress are stored in the
+ * database, so that the progress is available on all nodes. Messages are inserted in chunks using JDBC batches, each
+ * chunk in the transaction which moves the broadcast to the next position. A broadcast is processed by the node which
+ * claimed it, the claim is extended with every chunk. Broadcasts whose claim expired, e.g. due to a restart of the node,
+ * are resumed by any node from the last committed position.
+ */
+@Service
+@Slf4j
+public class InboxBroadcastService {
+
+    private static final int ERROR_MESSAGE_MAX_LENGTH = 255;
+
+    private final AppCredentialsRepository appCredentialsRepository;
+    private final PushCampaignRepository pushCampaignRepository;
+    private final PushCampaignUserRepository pushCampaignUserRepository;
+    private final InboxBroadcastDAO inboxBroadcastDAO;
+    private final InboxMessageConverter inboxMessageConverter;
+    private final InboxUnreadCountService inboxUnreadCountService;
+    private final InboxBodyService inboxBodyService;
+    private final JsonSerialization jsonSerialization;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration retention;
+    private final Duration claimTimeout;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executorService;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor with injected beans.
+     * @param appCredentialsRepository App credentials repository.
+     * @param pushCampaignRepository Push campaign repository.
+     * @param pushCampaignUserRepository Push campaign user repository.
+     * @param inboxBroadcastDAO Inbox broadcast DAO.
+     * @param inboxMessageConverter Inbox message converter.
+     * @param inboxUnreadCountService Inbox unread count service.
+     * @param inboxBodyService Inbox body service.
+     * @param jsonSerialization JSON serialization.
+     * @param batchSize Number of messages inserted in a single transaction.
+     * @param concurrency Maximum number of broadcasts processed concurrently by a node.
+     * @param retention Duration for which the progress of a finished broadcast is available.
+     * @param claimTimeout Duration after which an unfinished broadcast without progress is resumed by any node.
+     */
+    public InboxBroadcastService(
+            final AppCredentialsRepository appCredentialsRepository,
+            final PushCampaignRepository pushCampaignRepository,
+            final PushCampaignUserRepository pushCampaignUserRepository,
+            final InboxBroadcastDAO inboxBroadcastDAO,
+            final InboxMessageConverter inboxMessageConverter,
+            final InboxUnreadCountService inboxUnreadCountService,
+            final InboxBodyService inboxBodyService,
+            final JsonSerialization jsonSerialization,
+            @Value("${powerauth.push.service.inbox.broadcast.batchSize:1000}") final int batchSize,
+            @Value("${powerauth.push.service.inbox.broadcast.concurrency:1}") final int concurrency,
+            @Value("${powerauth.push.service.inbox.broadcast.retention:24h}") final Duration retention,
+            @Value("${powerauth.push.service.inbox.broadcast.claimTimeout:5m}") final Duration claimTimeout) {
+
+        this.appCredentialsRepository = appCredentialsRepository;
+        this.pushCampaignRepository = pushCampaignRepository;
+        this.pushCampaignUserRepository = pushCampaignUserRepository;
+        this.inboxBroadcastDAO = inboxBroadcastDAO;
+        this.inboxMessageConverter = inboxMessageConverter;
+        this.inboxUnreadCountService = inboxUnreadCountService;
+        this.inboxBodyService = inboxBodyService;
+        this.jsonSerialization = jsonSerialization;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.retention = retention;
+        this.claimTimeout = claimTimeout;
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(this.concurrency, runnable -> {
+            final Thread thread = new Thread(runnable, "inbox-broadcast-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shutdown the executor, broadcasts in progress are interrupted and resumed once their claim expires.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Accept a broadcast of an inbox message, the messages are posted in the background.
+     *
+     * @param request Broadcast request.
+     * @return Detail of the accepted broadcast.
+     * @throws AppNotFoundException In case an app with provided ID was not found.
+     * @throws PushServerException In case the request is invalid.
+     */
+    public GetInboxBroadcastDetailResponse postBroadcast(final CreateInboxBroadcastRequest request) throws AppNotFoundException, PushServerException {
+        final boolean hasUsers = request.getUserIds() != null && !request.getUserIds().isEmpty();
+        final boolean hasCampaign = request.getCampaignId() != null;
+        if (hasUsers == hasCampaign) {
+            throw new PushServerException("Either user IDs or campaign ID must be specified");
+        }
+
+        final List<AppCredentialsEntity> apps = appCredentialsRepository.findAllByAppIdIn(request.getApplications());
+        if (apps.size() != request.getApplications().size()) {
+            logger.info("Application list received: {}, apps configured in the system: {}.", request.getApplications(), apps.stream().map(AppCredentialsEntity::getAppId).toList());
+            throw new AppNotFoundException("Application list contained an app that is not configured in the system.");
+        }
+
+        final long totalCount;
+        if (hasCampaign) {
+            if (!pushCampaignRepository.existsById(request.getCampaignId())) {
+                throw new PushServerException("Campaign with entered ID does not exist");
+            }
+            totalCount = pushCampaignUserRepository.countByCampaignId(request.getCampaignId());
+        } else {
+            totalCount = request.getUserIds().size();
+        }
+
+        final InboxBroadcastEntity broadcast = new InboxBroadcastEntity();
+        broadcast.setId(UUID.randomUUID().toString());
+        broadcast.setRequest(jsonSerialization.serializeInboxBroadcastRequest(request));
+        broadcast.setState(InboxBroadcastEntity.State.QUEUED);
+        broadcast.setTotalCount(totalCount);
+        broadcast.setTimestampCreated(new Date());
+        inboxBroadcastDAO.create(broadcast);
+        submit(broadcast.getId());
+        logger.info("Accepted inbox broadcast, ID: {}, campaign ID: {}, users: {}", broadcast.getId(), request.getCampaignId(), totalCount);
+        return convert(broadcast);
+    }
+
+    /**
+     * Fetch state and progress of a broadcast.
+     *
+     * @param id Broadcast ID.
+     * @return Detail of the broadcast.
+     * @throws PushServerException In case the broadcast was not found.
+     */
+    public GetInboxBroadcastDetailResponse fetchBroadcastDetail(final String id) throws PushServerException {
+        final InboxBroadcastEntity broadcast = inboxBroadcastDAO.findById(id)
+                .orElseThrow(() -> new PushServerException("Inbox broadcast was not found: " + id));
+        return convert(broadcast);
+    }
+
+    /**
+     * Resume unfinished broadcasts which are not claimed by any node and delete broadcasts finished before
+     * the retention period.
+     */
+    @Scheduled(
+            initialDelayString = "${powerauth.push.service.inbox.broadcast.pollInterval:30s}",
+            fixedDelayString = "${powerauth.push.service.inbox.broadcast.pollInterval:30s}")
+    public void resumeBroadcasts() {
+        try {
+            for (String id : inboxBroadcastDAO.findClaimableIds(claimTimeout, concurrency)) {
+                if (!queued.contains(id)) {
+                    logger.info("Resuming inbox broadcast, ID: {}", id);
+                    submit(id);
+                }
+            }
+            final int count = inboxBroadcastDAO.deleteFinishedBefore(new Date(System.currentTimeMillis() - retention.toMillis()));
+            if (count > 0) {
+                logger.debug("Deleted finished inbox broadcasts: {}", count);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to resume inbox broadcasts, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+        }
+    }
+
+    private void submit(final String id) {
+        if (!queued.add(id)) {
+            return;
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    processBroadcast(id);
+                } finally {
+                    queued.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            queued.remove(id);
+            logger.warn("Inbox broadcast was not submitted, ID: {}, it is resumed once its claim expires", id);
+        }
+    }
+
+    private void processBroadcast(final String id) {
+        if (!running || !inboxBroadcastDAO.claim(id, claimTimeout)) {
+            logger.debug("Inbox broadcast is claimed by another node or finished, ID: {}", id);
+            return;
+        }
+        final InboxBroadcastEntity broadcast = inboxBroadcastDAO.findById(id).orElse(null);
+        if (broadcast == null) {
+            return;
+        }
+        long position = broadcast.getResumePosition();
+        long postedCount = broadcast.getPostedCount();
+        try {
+            final CreateInboxBroadcastRequest request = jsonSerialization.deserializeInboxBroadcastRequest(broadcast.getRequest());
+            final List<AppCredentialsEntity> apps = appCredentialsRepository.findAllByAppIdIn(request.getApplications());
+            if (apps.size() != request.getApplications().size()) {
+                throw new PushServerException("Application list contained an app that is not configured in the system.");
+            }
+            // The body is the same for all users, store it only once
+            final String bodyHash = inboxBodyService.isDeduplicationEnabled() ? inboxBodyService.storeBody(request.getBody()) : null;
+            if (request.getCampaignId() != null) {
+                // Keyset pagination over campaign users, the position is the ID of the last processed user
+                List<PushCampaignUserEntity> users;
+                do {
+                    users = pushCampaignUserRepository.findByCampaignIdAndIdGreaterThanOrderByIdAsc(request.getCampaignId(), position, Limit.of(batchSize));
+                    if (!users.isEmpty()) {
+                        final long nextPosition = users.get(users.size() - 1).getId();
+                        postChunk(id, position, nextPosition, request, apps, bodyHash, users.stream().map(PushCampaignUserEntity::getUserId).toList());
+                        position = nextPosition;
+                        postedCount += users.size();
+                    }
+                } while (users.size() == batchSize);
+            } else {
+                // The position is the number of processed users
+                final List<String> userIds = request.getUserIds();
+                while (position < userIds.size()) {
+                    final int from = (int) position;
+                    final int to = Math.min(from + batchSize, userIds.size());
+                    postChunk(id, from, to, request, apps, bodyHash, userIds.subList(from, to));
+                    position = to;
+                    postedCount += to - from;
+                }
+            }
+            if (inboxBroadcastDAO.finish(id, position, InboxBroadcastEntity.State.COMPLETED, null)) {
+                logger.info("Inbox broadcast completed, ID: {}, posted messages: {}", id, postedCount);
+            }
+        } catch (OptimisticLockingFailureException ex) {
+            logger.info("Inbox broadcast was resumed by another node, ID: {}", id);
+        } catch (PushServerException | RuntimeException ex) {
+            if (!running) {
+                logger.info("Inbox broadcast was interrupted, ID: {}, posted messages: {}, it is resumed once its claim expires", id, postedCount);
+                return;
+            }
+            logger.warn("Inbox broadcast failed, ID: {}, posted messages: {}, error: {}", id, postedCount, ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+            inboxBroadcastDAO.finish(id, position, InboxBroadcastEntity.State.FAILED, truncate(ex.getMessage()));
+        }
+    }
+
+    private void postChunk(final String id, final long position, final long nextPosition, final CreateInboxBroadcastRequest request,
+                           final List<AppCredentialsEntity> apps, final String bodyHash, final List<String> userIds) {
+        if (!running) {
+            throw new IllegalStateException("Inbox broadcast service is shutting down");
+        }
+        final Date timestampCreated = new Date();
+        final List<InboxMessageEntity> messages = userIds.stream()
+                .map(userId -> inboxMessageConverter.convert(UUID.randomUUID(), userId, request, apps, timestampCreated))
+                .toList();
+        if (bodyHash != null) {
+            messages.forEach(message -> {
+                message.setBodyHash(bodyHash);
+                message.setBody(null);
+            });
+        }
+        final List<String> appIds = apps.stream().map(AppCredentialsEntity::getAppId).toList();
+        // Counters are incremented after the chunk is committed
+        inboxBroadcastDAO.postChunk(id, position, nextPosition, messages,
+                () -> userIds.forEach(userId -> inboxUnreadCountService.increment(userId, appIds)));
+    }
+
+    private static String truncate(final String errorMessage) {
+        if (errorMessage == null || errorMessage.length() <= ERROR_MESSAGE_MAX_LENGTH) {
+            return errorMessage;
+        }
+        return errorMessage.substring(0, ERROR_MESSAGE_MAX_LENGTH);
+    }
+
+    private static GetInboxBroadcastDetailResponse convert(final InboxBroadcastEntity broadcast) {
+        final GetInboxBroadcastDetailResponse response = new GetInboxBroadcastDetailResponse();
+        response.setId(broadcast.getId());
+        response.setState(GetInboxBroadcastDetailResponse.State.valueOf(broadcast.getState().name()));
+        response.setTotalCount(broadcast.getTotalCount());
+        response.setPostedCount(broadcast.getPostedCount());
+        response.setErrorMessage(broadcast.getErrorMessage());
+        response.setTimestampCreated(broadcast.getTimestampCreated());
+        response.setTimestampFinished(broadcast.getTimestampFinished());
+        return response;
+    }
+
+}
@@ -18,23 +18,31 @@ package io.getlime.push.service;
 
 import io.getlime.push.errorhandling.exceptions.AppNotFoundException;
 import io.getlime.push.errorhandling.exceptions.InboxMessageNotFoundException;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.entity.ListOfInboxMessages;
 import io.getlime.push.model.request.CreateInboxMessageRequest;
 import io.getlime.push.model.response.GetInboxMessageCountResponse;
 import io.getlime.push.model.response.GetInboxMessageDetailResponse;
+import io.getlime.push.model.response.GetInboxMessageListResponse;
 import io.getlime.push.repository.AppCredentialsRepository;
 import io.getlime.push.repository.InboxRepository;
 import io.getlime.push.repository.converter.InboxMessageConverter;
 import io.getlime.push.repository.model.AppCredentialsEntity;
 import io.getlime.push.repository.model.InboxMessageEntity;
+import io.getlime.push.repository.model.aggregate.InboxMessageKey;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -49,18 +57,24 @@ public class InboxService {
     private final InboxRepository inboxRepository;
     private final AppCredentialsRepository appCredentialsRepository;
     private final InboxMessageConverter inboxMessageConverter;
+    private final InboxUnreadCountService inboxUnreadCountService;
+    private final InboxBodyService inboxBodyService;
 
     /**
      * Constructor with injected beans.
      * @param inboxRepository Inbox repository.
      * @param appCredentialsRepository App credentials repository.
      * @param inboxMessageConverter Inbox message converter.
+     * @param inboxUnreadCountService Inbox unread count service.
+     * @param inboxBodyService Inbox body service.
      */
     @Autowired
-    public InboxService(InboxRepository inboxRepository, AppCredentialsRepository appCredentialsRepository, InboxMessageConverter inboxMessageConverter) {
+    public InboxService(InboxRepository inboxRepository, AppCredentialsRepository appCredentialsRepository, InboxMessageConverter inboxMessageConverter, InboxUnreadCountService inboxUnreadCountService, InboxBodyService inboxBodyService) {
         this.inboxRepository = inboxRepository;
         this.appCredentialsRepository = appCredentialsRepository;
         this.inboxMessageConverter = inboxMessageConverter;
+        this.inboxUnreadCountService = inboxUnreadCountService;
+        this.inboxBodyService = inboxBodyService;
     }
 
     /**
@@ -79,9 +93,15 @@ public class InboxService {
         }
         final String userId = request.getUserId();
         final InboxMessageEntity messageEntity = inboxMessageConverter.convert(UUID.randomUUID(), userId, request, apps, new Date());
+        if (inboxBodyService.isDeduplicationEnabled()) {
+            messageEntity.setBodyHash(inboxBodyService.storeBody(request.getBody()));
+            messageEntity.setBody(null);
+        }
         final InboxMessageEntity savedMessageEntity = inboxRepository.save(messageEntity);
+        final List<String> appIds = apps.stream().map(AppCredentialsEntity::getAppId).toList();
+        inboxUnreadCountService.increment(userId, appIds);
         logger.info("Posted new inbox message for user: {}, message ID: {}", userId, messageEntity.getInboxId());
-        return inboxMessageConverter.convertResponse(savedMessageEntity);
+        return inboxMessageConverter.convertResponse(savedMessageEntity, appIds, request.getBody());
     }
 
     /**
@@ -96,19 +116,40 @@ public class InboxService {
      */
     @Transactional(readOnly=true)
     public ListOfInboxMessages fetchMessageListForUser(String userId, List<String> appIds, boolean onlyUnread, Pageable pageable) throws AppNotFoundException {
-        final List<AppCredentialsEntity> apps = fetchAppsForAppIds(appIds);
-        if (apps.size() != appIds.size()) {
-            logger.info("Application list received: {}, apps configured in the system: {}.", appIds, apps.stream().map(AppCredentialsEntity::getAppId).toList());
-            throw new AppNotFoundException("Application list contained an app that is not configured in the system.");
-        }
+        final List<Long> appCredentialsIds = fetchAppCredentialsIdsForAppIds(appIds);
+        final List<InboxMessageKey> keys = inboxRepository.findInboxMessageKeys(userId, appCredentialsIds, onlyUnread, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        final List<InboxMessageEntity> messageEntities = fetchMessages(keys);
+        return inboxMessageConverter.convert(messageEntities);
+    }
 
-        final List<InboxMessageEntity> messageEntities;
-        if (onlyUnread) {
-            messageEntities = inboxRepository.findAllByUserIdAndApplicationsContainingAndReadOrderByTimestampCreatedDesc(userId, appIds, false, pageable);
+    /**
+     * Fetch messages for a given user ID and apps using keyset pagination. The page starts after the message
+     * identified by the cursor, the cursor of the next page is returned in the response.
+     *
+     * @param userId User ID.
+     * @param appIds App IDs.
+     * @param onlyUnread Indication if only unread messages should be returned.
+     * @param after Cursor returned with the previous page, {@code null} for the first page.
+     * @param size Page size.
+     * @return Page of messages with the cursor of the next page.
+     * @throws AppNotFoundException In case an app with provided ID was not found.
+     * @throws PushServerException In case the cursor is invalid.
+     */
+    @Transactional(readOnly=true)
+    public GetInboxMessageListResponse fetchMessageListForUserByCursor(String userId, List<String> appIds, boolean onlyUnread, String after, int size) throws AppNotFoundException, PushServerException {
+        final List<Long> appCredentialsIds = fetchAppCredentialsIdsForAppIds(appIds);
+        // Fetch one more key to find out whether there is a next page
+        final List<InboxMessageKey> keys;
+        if (after == null) {
+            keys = inboxRepository.findInboxMessageKeys(userId, appCredentialsIds, onlyUnread, PageRequest.of(0, size + 1));
         } else {
-            messageEntities = inboxRepository.findInboxMessagesForUserAndApplications(userId, appIds, pageable);
+            final InboxMessageKey cursor = parseCursor(after);
+            keys = inboxRepository.findInboxMessageKeysAfter(userId, appCredentialsIds, onlyUnread, cursor.timestampCreated(), cursor.id(), Limit.of(size + 1));
         }
-        return inboxMessageConverter.convert(messageEntities);
+
+        final List<InboxMessageKey> pageKeys = keys.size() > size ? keys.subList(0, size) : keys;
+        final String nextCursor = keys.size() > size ? formatCursor(pageKeys.get(size - 1)) : null;
+        return new GetInboxMessageListResponse(inboxMessageConverter.convert(fetchMessages(pageKeys)), nextCursor);
     }
 
     /**
@@ -121,20 +162,27 @@ public class InboxService {
     public GetInboxMessageDetailResponse fetchMessageDetail(String inboxId) throws InboxMessageNotFoundException {
         final InboxMessageEntity messageEntity = inboxRepository.findFirstByInboxId(inboxId).orElseThrow(() ->
                 new InboxMessageNotFoundException("Unable to fetch message: " + inboxId + "."));
-        return inboxMessageConverter.convertResponse(messageEntity);
+        final List<String> appIds = inboxRepository.findAppIdsByInboxMessageId(messageEntity.getId());
+        return inboxMessageConverter.convertResponse(messageEntity, appIds, inboxBodyService.resolveBody(messageEntity));
     }
 
     /**
-     * Get the unread message count.
+     * Get the unread message count. The count is served from the cache of unread counters, the database is queried
+     * only in case the counter is not cached.
      * @param userId User ID.
      * @param appId App ID.
      * @return Count of the unread messages.
      * @throws AppNotFoundException In case an app with provided ID was not found.
      */
-    @Transactional(readOnly=true)
+    @Transactional(readOnly = true)
     public GetInboxMessageCountResponse fetchMessageCountForUser(String userId, String appId) throws AppNotFoundException {
+        final Long cachedCountUnread = inboxUnreadCountService.getIfPresent(userId, appId);
+        if (cachedCountUnread != null) {
+            return new GetInboxMessageCountResponse(cachedCountUnread);
+        }
         final AppCredentialsEntity app = fetchAppForAppId(appId);
-        final long countUnread = inboxRepository.countAllByUserIdAndApplicationsContainingAndIsRead(userId, app,false);
+        final long countUnread = inboxUnreadCountService.get(userId, appId,
+                () -> inboxRepository.countAllByUserIdAndApplicationsContainingAndIsRead(userId, app, false));
         return new GetInboxMessageCountResponse(countUnread);
     }
 
@@ -148,14 +196,16 @@ public class InboxService {
     public GetInboxMessageDetailResponse readMessage(String inboxId) throws InboxMessageNotFoundException {
         final InboxMessageEntity inboxMessage = inboxRepository.findFirstByInboxId(inboxId).orElseThrow(() ->
                 new InboxMessageNotFoundException("Unable to mark message: " + inboxId + " as read."));
+        final List<String> appIds = inboxRepository.findAppIdsByInboxMessageId(inboxMessage.getId());
         if (!inboxMessage.isRead()) { // do not call repository save if there is no change.
             inboxMessage.setRead(true);
             inboxMessage.setTimestampRead(new Date());
             logger.info("Marked inbox message as read for message ID: {}", inboxId);
             final InboxMessageEntity savedInboxMessage = inboxRepository.save(inboxMessage);
-            return inboxMessageConverter.convertResponse(savedInboxMessage);
+            inboxUnreadCountService.decrement(inboxMessage.getUserId(), appIds);
+            return inboxMessageConverter.convertResponse(savedInboxMessage, appIds, inboxBodyService.resolveBody(savedInboxMessage));
         } else {
-            return inboxMessageConverter.convertResponse(inboxMessage);
+            return inboxMessageConverter.convertResponse(inboxMessage, appIds, inboxBodyService.resolveBody(inboxMessage));
         }
     }
 
@@ -168,10 +218,42 @@ public class InboxService {
     @Transactional
     public void readAllMessages(String userId, String appId) throws AppNotFoundException {
         final AppCredentialsEntity appCredentialsEntity = fetchAppForAppId(appId);
+        // Messages read in bulk may be posted for other applications as well, their counters change too
+        final Set<String> appIds = new HashSet<>(inboxRepository.findAppIdsOfUnreadMessages(userId, appCredentialsEntity));
+        appIds.add(appId);
         int countRead = inboxRepository.markAllAsRead(userId, appCredentialsEntity, new Date());
+        inboxUnreadCountService.evict(userId, appIds);
         logger.info("Marked all inbox messages as read for user: {}, count: {}", userId, countRead);
     }
 
+    private List<InboxMessageEntity> fetchMessages(List<InboxMessageKey> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return inboxRepository.findAllByIdInOrderByTimestampCreatedDescIdDesc(keys.stream().map(InboxMessageKey::id).toList());
+    }
+
+    /**
+     * Format cursor of the inbox listing as {@code <timestamp_created in millis>,<id>}.
+     * @param key Key of the last message of the page.
+     * @return Cursor.
+     */
+    private static String formatCursor(InboxMessageKey key) {
+        return key.timestampCreated().getTime() + "," + key.id();
+    }
+
+    private static InboxMessageKey parseCursor(String cursor) throws PushServerException {
+        final String[] parts = cursor.split(",");
+        if (parts.length != 2) {
+            throw new PushServerException("Invalid cursor: " + cursor);
+        }
+        try {
+            return new InboxMessageKey(Long.parseLong(parts[1].trim()), new Date(Long.parseLong(parts[0].trim())));
+        } catch (NumberFormatException ex) {
+            throw new PushServerException("Invalid cursor: " + cursor, ex);
+        }
+    }
+
     private AppCredentialsEntity fetchAppForAppId(String appId) throws AppNotFoundException {
         return appCredentialsRepository.findFirstByAppId(appId).orElseThrow(
                 () -> new AppNotFoundException("Application was not found: " + appId));
@@ -181,4 +263,19 @@ public class InboxService {
         return appCredentialsRepository.findAllByAppIdIn(apps);
     }
 
+    /**
+     * Fetch app credentials entity IDs for given app IDs without loading the app credentials.
+     * @param appIds App IDs.
+     * @return App credentials entity IDs.
+     * @throws AppNotFoundException In case an app with provided ID was not found.
+     */
+    private List<Long> fetchAppCredentialsIdsForAppIds(List<String> appIds) throws AppNotFoundException {
+        final List<Long> appCredentialsIds = appCredentialsRepository.findIdsByAppIdIn(appIds);
+        if (appCredentialsIds.size() != appIds.size()) {
+            logger.info("Application list received: {}, apps configured in the system: {}.", appIds, fetchAppsForAppIds(appIds).stream().map(AppCredentialsEntity::getAppId).toList());
+            throw new AppNotFoundException("Application list contained an app that is not configured in the system.");
+        }
+        return appCredentialsIds;
+    }
+
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.function.LongSupplier;
+
+/**
+ * Service maintaining counters of unread inbox messages per user and application.
+ * <p>
+ * Counters are kept in a local Caffeine cache, optionally backed by a shared cache provided by a Spring
+ * {@link CacheManager}. Local counters are adjusted in place after the transaction which changed the inbox is committed,
+ * shared entries are evicted, because the {@link org.springframework.cache.Cache} abstraction does not offer an atomic
+ * increment. Counters of other nodes converge at latest after the local cache entry expires.
+ * <p>
+ * A counter loaded after the change was made, but before the adjustment after commit, may already include the change.
+ * Such counter is evicted instead of adjusted, so that the change is not counted twice.
+ */
+@Service
+@Slf4j
+public class InboxUnreadCountService {
+
+    private final Cache<UnreadCountKey, UnreadCount> localCache;
+    private final org.springframework.cache.Cache sharedCache;
+    private final boolean enabled;
+
+    /**
+     * Constructor with injected beans.
+     * @param inboxUnreadCountCache Local cache of unread counters.
+     * @param cacheManagerProvider Provider of an optional cache manager with the shared cache.
+     * @param enabled Whether caching of unread counters is enabled.
+     * @param sharedCacheName Name of the shared cache, empty in case the shared tier is not used.
+     */
+    public InboxUnreadCountService(
+            final Cache<UnreadCountKey, UnreadCount> inboxUnreadCountCache,
+            final ObjectProvider<CacheManager> cacheManagerProvider,
+            @Value("${powerauth.push.service.inbox.unreadCount.cache.enabled:true}") final boolean enabled,
+            @Value("${powerauth.push.service.inbox.unreadCount.cache.shared.name:}") final String sharedCacheName) {
+
+        this.localCache = inboxUnreadCountCache;
+        this.enabled = enabled;
+        this.sharedCache = resolveSharedCache(cacheManagerProvider, sharedCacheName);
+    }
+
+    /**
+     * Get the cached unread count.
+     * @param userId User ID.
+     * @param appId App ID.
+     * @return Unread count or {@code null} in case the count is not cached.
+     */
+    public Long getIfPresent(final String userId, final String appId) {
+        if (!enabled) {
+            return null;
+        }
+        final UnreadCountKey key = new UnreadCountKey(userId, appId);
+        final UnreadCount localCount = localCache.getIfPresent(key);
+        if (localCount != null) {
+            return localCount.count();
+        }
+        if (sharedCache == null) {
+            return null;
+        }
+        final Long sharedCount = sharedCache.get(key, Long.class);
+        if (sharedCount != null) {
+            localCache.put(key, new UnreadCount(sharedCount, System.nanoTime()));
+        }
+        return sharedCount;
+    }
+
+    /**
+     * Get the unread count, loading it from the database in case it is not cached. The count is loaded within
+     * the cache computation, an adjustment of the counter committed during the load waits until the count is loaded
+     * and then it is applied to the loaded count, instead of being lost.
+     * @param userId User ID.
+     * @param appId App ID.
+     * @param loader Loader of the unread count from the database.
+     * @return Unread count.
+     */
+    public long get(final String userId, final String appId, final LongSupplier loader) {
+        if (!enabled) {
+            return loader.getAsLong();
+        }
+        return localCache.get(new UnreadCountKey(userId, appId), key -> {
+            if (sharedCache != null) {
+                final Long sharedCount = sharedCache.get(key, Long.class);
+                if (sharedCount != null) {
+                    return new UnreadCount(sharedCount, System.nanoTime());
+                }
+            }
+            final long count = loader.getAsLong();
+            if (sharedCache != null) {
+                sharedCache.put(key, count);
+            }
+            return new UnreadCount(count, System.nanoTime());
+        }).count();
+    }
+
+    /**
+     * Increment unread counters after a new message was posted for given applications. The method is called within
+     * the transaction changing the inbox, counters loaded later are evicted after commit instead of incremented.
+     * @param userId User ID.
+     * @param appIds App IDs.
+     */
+    public void increment(final String userId, final Collection<String> appIds) {
+        final long changedNanos = System.nanoTime();
+        afterCommit(() -> appIds.forEach(appId -> adjust(new UnreadCountKey(userId, appId), 1, changedNanos)));
+    }
+
+    /**
+     * Decrement unread counters after a message posted for given applications was read. The method is called within
+     * the transaction changing the inbox, counters loaded later are evicted after commit instead of decremented.
+     * @param userId User ID.
+     * @param appIds App IDs.
+     */
+    public void decrement(final String userId, final Collection<String> appIds) {
+        final long changedNanos = System.nanoTime();
+        afterCommit(() -> appIds.forEach(appId -> adjust(new UnreadCountKey(userId, appId), -1, changedNanos)));
+    }
+
+    /**
+     * Evict unread counters after messages of the user were read in bulk. The messages may be posted for other
+     * applications as well, so the counters of all their applications are evicted and loaded again.
+     * @param userId User ID.
+     * @param appIds App IDs.
+     */
+    public void evict(final String userId, final Collection<String> appIds) {
+        afterCommit(() -> appIds.forEach(appId -> {
+            final UnreadCountKey key = new UnreadCountKey(userId, appId);
+            localCache.invalidate(key);
+            evictShared(key);
+        }));
+    }
+
+    private void adjust(final UnreadCountKey key, final long delta, final long changedNanos) {
+        localCache.asMap().computeIfPresent(key, (k, count) -> {
+            // Counter loaded after the change may already include it, let it be loaded from the database again
+            if (count.loadedNanos() - changedNanos > 0) {
+                return null;
+            }
+            // Counter which would drop below zero is out of sync, let it be loaded from the database again
+            return count.count() + delta >= 0 ? new UnreadCount(count.count() + delta, count.loadedNanos()) : null;
+        });
+        evictShared(key);
+    }
+
+    private void evictShared(final UnreadCountKey key) {
+        if (sharedCache != null) {
+            sharedCache.evict(key);
+        }
+    }
+
+    private void afterCommit(final Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static org.springframework.cache.Cache resolveSharedCache(final ObjectProvider<CacheManager> cacheManagerProvider, final String sharedCacheName) {
+        if (!StringUtils.hasText(sharedCacheName)) {
+            return null;
+        }
+        final CacheManager cacheManager = cacheManagerProvider.getIfAvailable();
+        if (cacheManager == null) {
+            logger.warn("Shared cache of unread inbox counters is configured, but no cache manager is available, name: {}", sharedCacheName);
+            return null;
+        }
+        final org.springframework.cache.Cache cache = cacheManager.getCache(sharedCacheName);
+        if (cache == null) {
+            logger.warn("Shared cache of unread inbox counters was not found, name: {}", sharedCacheName);
+        } else {
+            logger.info("Using shared cache of unread inbox counters, name: {}", sharedCacheName);
+        }
+        return cache;
+    }
+
+    /**
+     * Key of the unread counter.
+     *
+     * @param userId User ID.
+     * @param appId App ID.
+     */
+    public record UnreadCountKey(String userId, String appId) implements Serializable {
+    }
+
+    /**
+     * Cached unread count.
+     *
+     * @param count Unread count.
+     * @param loadedNanos Value of {@link System#nanoTime()} when the count was loaded.
+     */
+    public record UnreadCount(long count, long loadedNanos) {
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Time-decaying filter of push tokens recently rejected by the push service providers as invalid.
+ * <p>
+ * Tokens are kept in two generations of Bloom filters. New tokens are added to the current generation, which
+ * replaces the previous generation once the retention elapsed or the expected number of tokens was added, so that
+ * a token is remembered at least for the retention and at most for twice the retention. Both generations are
+ * queried, each of them is sized for half of the configured false positive rate.
+ * <p>
+ * The filter may report a token which was never rejected with the configured false positive rate, it never misses
+ * a rejected token of the current or previous generation. The approximate number of remembered tokens is published
+ * by gauge {@code powerauth.push.invalidToken.filter.size}.
+ */
+@Component
+@Slf4j
+public class InvalidTokenFilter {
+
+    private static final String METER_SIZE = "powerauth.push.invalidToken.filter.size";
+
+    private final boolean enabled;
+    private final int expectedInsertions;
+    private final double generationFalsePositiveRate;
+    private final long retentionNanos;
+
+    private volatile Generations generations;
+
+    /**
+     * Constructor with injected configuration.
+     * @param meterRegistry Meter registry.
+     * @param enabled Whether the filter of invalid push tokens is enabled.
+     * @param expectedInsertions Expected number of rejected push tokens within the retention.
+     * @param falsePositiveRate Probability that a push token which was not rejected is reported as invalid.
+     * @param retention Minimal duration a rejected push token is remembered.
+     */
+    public InvalidTokenFilter(
+            final MeterRegistry meterRegistry,
+            @Value("${powerauth.push.service.invalidToken.filter.enabled:false}") final boolean enabled,
+            @Value("${powerauth.push.service.invalidToken.filter.expectedInsertions:100000}") final int expectedInsertions,
+            @Value("${powerauth.push.service.invalidToken.filter.falsePositiveRate:0.001}") final double falsePositiveRate,
+            @Value("${powerauth.push.service.invalidToken.filter.retention:1h}") final Duration retention) {
+
+        if (falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+            throw new IllegalArgumentException("False positive rate of the invalid token filter must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.enabled = enabled;
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.generationFalsePositiveRate = falsePositiveRate / 2;
+        this.retentionNanos = retention.toNanos();
+        if (enabled) {
+            generations = new Generations(createFilter(), createFilter(), System.nanoTime());
+            Gauge.builder(METER_SIZE, this, InvalidTokenFilter::approximateSize)
+                    .description("Approximate number of push tokens recently rejected as invalid")
+                    .register(meterRegistry);
+            logger.info("Invalid push token filter enabled, expected insertions: {}, false positive rate: {}, retention: {}",
+                    expectedInsertions, falsePositiveRate, retention);
+        }
+    }
+
+    /**
+     * Remember a push token rejected by the push service provider as invalid.
+     *
+     * @param appId App ID.
+     * @param pushToken Push token.
+     */
+    public void add(final String appId, final String pushToken) {
+        if (!enabled || pushToken == null) {
+            return;
+        }
+        rotateIfNeeded();
+        generations.current().put(key(appId, pushToken));
+    }
+
+    /**
+     * Check whether the push token was recently rejected by the push service provider as invalid.
+     *
+     * @param appId App ID.
+     * @param pushToken Push token.
+     * @return True in case the push token was probably rejected, false in case it was definitely not rejected
+     * within the retention.
+     */
+    public boolean mightContain(final String appId, final String pushToken) {
+        if (!enabled || pushToken == null) {
+            return false;
+        }
+        rotateIfNeeded();
+        final String key = key(appId, pushToken);
+        final Generations snapshot = generations;
+        return snapshot.current().mightContain(key) || snapshot.previous().mightContain(key);
+    }
+
+    /**
+     * Replace the previous generation by the current one and start a new current generation.
+     */
+    synchronized void rotate() {
+        logger.debug("Rotating invalid push token filter, approximate size: {}", approximateSize());
+        generations = new Generations(createFilter(), generations.current(), System.nanoTime());
+    }
+
+    private void rotateIfNeeded() {
+        final Generations snapshot = generations;
+        if (System.nanoTime() - snapshot.startedNanos() < retentionNanos && snapshot.current().approximateElementCount() < expectedInsertions) {
+            return;
+        }
+        synchronized (this) {
+            // Another thread may have rotated the generations in the meantime
+            if (snapshot == generations) {
+                rotate();
+            }
+        }
+    }
+
+    private long approximateSize() {
+        final Generations snapshot = generations;
+        return snapshot.current().approximateElementCount() + snapshot.previous().approximateElementCount();
+    }
+
+    private BloomFilter<CharSequence> createFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, generationFalsePositiveRate);
+    }
+
+    private static String key(final String appId, final String pushToken) {
+        return appId + '\n' + pushToken;
+    }
+
+    /**
+     * Current and previous generation of the filter.
+     *
+     * @param current Generation to which new tokens are added.
+     * @param previous Generation which is only queried.
+     * @param startedNanos Value of {@link System#nanoTime()} when the current generation was started.
+     */
+    private record Generations(BloomFilter<CharSequence> current, BloomFilter<CharSequence> previous, long startedNanos) {
+    }
+
+}
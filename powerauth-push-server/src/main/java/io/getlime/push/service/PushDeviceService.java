@@ -16,22 +16,29 @@
 
 package io.getlime.push.service;
 
+import com.wultra.security.powerauth.client.model.enumeration.ActivationStatus;
+import com.wultra.security.powerauth.client.model.error.PowerAuthClientException;
 import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
-import io.getlime.push.model.request.CreateDeviceForActivationsRequest;
-import io.getlime.push.model.request.CreateDeviceRequest;
-import io.getlime.push.model.request.DeleteDeviceRequest;
-import io.getlime.push.model.request.UpdateDeviceStatusRequest;
+import io.getlime.push.model.entity.DeviceBulkItemResult;
+import io.getlime.push.model.request.*;
+import io.getlime.push.model.response.DeviceBulkResponse;
 import io.getlime.push.model.validator.CreateDeviceRequestValidator;
 import io.getlime.push.model.validator.DeleteDeviceRequestValidator;
+import io.getlime.push.model.validator.DeviceBulkRequestValidator;
 import io.getlime.push.model.validator.UpdateDeviceStatusRequestValidator;
 import io.getlime.push.repository.AppCredentialsRepository;
 import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
+import io.getlime.push.service.ActivationStatusService.ActivationStatusDetail;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+import java.util.function.Consumer;
+
 /**
  * Service for managing push devices.
  *
@@ -43,6 +50,7 @@ import org.springframework.stereotype.Service;
 public class PushDeviceService {
 
     private final DeviceRegistrationService deviceRegistrationService;
+    private final ActivationStatusService activationStatusService;
     private final AppCredentialsRepository appCredentialsRepository;
     private final PushServiceConfiguration config;
 
@@ -60,7 +68,9 @@ public class PushDeviceService {
 
         final AppCredentialsEntity appCredentials = findAppCredentials(request.getAppId());
 
-        deviceRegistrationService.createOrUpdateDevice(request, appCredentials);
+        // Resolve activation status before the registration transaction is started, not to hold a DB connection during remote call
+        final ActivationStatusDetail activation = fetchActivationStatusForRegistration(request.getActivationId());
+        deviceRegistrationService.createOrUpdateDevice(request, appCredentials, activation);
         logger.info("The createDevice request succeeded, app ID: {}, activation ID: {}, platform: {}, environment: {}", request.getAppId(), request.getActivationId(), request.getPlatform(), request.getEnvironment());
         return new Response();
     }
@@ -83,7 +93,9 @@ public class PushDeviceService {
 
         final AppCredentialsEntity appCredentials = findAppCredentials(request.getAppId());
 
-        deviceRegistrationService.createOrUpdateDevices(request, appCredentials);
+        // Resolve activation statuses before the registration transaction is started, not to hold a DB connection during remote calls
+        final Map<String, ActivationStatusDetail> activationStatuses = activationStatusService.fetchActivationStatuses(request.getActivationIds());
+        deviceRegistrationService.createOrUpdateDevices(request, appCredentials, activationStatuses);
         logger.info("The createDeviceMultipleActivations request succeeded, app ID: {}, activation IDs: {}, platform: {}, environment: {}", request.getAppId(), request.getActivationIds(), request.getPlatform(), request.getEnvironment());
         return new Response();
     }
@@ -99,7 +111,11 @@ public class PushDeviceService {
             throw new PushServerException(errorMessage);
         }
 
-        deviceRegistrationService.updateStatus(request);
+        // Activation status changed, the cached value is stale
+        final String activationId = request.getActivationId();
+        activationStatusService.invalidate(activationId);
+        final ActivationStatus activationStatus = request.getActivationStatus() != null ? request.getActivationStatus() : fetchActivationStatusForUpdate(activationId);
+        deviceRegistrationService.updateStatus(activationId, activationStatus);
         logger.info("The updateDeviceStatus request succeeded, activation ID: {}", request.getActivationId());
         return new Response();
     }
@@ -120,6 +136,249 @@ public class PushDeviceService {
         return new Response();
     }
 
+    /**
+     * Create or update a bulk of device registrations. Activation statuses are resolved in parallel before any
+     * transaction is started, valid registrations are then stored in JDBC batches.
+     * @param request Bulk device registration request.
+     * @return Results of individual registrations.
+     * @throws PushServerException In case the request envelope is invalid.
+     */
+    public DeviceBulkResponse createDevicesBulk(final CreateDeviceBulkRequest request) throws PushServerException {
+        validateBulk(request == null ? null : request.getDevices());
+        final List<CreateDeviceRequest> items = request.getDevices();
+        logger.info("Received createDevicesBulk request, devices: {}", items.size());
+
+        final DeviceBulkItemResult[] results = new DeviceBulkItemResult[items.size()];
+        final Map<String, Optional<AppCredentialsEntity>> appCredentialsCache = new HashMap<>();
+        final List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            final CreateDeviceRequest item = items.get(i);
+            final String errorMessage = CreateDeviceRequestValidator.validate(item);
+            if (errorMessage != null) {
+                results[i] = DeviceBulkItemResult.error(i, errorMessage);
+            } else if (findAppCredentials(item.getAppId(), appCredentialsCache).isEmpty()) {
+                results[i] = DeviceBulkItemResult.error(i, "Application with given ID does not exist");
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        final Map<String, ActivationStatusDetail> activationStatuses = activationStatusService.fetchActivationStatuses(
+                validIndexes.stream().map(i -> items.get(i).getActivationId()).toList());
+
+        if (!deviceRegistrationService.isBulkUpsertEnabled()) {
+            // Register devices one by one, each in its own short transaction
+            for (Integer i : validIndexes) {
+                final CreateDeviceRequest item = items.get(i);
+                try {
+                    final AppCredentialsEntity appCredentials = findAppCredentials(item.getAppId(), appCredentialsCache).orElseThrow();
+                    deviceRegistrationService.createOrUpdateDevice(item, appCredentials, activationStatuses.get(item.getActivationId()));
+                    results[i] = DeviceBulkItemResult.ok(i);
+                } catch (PushServerException | RuntimeException ex) {
+                    logger.debug("Device registration failed, activation ID: {}", item.getActivationId(), ex);
+                    results[i] = DeviceBulkItemResult.error(i, ex.getMessage());
+                }
+            }
+            return toBulkResponse(results);
+        }
+
+        final List<Integer> preparedIndexes = new ArrayList<>();
+        final Map<Integer, PushDeviceRegistrationEntity> devices = new HashMap<>();
+        for (Integer i : validIndexes) {
+            final CreateDeviceRequest item = items.get(i);
+            try {
+                final AppCredentialsEntity appCredentials = findAppCredentials(item.getAppId(), appCredentialsCache).orElseThrow();
+                devices.put(i, deviceRegistrationService.prepareDevice(item, appCredentials, activationStatuses.get(item.getActivationId())));
+                preparedIndexes.add(i);
+            } catch (PushServerException ex) {
+                results[i] = DeviceBulkItemResult.error(i, ex.getMessage());
+            }
+        }
+
+        processInBatches(preparedIndexes, results, batch ->
+                deviceRegistrationService.upsertDevices(batch.stream().map(devices::get).toList()));
+        logger.info("The createDevicesBulk request finished, devices: {}", items.size());
+        return toBulkResponse(results);
+    }
+
+    /**
+     * Delete a bulk of device registrations identified by application ID and push token.
+     * @param request Bulk device removal request.
+     * @return Results of individual removals.
+     * @throws PushServerException In case the request envelope is invalid.
+     */
+    public DeviceBulkResponse deleteDevicesBulk(final DeleteDeviceBulkRequest request) throws PushServerException {
+        validateBulk(request == null ? null : request.getDevices());
+        final List<DeleteDeviceRequest> items = request.getDevices();
+        logger.info("Received deleteDevicesBulk request, devices: {}", items.size());
+
+        final DeviceBulkItemResult[] results = new DeviceBulkItemResult[items.size()];
+        final Map<String, Optional<AppCredentialsEntity>> appCredentialsCache = new HashMap<>();
+        final List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            final DeleteDeviceRequest item = items.get(i);
+            final String errorMessage = DeleteDeviceRequestValidator.validate(item);
+            if (errorMessage != null) {
+                results[i] = DeviceBulkItemResult.error(i, errorMessage);
+            } else if (findAppCredentials(item.getAppId(), appCredentialsCache).isEmpty()) {
+                results[i] = DeviceBulkItemResult.error(i, "Application with given ID does not exist");
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        processInBatches(validIndexes, results, batch -> deviceRegistrationService.deleteDevices(
+                batch.stream().map(i -> findAppCredentials(items.get(i).getAppId(), appCredentialsCache).orElseThrow().getId()).toList(),
+                batch.stream().map(i -> items.get(i).getToken()).toList()));
+        logger.info("The deleteDevicesBulk request finished, devices: {}", items.size());
+        return toBulkResponse(results);
+    }
+
+    /**
+     * Update status of a bulk of device registrations. Missing activation statuses are resolved in parallel before
+     * any transaction is started.
+     * @param request Bulk status update request.
+     * @return Results of individual status updates.
+     * @throws PushServerException In case the request envelope is invalid.
+     */
+    public DeviceBulkResponse updateDeviceStatusesBulk(final UpdateDeviceStatusBulkRequest request) throws PushServerException {
+        validateBulk(request == null ? null : request.getDevices());
+        final List<UpdateDeviceStatusRequest> items = request.getDevices();
+        logger.info("Received updateDeviceStatusesBulk request, devices: {}", items.size());
+
+        final DeviceBulkItemResult[] results = new DeviceBulkItemResult[items.size()];
+        final List<Integer> validIndexes = new ArrayList<>();
+        final List<String> unresolvedActivationIds = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            final UpdateDeviceStatusRequest item = items.get(i);
+            final String errorMessage = UpdateDeviceStatusRequestValidator.validate(item);
+            if (errorMessage != null) {
+                results[i] = DeviceBulkItemResult.error(i, errorMessage);
+                continue;
+            }
+            // Activation status changed, the cached value is stale
+            activationStatusService.invalidate(item.getActivationId());
+            if (item.getActivationStatus() == null) {
+                unresolvedActivationIds.add(item.getActivationId());
+            }
+            validIndexes.add(i);
+        }
+
+        final Map<String, ActivationStatusDetail> resolvedStatuses = activationStatusService.fetchActivationStatuses(unresolvedActivationIds);
+        final Map<Integer, ActivationStatus> statuses = new HashMap<>();
+        final List<Integer> resolvedIndexes = new ArrayList<>();
+        for (Integer i : validIndexes) {
+            final UpdateDeviceStatusRequest item = items.get(i);
+            final ActivationStatus status = item.getActivationStatus() != null ? item.getActivationStatus() : Optional.ofNullable(resolvedStatuses.get(item.getActivationId()))
+                    .map(ActivationStatusDetail::activationStatus)
+                    .orElse(null);
+            if (status == null) {
+                results[i] = DeviceBulkItemResult.error(i, "Update device status failed because activation status is unknown");
+            } else {
+                statuses.put(i, status);
+                resolvedIndexes.add(i);
+            }
+        }
+
+        processInBatches(resolvedIndexes, results, batch -> {
+            final Map<String, ActivationStatus> batchStatuses = new LinkedHashMap<>();
+            batch.forEach(i -> batchStatuses.put(items.get(i).getActivationId(), statuses.get(i)));
+            final Set<String> notFound = deviceRegistrationService.updateStatuses(batchStatuses);
+            batch.stream()
+                    .filter(i -> notFound.contains(items.get(i).getActivationId()))
+                    .forEach(i -> results[i] = DeviceBulkItemResult.error(i, "Device registration for the activation was not found"));
+        });
+        logger.info("The updateDeviceStatusesBulk request finished, devices: {}", items.size());
+        return toBulkResponse(results);
+    }
+
+    /**
+     * Process items identified by their indexes in batches, each batch in a separate transaction.
+     * Items of a failed batch are processed one by one, so that a single failing item does not fail the whole batch.
+     * Items without a result filled by the batch processor are reported as processed.
+     * @param indexes Indexes of items to be processed.
+     * @param results Results of items to be filled.
+     * @param batchProcessor Processor of a single batch of item indexes, may fill results of items which failed.
+     */
+    private void processInBatches(final List<Integer> indexes, final DeviceBulkItemResult[] results, final Consumer<List<Integer>> batchProcessor) {
+        final int batchSize = Math.max(1, config.getRegistrationBulkBatchSize());
+        for (int from = 0; from < indexes.size(); from += batchSize) {
+            final List<Integer> batch = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+            try {
+                processBatch(batch, results, batchProcessor);
+            } catch (RuntimeException ex) {
+                logger.warn("Processing of bulk device batch failed, processing items one by one, size: {}, error: {}", batch.size(), ex.getMessage());
+                logger.debug("Exception detail: ", ex);
+                for (Integer i : batch) {
+                    try {
+                        processBatch(List.of(i), results, batchProcessor);
+                    } catch (RuntimeException itemEx) {
+                        logger.debug("Processing of bulk device item failed, index: {}", i, itemEx);
+                        results[i] = DeviceBulkItemResult.error(i, itemEx.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void processBatch(final List<Integer> batch, final DeviceBulkItemResult[] results, final Consumer<List<Integer>> batchProcessor) {
+        // Results filled before the transaction rolled back are not valid
+        batch.forEach(i -> results[i] = null);
+        batchProcessor.accept(batch);
+        batch.stream()
+                .filter(i -> results[i] == null)
+                .forEach(i -> results[i] = DeviceBulkItemResult.ok(i));
+    }
+
+    private static void validateBulk(final List<?> devices) throws PushServerException {
+        final String errorMessage = DeviceBulkRequestValidator.validate(devices);
+        if (errorMessage != null) {
+            throw new PushServerException(errorMessage);
+        }
+    }
+
+    private static DeviceBulkResponse toBulkResponse(final DeviceBulkItemResult[] results) {
+        return new DeviceBulkResponse(new ArrayList<>(Arrays.asList(results)));
+    }
+
+    private Optional<AppCredentialsEntity> findAppCredentials(final String appId, final Map<String, Optional<AppCredentialsEntity>> appCredentialsCache) {
+        return appCredentialsCache.computeIfAbsent(appId, appCredentialsRepository::findFirstByAppId);
+    }
+
+    /**
+     * Fetch activation status for device registration. Fail early, without opening a transaction, in case the activation
+     * does not exist or is removed.
+     * @param activationId Activation ID.
+     * @return Activation status detail.
+     * @throws PushServerException In case activation status is unknown or activation is not usable for registration.
+     */
+    private ActivationStatusDetail fetchActivationStatusForRegistration(final String activationId) throws PushServerException {
+        final ActivationStatusDetail activation;
+        try {
+            activation = activationStatusService.fetchActivationStatus(activationId);
+        } catch (PowerAuthClientException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new PushServerException("Device registration failed because activation status is unknown");
+        }
+        if (activation == null || activation.activationStatus() == ActivationStatus.REMOVED) {
+            throw new PushServerException("Device registration failed because associated activation is not ACTIVE");
+        }
+        return activation;
+    }
+
+    private ActivationStatus fetchActivationStatusForUpdate(final String activationId) throws PushServerException {
+        try {
+            final ActivationStatusDetail activation = activationStatusService.fetchActivationStatus(activationId);
+            if (activation == null) {
+                throw new PushServerException("Update device status failed because activation does not exist");
+            }
+            return activation.activationStatus();
+        } catch (PowerAuthClientException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new PushServerException("Update device status failed because activation status is unknown");
+        }
+    }
+
     private AppCredentialsEntity findAppCredentials(String powerAuthAppId) throws PushServerException {
         return appCredentialsRepository.findFirstByAppId(powerAuthAppId).orElseThrow(() ->
                 new PushServerException("Application with given ID does not exist"));
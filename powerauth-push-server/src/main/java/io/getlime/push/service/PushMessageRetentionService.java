@@ -0,0 +1,184 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.repository.dao.PushMessageDAO;
+import io.getlime.push.repository.dao.PushMessagePartitionDAO;
+import io.getlime.push.repository.dao.PushOutboxDAO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Service purging stored push messages older than the configured retention.
+ * <p>
+ * Expired messages are deleted in bounded batches by column timestamp_created, each batch in its own transaction,
+ * so that the purge neither holds long locks nor produces a huge transaction log. On PostgreSQL, table push_message
+ * may be partitioned by month. Partitions are then created in advance and expired partitions are dropped as a whole.
+ * Deduplicated bodies no longer referenced by any message and outbox messages marked as failed before the retention
+ * period are purged as well.
+ */
+@Service
+@ConditionalOnProperty(value = "powerauth.push.service.message.retention.enabled", havingValue = "true")
+@Slf4j
+public class PushMessageRetentionService {
+
+    private final PushMessageDAO pushMessageDAO;
+    private final PushMessagePartitionDAO pushMessagePartitionDAO;
+    private final PushOutboxDAO pushOutboxDAO;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final boolean partitioningEnabled;
+    private final int partitionsPremade;
+
+    /**
+     * Constructor with injected beans.
+     * @param pushMessageDAO Push message DAO.
+     * @param pushMessagePartitionDAO Push message partition DAO.
+     * @param pushOutboxDAO Push outbox DAO.
+     * @param retention Duration for which the push messages are kept.
+     * @param batchSize Number of messages deleted in a single transaction.
+     * @param maxBatches Maximum number of batches deleted in a single run.
+     * @param partitioningEnabled Whether monthly partitions of push messages are managed on PostgreSQL.
+     * @param partitionsPremade Number of partitions created in advance for the following months.
+     */
+    public PushMessageRetentionService(
+            final PushMessageDAO pushMessageDAO,
+            final PushMessagePartitionDAO pushMessagePartitionDAO,
+            final PushOutboxDAO pushOutboxDAO,
+            @Value("${powerauth.push.service.message.retention.duration:30d}") final Duration retention,
+            @Value("${powerauth.push.service.message.retention.batchSize:1000}") final int batchSize,
+            @Value("${powerauth.push.service.message.retention.maxBatches:1000}") final int maxBatches,
+            @Value("${powerauth.push.service.message.retention.partitioning.enabled:false}") final boolean partitioningEnabled,
+            @Value("${powerauth.push.service.message.retention.partitioning.premade:2}") final int partitionsPremade) {
+
+        this.pushMessageDAO = pushMessageDAO;
+        this.pushMessagePartitionDAO = pushMessagePartitionDAO;
+        this.pushOutboxDAO = pushOutboxDAO;
+        this.retention = retention;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+        this.partitioningEnabled = partitioningEnabled;
+        this.partitionsPremade = Math.max(0, partitionsPremade);
+    }
+
+    /**
+     * Create partitions for the current and following months and drop expired partitions. Runs on startup, so that
+     * a partition for new messages exists before the first message is stored.
+     */
+    @Scheduled(fixedDelayString = "${powerauth.push.service.message.retention.interval:1h}")
+    public void managePartitions() {
+        if (!partitioningEnabled) {
+            return;
+        }
+        try {
+            if (!pushMessagePartitionDAO.isPartitioned()) {
+                logger.warn("Partitioning of push messages is enabled, but table push_message is not partitioned");
+                return;
+            }
+            final Map<YearMonth, String> partitions = pushMessagePartitionDAO.findPartitions();
+            final YearMonth currentMonth = YearMonth.now();
+            for (int i = 0; i <= partitionsPremade; i++) {
+                final YearMonth month = currentMonth.plusMonths(i);
+                if (!partitions.containsKey(month)) {
+                    pushMessagePartitionDAO.createPartition(month);
+                }
+            }
+            // Drop only partitions with all messages expired, the rest is purged by batched deletes
+            final LocalDate cutoff = LocalDate.ofInstant(cutoff().toInstant(), ZoneId.systemDefault());
+            for (YearMonth month : partitions.keySet()) {
+                if (!month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                    pushMessagePartitionDAO.dropPartition(month);
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to manage push message partitions, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+        }
+    }
+
+    /**
+     * Delete push messages created before the retention period in batches.
+     */
+    @Scheduled(
+            initialDelayString = "${powerauth.push.service.message.retention.interval:1h}",
+            fixedDelayString = "${powerauth.push.service.message.retention.interval:1h}")
+    public void purgeExpiredMessages() {
+        final Date cutoff = cutoff();
+        long deletedCount = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                final int count = pushMessageDAO.deleteCreatedBefore(cutoff, batchSize);
+                deletedCount += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge expired push messages, deleted: {}, error: {}", deletedCount, ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+            return;
+        }
+        if (deletedCount > 0) {
+            logger.info("Purged expired push messages created before: {}, deleted: {}", cutoff, deletedCount);
+        } else {
+            logger.debug("No expired push messages created before: {}", cutoff);
+        }
+        purgeUnreferencedBodies(cutoff);
+        purgeFailedOutboxMessages(cutoff);
+    }
+
+    private void purgeUnreferencedBodies(final Date cutoff) {
+        try {
+            final int deletedCount = pushMessageDAO.deleteUnreferencedBodiesStoredBefore(cutoff);
+            if (deletedCount > 0) {
+                logger.info("Purged unreferenced push message bodies last stored before: {}, deleted: {}", cutoff, deletedCount);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge unreferenced push message bodies, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+        }
+    }
+
+    private void purgeFailedOutboxMessages(final Date cutoff) {
+        try {
+            final int deletedCount = pushOutboxDAO.deleteFailedBefore(cutoff);
+            if (deletedCount > 0) {
+                logger.info("Purged failed outbox messages marked as failed before: {}, deleted: {}", cutoff, deletedCount);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge failed outbox messages, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+        }
+    }
+
+    private Date cutoff() {
+        return Date.from(Instant.now().minus(retention));
+    }
+
+}
@@ -18,6 +18,7 @@ package io.getlime.push.service;
 
 import com.eatthepath.pushy.apns.ApnsClient;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.firebase.messaging.MessagingErrorCode;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.entity.*;
@@ -27,16 +28,26 @@ import io.getlime.push.model.enumeration.Priority;
 import io.getlime.push.model.validator.PushMessageValidator;
 import io.getlime.push.repository.PushDeviceRepository;
 import io.getlime.push.repository.dao.PushMessageDAO;
+import io.getlime.push.repository.dao.PushOutboxDAO;
 import io.getlime.push.repository.model.AppCredentialsEntity;
 import io.getlime.push.repository.model.Platform;
 import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
 import io.getlime.push.repository.model.PushMessageEntity;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import io.getlime.push.service.PushSendingScheduler.TrafficClass;
+import io.getlime.push.service.apns.ApnsRejectionReason;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class responsible for sending push notifications to devices based on platform.
@@ -53,6 +64,11 @@ public class PushMessageSenderService {
     private final PushMessageDAO pushMessageDAO;
     private final LoadingCache<String, AppRelatedPushClient> appRelatedPushClientCache;
     private final PushServiceConfiguration configuration;
+    private final PushSendingMetrics pushSendingMetrics;
+    private final PushOutboxDAO pushOutboxDAO;
+    private final JsonSerialization jsonSerialization;
+    private final PushSendingScheduler pushSendingScheduler;
+    private final InvalidTokenFilter invalidTokenFilter;
 
     /**
      * Send push notifications to given application.
@@ -64,104 +80,237 @@ public class PushMessageSenderService {
      * @throws PushServerException In case push message sending fails.
      */
     public BasePushMessageSendResult sendPushMessage(final String appId, final Mode mode, List<PushMessage> pushMessageList) throws PushServerException {
+        return sendPushMessage(appId, mode, pushMessageList.iterator());
+    }
+
+    /**
+     * Send push notifications to given application, the messages are sent as they are read from the iterator.
+     * In synchronous mode, reading of further messages waits once the number of messages waiting for the provider
+     * response reaches the configured limit. In asynchronous mode with the outbox enabled, the messages are only
+     * appended to the outbox and sent later by the outbox dispatchers.
+     *
+     * @param appId App ID used for addressing push messages. Required so that appropriate APNs/FCM credentials can be obtained.
+     * @param mode Specifies if the message sending should be synchronous or asynchronous.
+     * @param pushMessages Iterator of push message objects, e.g. parsed incrementally from the request body.
+     * @return Result of this batch sending.
+     * @throws PushServerException In case push message sending fails.
+     */
+    public BasePushMessageSendResult sendPushMessage(final String appId, final Mode mode, final Iterator<PushMessage> pushMessages) throws PushServerException {
+        if (mode == Mode.ASYNCHRONOUS && configuration.isOutboxEnabled()) {
+            return appendToOutbox(appId, pushMessages);
+        }
+        return dispatchPushMessages(appId, mode, pushMessages, null);
+    }
+
+    /**
+     * Send a push message taken from the outbox, the result is not awaited. The listener is called once the providers
+     * responded for all devices of the message with a final result, i.e. the message was either sent or rejected.
+     * The listener is not called in case any provider asked to send the message again later, or in case the sending
+     * failed before the message was dispatched to all devices.
+     *
+     * @param appId App ID used for addressing push messages.
+     * @param pushMessage Push message.
+     * @param onDelivered Listener called once the message was handled by the providers for all devices.
+     * @throws PushServerException In case push message sending fails.
+     */
+    public void sendOutboxMessage(final String appId, final PushMessage pushMessage, final Runnable onDelivered) throws PushServerException {
+        dispatchPushMessages(appId, Mode.ASYNCHRONOUS, List.of(pushMessage).iterator(), new Delivery(onDelivered));
+    }
+
+    private BasePushMessageSendResult appendToOutbox(final String appId, final Iterator<PushMessage> pushMessages) throws PushServerException {
+        // Fail early in case the application does not exist
+        prepareClients(appId);
+
+        final int batchSize = Math.max(1, configuration.getOutboxBatchSize());
+        final List<String> batch = new ArrayList<>(batchSize);
+        while (pushMessages.hasNext()) {
+            final PushMessage pushMessage = pushMessages.next();
+            validatePushMessage(pushMessage);
+            if (dropIfExpired(appId, pushMessage.getBody(), PushSendingMetrics.Stage.REQUEST)) {
+                continue;
+            }
+            batch.add(jsonSerialization.serializePushMessage(pushMessage));
+            if (batch.size() >= batchSize) {
+                pushOutboxDAO.insertAll(appId, batch);
+                batch.clear();
+            }
+        }
+        pushOutboxDAO.insertAll(appId, batch);
+        return new BasePushMessageSendResult(Mode.ASYNCHRONOUS);
+    }
+
+    private BasePushMessageSendResult dispatchPushMessages(final String appId, final Mode mode, final Iterator<PushMessage> pushMessages, final Delivery delivery) throws PushServerException {
+        final long receivedNanos = System.nanoTime();
         final AppRelatedPushClient pushClient = prepareClients(appId);
 
         // Prepare synchronization primitive for parallel push message sending
-        final Phaser phaser = new Phaser(1);
+        final PendingMessages pending = new PendingMessages(configuration.getMessageStreamMaxPending());
 
         // Prepare result object
         final PushMessageSendResult sendResult = new PushMessageSendResult(mode);
 
         // Send push message batch
-        for (PushMessage pushMessage : pushMessageList) {
+        while (pushMessages.hasNext()) {
+            dispatchPushMessage(appId, mode, pushMessages.next(), pushClient, sendResult, pending, receivedNanos, delivery);
+        }
+        if (delivery != null) {
+            delivery.dispatched();
+        }
+        pending.awaitAll();
+        return mode == Mode.SYNCHRONOUS ? sendResult : new BasePushMessageSendResult(mode);
+    }
 
-            // Validate push message before sending
-            validatePushMessage(pushMessage);
+    private void dispatchPushMessage(final String appId, final Mode mode, final PushMessage pushMessage, final AppRelatedPushClient pushClient,
+                                     final PushMessageSendResult sendResult, final PendingMessages pending, final long receivedNanos, final Delivery delivery) throws PushServerException {
 
-            // Fetch connected devices
-            final AppCredentialsEntity appCredentials = pushClient.getAppCredentials();
-            final List<PushDeviceRegistrationEntity> devices = getPushDevices(appCredentials.getId(), pushMessage.getUserId(), pushMessage.getActivationId());
-
-            // Iterate over all devices for given user
-            for (final PushDeviceRegistrationEntity device : devices) {
-                // Store push message, in case storing of messages is disabled null value is returned
-                final PushMessageEntity pushMessageObject = storePushMessage(pushMessage, device);
-
-                // Check if given push is not personal, or if it is, that device is in active state.
-                // This avoids sending personal notifications to devices that are blocked or removed.
-                final boolean isMessagePersonal = pushMessage.getAttributes() != null && pushMessage.getAttributes().getPersonal();
-                final boolean isDeviceActive = device.getActive();
-                if (!isMessagePersonal || isDeviceActive) {
-
-                    // Register phaser for synchronization
-                    registerPhaserForMode(phaser, mode);
-
-                    final Platform platform = device.getPlatform();
-                    if (platform == Platform.IOS || platform == Platform.APNS) {
-                        final PushMessageSendResult.PlatformResult platformResult = sendResult.getApns();
-                        final PushSendingCallback callback = createPushSendingCallback(mode, device, platformResult, pushMessageObject, phaser);
-                        final String apnsEnvironment = resolveApnsEnvironment(device.getEnvironment(), appCredentials.getApnsEnvironment());
-                        if (apnsEnvironment == null) {
-                            logger.error("Push message cannot be sent because APNs development host is requested, however the server is in production mode. Check configuration of application property 'powerauth.push.service.apns.useDevelopment'.");
-                            callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
-                            arriveAndDeregisterPhaserForMode(phaser, mode);
-                            continue;
-                        }
-                        final ApnsClient apnsClient = ApnsEnvironment.PRODUCTION.getKey().equals(apnsEnvironment) ? pushClient.getApnsClientProduction() : pushClient.getApnsClientDevelopment();
-                        pushSendingWorker.sendMessageToApns(apnsClient, pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), device.getPushToken(), pushClient.getAppCredentials().getApnsBundle(), callback);
-                    } else if (platform == Platform.ANDROID || platform == Platform.FCM) {
-                        if (pushClient.getFcmClient() == null) {
-                            logger.error("Push message cannot be sent to FCM because FCM is not configured in push server.");
-                            arriveAndDeregisterPhaserForMode(phaser, mode);
-                            continue;
-                        }
-                        final String token = device.getPushToken();
-                        final PushMessageSendResult.PlatformResult platformResult = sendResult.getFcm();
-                        pushSendingWorker.sendMessageToFcm(pushClient.getFcmClient(), pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), token, createPushSendingCallback(mode, device, platformResult, pushMessageObject, phaser));
-                    } else if (platform == Platform.HUAWEI || platform == Platform.HMS) {
-                        if (pushClient.getHmsClient() == null) {
-                            logger.error("Push message cannot be sent to HMS because HMS is not configured in push server.");
-                            arriveAndDeregisterPhaserForMode(phaser, mode);
-                            continue;
-                        }
-                        final String token = device.getPushToken();
-                        final PushMessageSendResult.PlatformResult platformResult = sendResult.getHms();
-                        pushSendingWorker.sendMessageToHms(pushClient.getHmsClient(), pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), token, createPushSendingCallback(mode, device, platformResult, pushMessageObject, phaser));
+        // Validate push message before sending
+        validatePushMessage(pushMessage);
+        if (dropIfExpired(appId, pushMessage.getBody(), PushSendingMetrics.Stage.REQUEST)) {
+            return;
+        }
+
+        // Fetch connected devices
+        final AppCredentialsEntity appCredentials = pushClient.getAppCredentials();
+        final List<PushDeviceRegistrationEntity> devices = getPushDevices(appCredentials.getId(), pushMessage.getUserId(), pushMessage.getActivationId());
+
+        // Iterate over all devices for given user
+        for (final PushDeviceRegistrationEntity device : devices) {
+            // Store push message, in case storing of messages is disabled null value is returned
+            final PushMessageEntity pushMessageObject = storePushMessage(pushMessage, device);
+
+            if (skipIfInvalidToken(appId, device.getPlatform(), device.getPushToken())) {
+                updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                countFailed(sendResult, device.getPlatform());
+                continue;
+            }
+
+            // Check if given push is not personal, or if it is, that device is in active state.
+            // This avoids sending personal notifications to devices that are blocked or removed.
+            final boolean isMessagePersonal = pushMessage.getAttributes() != null && pushMessage.getAttributes().getPersonal();
+            final boolean isDeviceActive = device.getActive();
+            if (!isMessagePersonal || isDeviceActive) {
+
+                // Wait for the capacity of transactional messages of the priority, shared fairly by all applications
+                final String collapseKey = resolveCollapseKey(appId, device.getPushToken(), pushMessage.getBody());
+                final PushSendingScheduler.Permit permit = pushSendingScheduler.acquire(TrafficClass.TRANSACTIONAL, pushMessage.getPriority(), appId, collapseKey);
+                if (permit.isSuperseded()) {
+                    logger.debug("Push message was superseded by a newer message, device ID: {}, collapse key: {}", device.getId(), pushMessage.getBody().getCollapseKey());
+                    pushSendingMetrics.messageSuperseded(appId, device.getPlatform());
+                    updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                    countFailed(sendResult, device.getPlatform());
+                    continue;
+                }
+                if (dropIfExpired(appId, pushMessage.getBody(), PushSendingMetrics.Stage.SCHEDULING)) {
+                    permit.release();
+                    updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                    countFailed(sendResult, device.getPlatform());
+                    continue;
+                }
+
+                // Register pending message for synchronization, waits while too many messages are pending
+                registerPendingForMode(pending, mode);
+
+                final Platform platform = device.getPlatform();
+                if (platform == Platform.IOS || platform == Platform.APNS) {
+                    final PushMessageSendResult.PlatformResult platformResult = sendResult.getApns();
+                    final PushSendingMetrics.InstrumentedCallback instrumented = pushSendingMetrics.instrument(appId, platform, receivedNanos, createPushSendingCallback(appId, mode, device, platformResult, pushMessageObject, pending, delivery));
+                    final PushSendingCallback callback = permit.wrap(instrumented);
+                    final String apnsEnvironment = resolveApnsEnvironment(device.getEnvironment(), appCredentials.getApnsEnvironment());
+                    if (apnsEnvironment == null) {
+                        logger.error("Push message cannot be sent because APNs development host is requested, however the server is in production mode. Check configuration of application property 'powerauth.push.service.apns.useDevelopment'.");
+                        callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
+                        continue;
+                    }
+                    final ApnsClient apnsClient = ApnsEnvironment.PRODUCTION.getKey().equals(apnsEnvironment) ? pushClient.getApnsClientProduction() : pushClient.getApnsClientDevelopment();
+                    dispatch(permit, instrumented, () -> pushSendingWorker.sendMessageToApns(apnsClient, pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), device.getPushToken(), pushClient.getAppCredentials().getApnsBundle(), callback));
+                } else if (platform == Platform.ANDROID || platform == Platform.FCM) {
+                    if (pushClient.getFcmClient() == null) {
+                        logger.error("Push message cannot be sent to FCM because FCM is not configured in push server.");
+                        permit.release();
+                        arriveForMode(pending, mode);
+                        continue;
                     }
+                    final String token = device.getPushToken();
+                    final PushMessageSendResult.PlatformResult platformResult = sendResult.getFcm();
+                    final PushSendingMetrics.InstrumentedCallback instrumented = pushSendingMetrics.instrument(appId, platform, receivedNanos, createPushSendingCallback(appId, mode, device, platformResult, pushMessageObject, pending, delivery));
+                    final PushSendingCallback callback = permit.wrap(instrumented);
+                    dispatch(permit, instrumented, () -> pushSendingWorker.sendMessageToFcm(pushClient.getFcmClient(), pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), token, callback));
+                } else if (platform == Platform.HUAWEI || platform == Platform.HMS) {
+                    if (pushClient.getHmsClient() == null) {
+                        logger.error("Push message cannot be sent to HMS because HMS is not configured in push server.");
+                        permit.release();
+                        arriveForMode(pending, mode);
+                        continue;
+                    }
+                    final String token = device.getPushToken();
+                    final PushMessageSendResult.PlatformResult platformResult = sendResult.getHms();
+                    final PushSendingMetrics.InstrumentedCallback instrumented = pushSendingMetrics.instrument(appId, platform, receivedNanos, createPushSendingCallback(appId, mode, device, platformResult, pushMessageObject, pending, delivery));
+                    final PushSendingCallback callback = permit.wrap(instrumented);
+                    dispatch(permit, instrumented, () -> pushSendingWorker.sendMessageToHms(pushClient.getHmsClient(), pushMessage.getBody(), pushMessage.getAttributes(), pushMessage.getPriority(), token, callback));
+                } else {
+                    permit.release();
+                    arriveForMode(pending, mode);
                 }
             }
         }
-        phaser.arriveAndAwaitAdvance();
-        return mode == Mode.SYNCHRONOUS ? sendResult : new BasePushMessageSendResult(mode);
     }
 
-    private PushSendingCallback createPushSendingCallback(final Mode mode, final PushDeviceRegistrationEntity device, final PushMessageSendResult.PlatformResult platformResult, final PushMessageEntity pushMessageObject, final Phaser phaser) {
-        return sendingResult -> {
-            try {
-                switch (sendingResult) {
-                    case OK -> {
-                        platformResult.setSent(platformResult.getSent() + 1);
-                        updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.SENT);
-                    }
-                    case PENDING -> {
-                        platformResult.setPending(platformResult.getPending() + 1);
-                        updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.PENDING);
-                    }
-                    case FAILED -> {
-                        platformResult.setFailed(platformResult.getFailed() + 1);
-                        updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+    // Message dropped before sending is counted as failed, so that the synchronous result covers all devices
+    private static void countFailed(final PushMessageSendResult sendResult, final Platform platform) {
+        final PushMessageSendResult.PlatformResult platformResult = switch (platform) {
+            case IOS, APNS -> sendResult.getApns();
+            case ANDROID, FCM -> sendResult.getFcm();
+            case HUAWEI, HMS -> sendResult.getHms();
+        };
+        platformResult.setFailed(platformResult.getFailed() + 1);
+        platformResult.setTotal(platformResult.getTotal() + 1);
+    }
+
+    private PushSendingCallback createPushSendingCallback(final String appId, final Mode mode, final PushDeviceRegistrationEntity device, final PushMessageSendResult.PlatformResult platformResult, final PushMessageEntity pushMessageObject, final PendingMessages pending, final Delivery delivery) {
+        if (delivery != null) {
+            delivery.register();
+        }
+        return new PushSendingCallback() {
+
+            private volatile String rejectionReason;
+
+            @Override
+            public void didReceiveRejectionReason(final String reason) {
+                this.rejectionReason = reason;
+            }
+
+            @Override
+            public void didFinishSendingMessage(final Result sendingResult) {
+                try {
+                    switch (sendingResult) {
+                        case OK -> {
+                            platformResult.setSent(platformResult.getSent() + 1);
+                            updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.SENT);
+                        }
+                        case PENDING -> {
+                            platformResult.setPending(platformResult.getPending() + 1);
+                            updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.PENDING);
+                        }
+                        case FAILED -> {
+                            platformResult.setFailed(platformResult.getFailed() + 1);
+                            updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                        }
+                        case FAILED_DELETE -> {
+                            platformResult.setFailed(platformResult.getFailed() + 1);
+                            updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                            rememberInvalidToken(appId, device.getPushToken(), rejectionReason);
+                            pushDeviceRepository.delete(device);
+                        }
                     }
-                    case FAILED_DELETE -> {
-                        platformResult.setFailed(platformResult.getFailed() + 1);
-                        updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
-                        pushDeviceRepository.delete(device);
+                    platformResult.setTotal(platformResult.getTotal() + 1);
+                } catch (Exception e) {
+                    logger.error("System error when sending notification: {}", e.getMessage(), e);
+                } finally {
+                    arriveForMode(pending, mode);
+                    if (delivery != null) {
+                        delivery.arrive(sendingResult);
                     }
                 }
-                platformResult.setTotal(platformResult.getTotal() + 1);
-            } catch (Exception e) {
-                logger.error("System error when sending notification: {}", e.getMessage(), e);
-            } finally {
-                arriveAndDeregisterPhaserForMode(phaser, mode);
             }
         };
     }
@@ -202,40 +351,112 @@ public class PushMessageSenderService {
      * the error can be found in exception message.
      */
     public void sendCampaignMessage(final String appId, final Platform platform, final String environment, final String token, final PushMessageBody pushMessageBody, final PushMessageAttributes attributes, final Priority priority, final String userId, final Long deviceId, final String activationId) throws PushServerException {
+        final long receivedNanos = System.nanoTime();
+        if (dropIfExpired(appId, pushMessageBody, PushSendingMetrics.Stage.CAMPAIGN)) {
+            return;
+        }
+        // Campaign audiences may have been built before the device registration of a rejected token was deleted
+        if (skipIfInvalidToken(appId, platform, token)) {
+            return;
+        }
         final AppRelatedPushClient pushClient = prepareClients(appId);
 
-        final PushMessageEntity pushMessageObject = pushMessageDAO.storePushMessageObject(pushMessageBody, attributes, userId, activationId, deviceId);
+        // Wait for the capacity of campaign messages of the priority, shared fairly by all applications
+        final PushSendingScheduler.Permit permit = pushSendingScheduler.acquire(TrafficClass.CAMPAIGN, priority, appId, resolveCollapseKey(appId, token, pushMessageBody));
+        if (permit.isSuperseded()) {
+            logger.debug("Campaign message was superseded by a newer message, device ID: {}, collapse key: {}", deviceId, pushMessageBody.getCollapseKey());
+            pushSendingMetrics.messageSuperseded(appId, platform);
+            return;
+        }
+        if (dropIfExpired(appId, pushMessageBody, PushSendingMetrics.Stage.SCHEDULING)) {
+            permit.release();
+            return;
+        }
+        dispatch(permit, () -> {
+            final PushMessageEntity pushMessageObject = pushMessageDAO.storePushMessageObject(pushMessageBody, attributes, userId, activationId, deviceId);
+            final PushSendingMetrics.InstrumentedCallback instrumented = createPushSendingCallback(appId, platform, receivedNanos, token, pushMessageObject, pushClient);
+            final PushSendingCallback callback = permit.wrap(instrumented);
+
+            switch (platform) {
+                case IOS, APNS -> {
+                    final String environmentAppConfig = pushClient.getAppCredentials().getApnsEnvironment();
+                    final String apnsEnvironment = resolveApnsEnvironment(environment, environmentAppConfig);
+                    if (apnsEnvironment == null) {
+                        logger.error("Push message cannot be sent because APNs development host is requested, however the server is in production mode. Check configuration of application property 'powerauth.push.service.apns.useDevelopment'.");
+                        callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
+                        return;
+                    }
+                    final ApnsClient apnsClient = ApnsEnvironment.PRODUCTION.getKey().equals(apnsEnvironment) ? pushClient.getApnsClientProduction() : pushClient.getApnsClientDevelopment();
+                    submit(instrumented, () -> pushSendingWorker.sendMessageToApns(apnsClient, pushMessageBody, attributes, priority, token, pushClient.getAppCredentials().getApnsBundle(), callback));
+                }
+                case ANDROID, FCM ->
+                        submit(instrumented, () -> pushSendingWorker.sendMessageToFcm(pushClient.getFcmClient(), pushMessageBody, attributes, priority, token, callback));
+                case HUAWEI, HMS ->
+                        submit(instrumented, () -> pushSendingWorker.sendMessageToHms(pushClient.getHmsClient(), pushMessageBody, attributes, priority, token, callback));
+            }
+            pushSendingMetrics.campaignMessageDispatched(appId, platform);
+        });
+    }
+
+    private PushSendingMetrics.InstrumentedCallback createPushSendingCallback(final String appId, final Platform platform, final long receivedNanos, final String token, final PushMessageEntity pushMessageObject, final AppRelatedPushClient pushClient) {
+        return pushSendingMetrics.instrument(appId, platform, receivedNanos, new PushSendingCallback() {
+
+            private volatile String rejectionReason;
+
+            @Override
+            public void didReceiveRejectionReason(final String reason) {
+                this.rejectionReason = reason;
+            }
 
-        switch (platform) {
-            case IOS, APNS -> {
-                final String environmentAppConfig = pushClient.getAppCredentials().getApnsEnvironment();
-                final String apnsEnvironment = resolveApnsEnvironment(environment, environmentAppConfig);
-                if (apnsEnvironment == null) {
-                    logger.error("Push message cannot be sent because APNs development host is requested, however the server is in production mode. Check configuration of application property 'powerauth.push.service.apns.useDevelopment'.");
-                    return;
+            @Override
+            public void didFinishSendingMessage(final Result result) {
+                switch (result) {
+                    case OK -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.SENT);
+                    case PENDING -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.PENDING);
+                    case FAILED -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                    case FAILED_DELETE -> {
+                        updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
+                        rememberInvalidToken(appId, token, rejectionReason);
+                        pushDeviceRepository.deleteAllByAppCredentialsIdAndPushToken(pushClient.getAppCredentials().getId(), token);
+                    }
                 }
-                final ApnsClient apnsClient = ApnsEnvironment.PRODUCTION.getKey().equals(apnsEnvironment) ? pushClient.getApnsClientProduction() : pushClient.getApnsClientDevelopment();
-                pushSendingWorker.sendMessageToApns(apnsClient, pushMessageBody, attributes, priority, token, pushClient.getAppCredentials().getApnsBundle(), createPushSendingCallback(token, pushMessageObject, pushClient));
             }
-            case ANDROID, FCM ->
-                    pushSendingWorker.sendMessageToFcm(pushClient.getFcmClient(), pushMessageBody, attributes, priority, token, createPushSendingCallback(token, pushMessageObject, pushClient));
-            case HUAWEI, HMS ->
-                    pushSendingWorker.sendMessageToHms(pushClient.getHmsClient(), pushMessageBody, attributes, priority, token, createPushSendingCallback(token, pushMessageObject, pushClient));
+        });
+    }
+
+    // Key of the device and the message collapse key, messages without a collapse key are never superseded
+    private static String resolveCollapseKey(final String appId, final String pushToken, final PushMessageBody pushMessageBody) {
+        if (pushMessageBody == null || pushMessageBody.getCollapseKey() == null) {
+            return null;
         }
+        return appId + '\n' + pushToken + '\n' + pushMessageBody.getCollapseKey();
     }
 
-    private PushSendingCallback createPushSendingCallback(final String token, final PushMessageEntity pushMessageObject, final AppRelatedPushClient pushClient) {
-        return result -> {
-            switch (result) {
-                case OK -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.SENT);
-                case PENDING -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.PENDING);
-                case FAILED -> updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
-                case FAILED_DELETE -> {
-                    updateStatusAndPersist(pushMessageObject, PushMessageEntity.Status.FAILED);
-                    pushDeviceRepository.deleteAllByAppCredentialsIdAndPushToken(pushClient.getAppCredentials().getId(), token);
-                }
+    // Dispatch the message to the provider, the permit is released in case the message could not be dispatched
+    private static void dispatch(final PushSendingScheduler.Permit permit, final ProviderDispatch providerDispatch) throws PushServerException {
+        try {
+            providerDispatch.dispatch();
+        } catch (PushServerException | RuntimeException ex) {
+            permit.release();
+            throw ex;
+        }
+    }
+
+    private static void dispatch(final PushSendingScheduler.Permit permit, final PushSendingMetrics.InstrumentedCallback callback, final ProviderDispatch providerDispatch) throws PushServerException {
+        dispatch(permit, () -> submit(callback, providerDispatch));
+    }
+
+    // Provider call failing before the callback is called never finishes the message, it must not stay in flight
+    private static void submit(final PushSendingMetrics.InstrumentedCallback callback, final ProviderDispatch providerDispatch) throws PushServerException {
+        boolean submitted = false;
+        try {
+            providerDispatch.dispatch();
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                callback.dispatchFailed();
             }
-        };
+        }
     }
 
     // Return list of devices related to given user or activation ID (if present). List of devices is related to particular application as well.
@@ -268,6 +489,45 @@ public class PushMessageSenderService {
     }
 
 
+    /**
+     * Check whether the validity of the push message expired, so that it must not be sent anymore.
+     *
+     * @param pushMessageBody Push message body.
+     * @return True in case the message has a validity which already expired.
+     */
+    public static boolean isExpired(final PushMessageBody pushMessageBody) {
+        return pushMessageBody != null && pushMessageBody.getValidUntil() != null && !pushMessageBody.getValidUntil().isAfter(Instant.now());
+    }
+
+    // Expired message is dropped before any payload is built and counted as expired at given stage
+    private boolean dropIfExpired(final String appId, final PushMessageBody pushMessageBody, final PushSendingMetrics.Stage stage) {
+        if (!isExpired(pushMessageBody)) {
+            return false;
+        }
+        logger.debug("Push message expired and it is not sent, app ID: {}, valid until: {}, stage: {}", appId, pushMessageBody.getValidUntil(), stage);
+        pushSendingMetrics.messageExpired(appId, stage);
+        return true;
+    }
+
+    // Message to a push token recently rejected as invalid is not sent, the provider would reject it again
+    private boolean skipIfInvalidToken(final String appId, final Platform platform, final String pushToken) {
+        if (!invalidTokenFilter.mightContain(appId, pushToken)) {
+            return false;
+        }
+        logger.debug("Push message is not sent to a push token recently rejected as invalid, app ID: {}, platform: {}", appId, platform);
+        pushSendingMetrics.messageInvalidToken(appId, platform);
+        return true;
+    }
+
+    // Only rejections of the push token itself are remembered, e.g. an invalid payload or topic does not invalidate the token
+    private void rememberInvalidToken(final String appId, final String pushToken, final String rejectionReason) {
+        if (MessagingErrorCode.UNREGISTERED.name().equals(rejectionReason)
+                || ApnsRejectionReason.UNREGISTERED.isEqualToText(rejectionReason)
+                || ApnsRejectionReason.BAD_DEVICE_TOKEN.isEqualToText(rejectionReason)) {
+            invalidTokenFilter.add(appId, pushToken);
+        }
+    }
+
     // Use validator to check there are no errors in push message
     private void validatePushMessage(PushMessage pushMessage) throws PushServerException {
         final String error = PushMessageValidator.validatePushMessage(pushMessage);
@@ -310,29 +570,106 @@ public class PushMessageSenderService {
     }
 
     /**
-     * Arrive and deregister phaser based on the mode. For {@link Mode#SYNCHRONOUS}, the method provides deregistration. Otherwise,
-     * for {@link Mode#ASYNCHRONOUS}, it is a noop method.
+     * Arrive at the pending messages based on the mode. For {@link Mode#SYNCHRONOUS}, the method finishes a pending
+     * message. Otherwise, for {@link Mode#ASYNCHRONOUS}, it is a noop method.
      *
-     * @param phaser Phaser.
+     * @param pending Pending messages.
      * @param mode Mode.
      */
-    private static void arriveAndDeregisterPhaserForMode(Phaser phaser, Mode mode) {
-        if (mode == Mode.SYNCHRONOUS && phaser != null) {
-            phaser.arriveAndDeregister();
+    private static void arriveForMode(PendingMessages pending, Mode mode) {
+        if (mode == Mode.SYNCHRONOUS && pending != null) {
+            pending.arrive();
         }
     }
 
     /**
-     * Register phaser based on the mode. For {@link Mode#SYNCHRONOUS}, the method provides registration. Otherwise,
-     * for {@link Mode#ASYNCHRONOUS}, it is a noop method.
+     * Register a pending message based on the mode. For {@link Mode#SYNCHRONOUS}, the method provides registration.
+     * Otherwise, for {@link Mode#ASYNCHRONOUS}, it is a noop method.
      *
-     * @param phaser Phaser.
+     * @param pending Pending messages.
      * @param mode Mode.
      */
-    private static void registerPhaserForMode(Phaser phaser, Mode mode) {
-        if (mode == Mode.SYNCHRONOUS && phaser != null) {
+    private static void registerPendingForMode(PendingMessages pending, Mode mode) {
+        if (mode == Mode.SYNCHRONOUS && pending != null) {
+            pending.register();
+        }
+    }
+
+    /**
+     * Tracking of the messages waiting for the provider response. The number of pending messages is limited by
+     * a sliding window, a message is registered as soon as any pending message is finished. The phaser is used only
+     * for the final wait for all pending messages.
+     */
+    private static final class PendingMessages {
+
+        // Maximum number of unarrived parties of a phaser, including the party of the dispatching thread
+        private static final int MAX_PHASER_PARTIES = 65535;
+
+        private final Phaser phaser = new Phaser(1);
+        private final Semaphore window;
+
+        PendingMessages(final int maxPending) {
+            this.window = new Semaphore(Math.max(1, Math.min(maxPending, MAX_PHASER_PARTIES - 1)));
+        }
+
+        void register() {
+            window.acquireUninterruptibly();
             phaser.register();
         }
+
+        void arrive() {
+            phaser.arriveAndDeregister();
+            window.release();
+        }
+
+        void awaitAll() {
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    /**
+     * Tracking of the provider responses for all devices of a push message. The dispatching of the message is a party
+     * of its own, so that the listener is not called before the message was dispatched to all devices.
+     */
+    private static final class Delivery {
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicBoolean sendAgain = new AtomicBoolean();
+        private final Runnable onDelivered;
+
+        Delivery(final Runnable onDelivered) {
+            this.onDelivered = onDelivered;
+        }
+
+        void register() {
+            pending.incrementAndGet();
+        }
+
+        void arrive(final PushSendingCallback.Result result) {
+            // The provider asked to send the message again later, e.g. due to exceeded quota
+            if (result == PushSendingCallback.Result.PENDING) {
+                sendAgain.set(true);
+            }
+            countDown();
+        }
+
+        void dispatched() {
+            countDown();
+        }
+
+        private void countDown() {
+            if (pending.decrementAndGet() == 0 && !sendAgain.get()) {
+                onDelivered.run();
+            }
+        }
+    }
+
+    /**
+     * Dispatching of a push message to the provider.
+     */
+    @FunctionalInterface
+    private interface ProviderDispatch {
+        void dispatch() throws PushServerException;
     }
 
 }
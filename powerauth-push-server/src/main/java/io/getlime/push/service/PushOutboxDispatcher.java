@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.getlime.push.configuration.PushServiceConfiguration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatcher draining the outbox of push messages in background workers.
+ * <p>
+ * Workers of all nodes take batches of messages concurrently, rows locked by another worker are skipped. The rate
+ * of messages sent by this node is limited, so that spikes of accepted messages are spread over time.
+ */
+@Service
+@ConditionalOnProperty(name = "powerauth.push.service.outbox.enabled", havingValue = "true")
+@Slf4j
+public class PushOutboxDispatcher {
+
+    private final PushOutboxService pushOutboxService;
+    private final int batchSize;
+    private final int workers;
+    private final Duration pollInterval;
+    private final RateLimiter rateLimiter;
+    private final ExecutorService executorService;
+
+    private volatile boolean running;
+
+    /**
+     * Constructor with injected beans.
+     * @param pushOutboxService Push outbox service.
+     * @param configuration Push service configuration.
+     * @param workers Number of workers draining the outbox on this node.
+     * @param pollInterval Delay before polling the outbox again once it is drained.
+     * @param maxRate Maximum number of messages per second taken from the outbox by this node.
+     */
+    public PushOutboxDispatcher(
+            final PushOutboxService pushOutboxService,
+            final PushServiceConfiguration configuration,
+            @Value("${powerauth.push.service.outbox.workers:2}") final int workers,
+            @Value("${powerauth.push.service.outbox.pollInterval:1s}") final Duration pollInterval,
+            @Value("${powerauth.push.service.outbox.maxRate:1000}") final double maxRate) {
+
+        this.pushOutboxService = pushOutboxService;
+        this.batchSize = Math.max(1, configuration.getOutboxBatchSize());
+        this.workers = Math.max(1, workers);
+        this.pollInterval = pollInterval;
+        this.rateLimiter = RateLimiter.create(maxRate);
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(this.workers, runnable -> {
+            final Thread thread = new Thread(runnable, "push-outbox-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start the workers.
+     */
+    @PostConstruct
+    public void start() {
+        logger.info("Starting push outbox dispatcher, workers: {}, batch size: {}, max rate: {}", workers, batchSize, rateLimiter.getRate());
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executorService.execute(this::drain);
+        }
+    }
+
+    /**
+     * Stop the workers and delete messages already delivered to the providers, messages of batches in progress are
+     * sent again by another worker once their claim expires.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        executorService.shutdownNow();
+        try {
+            pushOutboxService.deleteDelivered();
+        } catch (RuntimeException ex) {
+            logger.warn("Deleting of delivered push messages from outbox failed, error: {}", ex.getMessage());
+            logger.debug("Exception detail: ", ex);
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            int dispatched = 0;
+            try {
+                dispatched = pushOutboxService.dispatchBatch(batchSize);
+            } catch (RuntimeException ex) {
+                logger.error("Dispatching of push messages from outbox failed, error: {}", ex.getMessage());
+                logger.debug("Exception detail: ", ex);
+            }
+            if (dispatched > 0) {
+                rateLimiter.acquire(dispatched);
+            }
+            if (dispatched < batchSize && !sleep()) {
+                return;
+            }
+        }
+    }
+
+    private boolean sleep() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.configuration.PushServiceConfiguration;
+import io.getlime.push.errorhandling.exceptions.PushCapacityExhaustedException;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.entity.PushMessage;
+import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.repository.dao.PushOutboxDAO;
+import io.getlime.push.repository.model.PushOutboxEntity;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Service sending push messages taken from the outbox.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class PushOutboxService {
+
+    private final PushOutboxDAO pushOutboxDAO;
+    private final PushMessageSenderService pushMessageSenderService;
+    private final JsonSerialization jsonSerialization;
+    private final PushSendingMetrics pushSendingMetrics;
+    private final PushServiceConfiguration configuration;
+
+    // IDs of messages delivered to the providers, deleted from the outbox by the next batch
+    private final Queue<Long> delivered = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Claim a batch of messages in the outbox and hand them over for sending. A message is deleted from the outbox
+     * once the providers responded for all its devices, either by this batch or by the next one.
+     * <p>
+     * The claim is committed before the messages are sent, so that a failure of a single message does not affect
+     * the other messages of the batch. A message which failed to be handed over, or for which a provider did not
+     * respond or asked to send it again later, stays in the outbox and it is claimed again once the claim expires,
+     * the same applies to the whole batch on a node failure. A message which failed in all attempts is marked as
+     * failed and it is not sent anymore. In case the capacity for sending is exhausted,
+     * the claim of the remaining messages is released without counting the attempt, so that they are sent later.
+     * Messages of the batch with the same collapse key for the same user and activation are superseded by the latest
+     * one, only the latest one is sent.
+     *
+     * @param batchSize Maximum number of messages in the batch.
+     * @return Number of messages taken from the outbox.
+     */
+    public int dispatchBatch(final int batchSize) {
+        deleteDelivered();
+        final int maxAttempts = configuration.getOutboxMaxAttempts();
+        final List<PushOutboxEntity> entries = pushOutboxDAO.claimBatch(batchSize, configuration.getOutboxClaimTimeout());
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        final List<Long> dropped = new ArrayList<>();
+        final List<Long> failed = new ArrayList<>();
+        final Map<Object, OutboxMessage> messages = new LinkedHashMap<>();
+        int superseded = 0;
+        for (PushOutboxEntity entry : entries) {
+            if (entry.getAttempts() > maxAttempts) {
+                // Previous claims expired without the message being removed, e.g. due to node failures
+                logger.warn("Push message from outbox exceeded maximum attempts, ID: {}, application ID: {}", entry.getId(), entry.getAppId());
+                failed.add(entry.getId());
+                continue;
+            }
+            try {
+                final PushMessage pushMessage = jsonSerialization.deserializePushMessage(entry.getMessage());
+                final Object key = resolveKey(entry, pushMessage);
+                final OutboxMessage previous = messages.put(key, new OutboxMessage(entry.getId(), entry.getAppId(), entry.getAttempts(), pushMessage));
+                if (previous != null) {
+                    dropped.add(previous.id());
+                    superseded++;
+                }
+            } catch (PushServerException ex) {
+                logger.warn("Push message from outbox was dropped, ID: {}, application ID: {}, error: {}", entry.getId(), entry.getAppId(), ex.getMessage());
+                logger.debug("Exception detail: ", ex);
+                dropped.add(entry.getId());
+            }
+        }
+        final List<Long> released = new ArrayList<>();
+        final List<OutboxMessage> pending = new ArrayList<>(messages.values());
+        for (int i = 0; i < pending.size(); i++) {
+            final OutboxMessage message = pending.get(i);
+            if (PushMessageSenderService.isExpired(message.pushMessage().getBody())) {
+                logger.debug("Push message from outbox expired and it is not sent, ID: {}, application ID: {}", message.id(), message.appId());
+                pushSendingMetrics.messageExpired(message.appId(), PushSendingMetrics.Stage.OUTBOX);
+                dropped.add(message.id());
+                continue;
+            }
+            try {
+                pushMessageSenderService.sendOutboxMessage(message.appId(), message.pushMessage(), () -> delivered.add(message.id()));
+            } catch (PushCapacityExhaustedException ex) {
+                // The message is valid, it is sent again together with the rest of the batch once the capacity is available
+                logger.warn("Push message from outbox was not sent due to exhausted capacity, ID: {}, application ID: {}, error: {}", message.id(), message.appId(), ex.getMessage());
+                logger.debug("Exception detail: ", ex);
+                pending.subList(i, pending.size()).forEach(remaining -> released.add(remaining.id()));
+                break;
+            } catch (PushServerException ex) {
+                logger.warn("Push message from outbox was dropped, ID: {}, application ID: {}, error: {}", message.id(), message.appId(), ex.getMessage());
+                logger.debug("Exception detail: ", ex);
+                dropped.add(message.id());
+            } catch (RuntimeException ex) {
+                if (message.attempts() >= maxAttempts) {
+                    logger.error("Push message from outbox failed in all attempts, ID: {}, application ID: {}, error: {}", message.id(), message.appId(), ex.getMessage());
+                    failed.add(message.id());
+                } else {
+                    logger.warn("Push message from outbox failed and it is sent again later, ID: {}, application ID: {}, attempt: {}, error: {}", message.id(), message.appId(), message.attempts(), ex.getMessage());
+                }
+                logger.debug("Exception detail: ", ex);
+            }
+        }
+        pushOutboxDAO.deleteAll(dropped);
+        pushOutboxDAO.markFailed(failed);
+        pushOutboxDAO.release(released);
+        logger.debug("Dispatched push messages from outbox, dropped: {}, superseded: {}, failed: {}, released: {}", dropped.size(), superseded, failed.size(), released.size());
+        return entries.size();
+    }
+
+    /**
+     * Delete messages delivered to the providers since the last batch from the outbox.
+     */
+    public void deleteDelivered() {
+        final List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = delivered.poll()) != null) {
+            ids.add(id);
+        }
+        pushOutboxDAO.deleteAll(ids);
+    }
+
+    // Messages with a collapse key share the key with the older messages they supersede, other messages are unique
+    private static Object resolveKey(final PushOutboxEntity entry, final PushMessage pushMessage) {
+        final PushMessageBody body = pushMessage.getBody();
+        if (body == null || body.getCollapseKey() == null) {
+            return entry.getId();
+        }
+        return new CollapseKey(entry.getAppId(), pushMessage.getUserId(), pushMessage.getActivationId(), body.getCollapseKey());
+    }
+
+    private record OutboxMessage(Long id, String appId, int attempts, PushMessage pushMessage) {
+    }
+
+    private record CollapseKey(String appId, String userId, String activationId, String collapseKey) {
+    }
+
+}
@@ -55,4 +55,12 @@ public interface PushSendingCallback {
      * @param result Result of the push message sending.
      */
     void didFinishSendingMessage(Result result);
+
+    /**
+     * Called before {@link #didFinishSendingMessage(Result)} in case the provider rejected the message.
+     *
+     * @param reason APNs rejection reason, FCM error code or HMS result code.
+     */
+    default void didReceiveRejectionReason(String reason) {
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.repository.model.Platform;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation of the push message sending pipeline.
+ * <p>
+ * Meters are tagged by app ID, platform ({@code apns}, {@code fcm}, {@code hms}), outcome (result of the sending)
+ * and reason (APNs rejection reason, FCM error code or HMS result code, {@code none} if not available):
+ * <ul>
+ *     <li>{@code powerauth.push.send} - timer from dispatching the message to the provider response,</li>
+ *     <li>{@code powerauth.push.send.endToEnd} - timer from receiving the request to the provider response,</li>
+ *     <li>{@code powerauth.push.send.inFlight} - gauge of messages waiting for the provider response,</li>
+ *     <li>{@code powerauth.push.campaign.running} - gauge of campaigns being sent,</li>
+ *     <li>{@code powerauth.push.campaign.dispatched} - counter of campaign messages dispatched to providers,</li>
+ *     <li>{@code powerauth.push.send.superseded} - counter of messages not sent, because a newer message with the same collapse key was scheduled for the device,</li>
+ *     <li>{@code powerauth.push.send.expired} - counter of messages not sent, because their validity expired, tagged by app ID and stage only,</li>
+ *     <li>{@code powerauth.push.send.invalidToken} - counter of messages not sent, because the push token was recently rejected as invalid.</li>
+ * </ul>
+ */
+@Component
+public class PushSendingMetrics {
+
+    private static final String METER_SEND = "powerauth.push.send";
+    private static final String METER_SEND_END_TO_END = "powerauth.push.send.endToEnd";
+    private static final String METER_SEND_IN_FLIGHT = "powerauth.push.send.inFlight";
+    private static final String METER_CAMPAIGN_RUNNING = "powerauth.push.campaign.running";
+    private static final String METER_CAMPAIGN_DISPATCHED = "powerauth.push.campaign.dispatched";
+    private static final String METER_SEND_SUPERSEDED = "powerauth.push.send.superseded";
+    private static final String METER_SEND_EXPIRED = "powerauth.push.send.expired";
+    private static final String METER_SEND_INVALID_TOKEN = "powerauth.push.send.invalidToken";
+
+    private static final String TAG_APP_ID = "appId";
+    private static final String TAG_PLATFORM = "platform";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_REASON = "reason";
+    private static final String TAG_STAGE = "stage";
+    private static final String REASON_NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Tags, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger runningCampaigns = new AtomicInteger();
+
+    /**
+     * Constructor with the meter registry.
+     * @param meterRegistry Meter registry.
+     */
+    public PushSendingMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(METER_CAMPAIGN_RUNNING, runningCampaigns, AtomicInteger::get)
+                .description("Number of push campaigns being sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wrap the callback of a message dispatched to a provider, so that the result is recorded before the callback is called.
+     *
+     * @param appId App ID.
+     * @param platform Platform of the device.
+     * @param receivedNanos Value of {@link System#nanoTime()} when the sending request was received.
+     * @param callback Callback to be wrapped.
+     * @return Instrumented callback.
+     */
+    public InstrumentedCallback instrument(final String appId, final Platform platform, final long receivedNanos, final PushSendingCallback callback) {
+        final Tags tags = Tags.of(TAG_APP_ID, appId, TAG_PLATFORM, platformTag(platform));
+        final AtomicInteger inFlightCount = inFlight.computeIfAbsent(tags, this::registerInFlight);
+        inFlightCount.incrementAndGet();
+        final long dispatchedNanos = System.nanoTime();
+        return new InstrumentedCallback() {
+
+            private final AtomicBoolean counted = new AtomicBoolean(true);
+
+            private volatile String reason;
+
+            @Override
+            public void didReceiveRejectionReason(final String reason) {
+                this.reason = reason;
+                callback.didReceiveRejectionReason(reason);
+            }
+
+            @Override
+            public void didFinishSendingMessage(final Result result) {
+                final long finishedNanos = System.nanoTime();
+                leaveInFlight();
+                final Tags resultTags = tags.and(TAG_OUTCOME, result.name(), TAG_REASON, reason != null ? reason : REASON_NONE);
+                Timer.builder(METER_SEND)
+                        .description("Duration from dispatching a push message to the provider response")
+                        .tags(resultTags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(finishedNanos - dispatchedNanos, TimeUnit.NANOSECONDS);
+                Timer.builder(METER_SEND_END_TO_END)
+                        .description("Duration from receiving a push message request to the provider response")
+                        .tags(resultTags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(finishedNanos - receivedNanos, TimeUnit.NANOSECONDS);
+                callback.didFinishSendingMessage(result);
+            }
+
+            @Override
+            public void dispatchFailed() {
+                leaveInFlight();
+            }
+
+            // The message leaves the in-flight count only once, even if the provider call failed after the callback
+            private void leaveInFlight() {
+                if (counted.compareAndSet(true, false)) {
+                    inFlightCount.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Record start of sending a campaign.
+     */
+    public void campaignStarted() {
+        runningCampaigns.incrementAndGet();
+    }
+
+    /**
+     * Record end of sending a campaign.
+     */
+    public void campaignFinished() {
+        runningCampaigns.decrementAndGet();
+    }
+
+    /**
+     * Record a campaign message dispatched to a device.
+     * @param appId App ID.
+     * @param platform Platform of the device.
+     */
+    public void campaignMessageDispatched(final String appId, final Platform platform) {
+        Counter.builder(METER_CAMPAIGN_DISPATCHED)
+                .description("Number of campaign messages dispatched to providers")
+                .tags(TAG_APP_ID, appId, TAG_PLATFORM, platformTag(platform))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record a message which was not sent, because it was superseded by a newer message with the same collapse key.
+     * @param appId App ID.
+     * @param platform Platform of the device.
+     */
+    public void messageSuperseded(final String appId, final Platform platform) {
+        Counter.builder(METER_SEND_SUPERSEDED)
+                .description("Number of push messages superseded by a newer message with the same collapse key")
+                .tags(TAG_APP_ID, appId, TAG_PLATFORM, platformTag(platform))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record a message which was not sent, because the push token was recently rejected by the provider as invalid.
+     * @param appId App ID.
+     * @param platform Platform of the device.
+     */
+    public void messageInvalidToken(final String appId, final Platform platform) {
+        Counter.builder(METER_SEND_INVALID_TOKEN)
+                .description("Number of push messages not sent to push tokens recently rejected as invalid")
+                .tags(TAG_APP_ID, appId, TAG_PLATFORM, platformTag(platform))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record a message which was not sent, because its validity expired before it was dispatched to a provider.
+     * @param appId App ID.
+     * @param stage Stage at which the expired message was dropped.
+     */
+    public void messageExpired(final String appId, final Stage stage) {
+        Counter.builder(METER_SEND_EXPIRED)
+                .description("Number of push messages dropped because their validity expired")
+                .tags(TAG_APP_ID, appId, TAG_STAGE, stage.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private AtomicInteger registerInFlight(final Tags tags) {
+        final AtomicInteger count = new AtomicInteger();
+        Gauge.builder(METER_SEND_IN_FLIGHT, count, AtomicInteger::get)
+                .description("Number of push messages waiting for the provider response")
+                .tags(tags)
+                .register(meterRegistry);
+        return count;
+    }
+
+    /**
+     * Stage of the sending pipeline at which a message may wait before it is dispatched to a provider.
+     */
+    public enum Stage {
+
+        /**
+         * Sending request was received.
+         */
+        REQUEST,
+
+        /**
+         * Message was taken from the outbox.
+         */
+        OUTBOX,
+
+        /**
+         * Message waited for the sending capacity.
+         */
+        SCHEDULING,
+
+        /**
+         * Campaign message was read for a device.
+         */
+        CAMPAIGN
+    }
+
+    /**
+     * Callback of a message dispatched to a provider, the message is counted as in flight until the callback is called.
+     */
+    public interface InstrumentedCallback extends PushSendingCallback {
+
+        /**
+         * Stop counting the message as in flight, because the provider call failed before the callback was called.
+         */
+        void dispatchFailed();
+    }
+
+    private static String platformTag(final Platform platform) {
+        return switch (platform) {
+            case IOS, APNS -> "apns";
+            case ANDROID, FCM -> "fcm";
+            case HUAWEI, HMS -> "hms";
+        };
+    }
+
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.errorhandling.exceptions.PushCapacityExhaustedException;
+import io.getlime.push.model.enumeration.Priority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler of push messages dispatched to the providers, shared by all applications.
+ * <p>
+ * Each traffic class has its own budget of messages waiting for the provider response, so that a large campaign
+ * cannot exhaust the capacity used by transactional messages. Within a traffic class, messages of each priority
+ * wait in a separate lane with its own limit of messages in flight. Released capacity is offered to the lane of
+ * {@link Priority#HIGH} messages first, so that they overtake waiting {@link Priority#NORMAL} messages. Messages
+ * of a lane are admitted in the order of start-time fair queueing: each application gets a share of the released
+ * capacity proportional to its weight, regardless of how many messages it has submitted.
+ * <p>
+ * A waiting message with a collapse key is superseded by a newer message with the same collapse key of the same
+ * traffic class, the superseded message is not sent at all. The collapse key should identify the device, so that
+ * only the latest of e.g. frequent balance updates is sent to the device.
+ * <p>
+ * Lanes are instrumented by gauges {@code powerauth.push.scheduling.inFlight} and {@code powerauth.push.scheduling.waiting}
+ * and by timer {@code powerauth.push.scheduling.wait}, tagged by traffic class and priority.
+ */
+@Component
+@Slf4j
+public class PushSendingScheduler {
+
+    /**
+     * Traffic class of a push message.
+     */
+    public enum TrafficClass {
+
+        /**
+         * Messages sent using the push message API, typically latency-sensitive.
+         */
+        TRANSACTIONAL,
+
+        /**
+         * Messages sent by a push campaign.
+         */
+        CAMPAIGN
+    }
+
+    private static final String METER_IN_FLIGHT = "powerauth.push.scheduling.inFlight";
+    private static final String METER_WAITING = "powerauth.push.scheduling.waiting";
+    private static final String METER_WAIT = "powerauth.push.scheduling.wait";
+
+    private static final String TAG_TRAFFIC_CLASS = "trafficClass";
+    private static final String TAG_PRIORITY = "priority";
+
+    // Order in which the released capacity is offered to the lanes
+    private static final List<Priority> PRIORITY_ORDER = List.of(Priority.HIGH, Priority.NORMAL);
+
+    private static final Permit NOOP_PERMIT = new Permit(null, null, false);
+    private static final Permit SUPERSEDED_PERMIT = new Permit(null, null, true);
+
+    private final boolean enabled;
+    private final Map<TrafficClass, Lane> lanes = new EnumMap<>(TrafficClass.class);
+    private final Map<String, Integer> weights;
+
+    /**
+     * Constructor with injected configuration.
+     * @param meterRegistry Meter registry.
+     * @param enabled Whether scheduling of push messages is enabled.
+     * @param transactionalMaxConcurrency Maximum number of transactional messages waiting for the provider response.
+     * @param transactionalMaxWait Maximum duration a transactional message waits for the capacity.
+     * @param campaignMaxConcurrency Maximum number of campaign messages waiting for the provider response.
+     * @param highPriorityMaxConcurrency Maximum number of high priority messages of a traffic class waiting for the provider response.
+     * @param normalPriorityMaxConcurrency Maximum number of normal priority messages of a traffic class waiting for the provider response.
+     * @param weights Weights of applications in format {@code appId=weight}, separated by comma, default weight is 1.
+     */
+    public PushSendingScheduler(
+            final MeterRegistry meterRegistry,
+            @Value("${powerauth.push.service.scheduling.enabled:false}") final boolean enabled,
+            @Value("${powerauth.push.service.scheduling.transactional.maxConcurrency:1000}") final int transactionalMaxConcurrency,
+            @Value("${powerauth.push.service.scheduling.transactional.maxWait:30s}") final Duration transactionalMaxWait,
+            @Value("${powerauth.push.service.scheduling.campaign.maxConcurrency:500}") final int campaignMaxConcurrency,
+            @Value("${powerauth.push.service.scheduling.priority.high.maxConcurrency:1000}") final int highPriorityMaxConcurrency,
+            @Value("${powerauth.push.service.scheduling.priority.normal.maxConcurrency:500}") final int normalPriorityMaxConcurrency,
+            @Value("${powerauth.push.service.scheduling.weights:}") final String weights) {
+
+        this.enabled = enabled;
+        this.weights = parseWeights(weights);
+        final Map<Priority, Integer> priorityCapacities = Map.of(
+                Priority.HIGH, Math.max(1, highPriorityMaxConcurrency),
+                Priority.NORMAL, Math.max(1, normalPriorityMaxConcurrency));
+        // Campaign messages are sent by batch jobs, they wait for the capacity without a limit
+        lanes.put(TrafficClass.TRANSACTIONAL, new Lane(TrafficClass.TRANSACTIONAL, Math.max(1, transactionalMaxConcurrency), priorityCapacities, transactionalMaxWait));
+        lanes.put(TrafficClass.CAMPAIGN, new Lane(TrafficClass.CAMPAIGN, Math.max(1, campaignMaxConcurrency), priorityCapacities, null));
+        if (enabled) {
+            lanes.values().forEach(lane -> lane.registerMeters(meterRegistry));
+            logger.info("Push message scheduling enabled, transactional concurrency: {}, campaign concurrency: {}, high priority concurrency: {}, normal priority concurrency: {}, weights: {}",
+                    transactionalMaxConcurrency, campaignMaxConcurrency, highPriorityMaxConcurrency, normalPriorityMaxConcurrency, this.weights);
+        }
+    }
+
+    /**
+     * Acquire a permit to dispatch a push message to a provider, waiting for the capacity of the traffic class and
+     * priority if needed. The permit must be released once the provider responds, typically by the callback wrapped
+     * by the permit. In case the message was superseded while waiting, the returned permit holds no capacity and the
+     * message must not be sent, see {@link Permit#isSuperseded()}.
+     *
+     * @param trafficClass Traffic class of the message.
+     * @param priority Priority of the message, {@code null} is treated as {@link Priority#HIGH}.
+     * @param appId App ID.
+     * @param collapseKey Key of the device and the message collapse key, {@code null} in case the message cannot be superseded.
+     * @return Permit.
+     * @throws PushCapacityExhaustedException In case the capacity was not available in time or the waiting was interrupted.
+     */
+    public Permit acquire(final TrafficClass trafficClass, final Priority priority, final String appId, final String collapseKey) throws PushCapacityExhaustedException {
+        if (!enabled) {
+            return NOOP_PERMIT;
+        }
+        final Lane lane = lanes.get(trafficClass);
+        final PriorityLane priorityLane = lane.acquire(priority != null ? priority : Priority.HIGH, appId, weights.getOrDefault(appId, 1), collapseKey);
+        if (priorityLane == null) {
+            return SUPERSEDED_PERMIT;
+        }
+        return new Permit(lane, priorityLane, false);
+    }
+
+    /**
+     * Get the number of push messages waiting for the capacity of given traffic class and priority.
+     *
+     * @param trafficClass Traffic class.
+     * @param priority Priority.
+     * @return Number of waiting messages.
+     */
+    int getWaitingCount(final TrafficClass trafficClass, final Priority priority) {
+        final Lane lane = lanes.get(trafficClass);
+        return lane.withLock(() -> lane.priorityLanes.get(priority).waiters.size());
+    }
+
+    private static Map<String, Integer> parseWeights(final String weights) {
+        final Map<String, Integer> result = new HashMap<>();
+        for (String entry : StringUtils.commaDelimitedListToStringArray(weights)) {
+            final String[] keyValue = StringUtils.split(entry.trim(), "=");
+            if (keyValue == null) {
+                throw new IllegalArgumentException("Invalid push message scheduling weight: " + entry);
+            }
+            final int weight = Integer.parseInt(keyValue[1].trim());
+            if (weight < 1) {
+                throw new IllegalArgumentException("Push message scheduling weight must be positive: " + entry);
+            }
+            result.put(keyValue[0].trim(), weight);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Permit to dispatch a single push message. Releasing the permit more than once has no effect.
+     */
+    public static final class Permit {
+
+        private final Lane lane;
+        private final PriorityLane priorityLane;
+        private final boolean superseded;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(final Lane lane, final PriorityLane priorityLane, final boolean superseded) {
+            this.lane = lane;
+            this.priorityLane = priorityLane;
+            this.superseded = superseded;
+        }
+
+        /**
+         * Get whether the message was superseded by a newer message with the same collapse key and must not be sent.
+         *
+         * @return True in case the message was superseded.
+         */
+        public boolean isSuperseded() {
+            return superseded;
+        }
+
+        /**
+         * Release the permit, e.g. in case the message was not dispatched.
+         */
+        public void release() {
+            if (lane != null && released.compareAndSet(false, true)) {
+                lane.release(priorityLane);
+            }
+        }
+
+        /**
+         * Wrap the callback, so that the permit is released once the provider responds.
+         *
+         * @param callback Callback to be wrapped.
+         * @return Callback releasing the permit.
+         */
+        public PushSendingCallback wrap(final PushSendingCallback callback) {
+            if (lane == null) {
+                return callback;
+            }
+            return new PushSendingCallback() {
+                @Override
+                public void didReceiveRejectionReason(final String reason) {
+                    callback.didReceiveRejectionReason(reason);
+                }
+
+                @Override
+                public void didFinishSendingMessage(final Result result) {
+                    try {
+                        callback.didFinishSendingMessage(result);
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Capacity of a traffic class split into the lanes of message priorities.
+     */
+    private static final class Lane {
+
+        private final TrafficClass trafficClass;
+        private final int capacity;
+        private final Duration maxWait;
+        private final Map<Priority, PriorityLane> priorityLanes = new EnumMap<>(Priority.class);
+        private final Map<String, Waiter> waitingByCollapseKey = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private int inFlight;
+
+        Lane(final TrafficClass trafficClass, final int capacity, final Map<Priority, Integer> priorityCapacities, final Duration maxWait) {
+            this.trafficClass = trafficClass;
+            this.capacity = capacity;
+            this.maxWait = maxWait;
+            PRIORITY_ORDER.forEach(priority -> priorityLanes.put(priority, new PriorityLane(priority, priorityCapacities.get(priority))));
+        }
+
+        // Return the lane of the granted capacity or null in case the message was superseded
+        PriorityLane acquire(final Priority priority, final String appId, final int weight, final String collapseKey) throws PushCapacityExhaustedException {
+            final PriorityLane priorityLane = priorityLanes.get(priority);
+            final long waitStartNanos = System.nanoTime();
+            final Waiter waiter = withLock(() -> {
+                final Waiter result = priorityLane.enqueue(appId, weight, collapseKey);
+                if (collapseKey != null) {
+                    supersede(waitingByCollapseKey.put(collapseKey, result));
+                }
+                admit();
+                return result;
+            });
+
+            try {
+                if (maxWait == null) {
+                    waiter.latch().await();
+                } else if (!waiter.latch().await(maxWait.toMillis(), TimeUnit.MILLISECONDS) && cancel(priorityLane, waiter)) {
+                    logger.warn("Capacity for sending push messages is exhausted, traffic class: {}, priority: {}, app ID: {}", trafficClass, priority, appId);
+                    throw new PushCapacityExhaustedException("Capacity for sending push messages is exhausted");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (cancel(priorityLane, waiter)) {
+                    throw new PushCapacityExhaustedException("Waiting for capacity for sending push messages was interrupted", ex);
+                }
+                // The permit was already granted, keep it
+            }
+            if (waiter.superseded().get()) {
+                return null;
+            }
+            if (priorityLane.waitTimer != null) {
+                priorityLane.waitTimer.record(System.nanoTime() - waitStartNanos, TimeUnit.NANOSECONDS);
+            }
+            return priorityLane;
+        }
+
+        void release(final PriorityLane priorityLane) {
+            withLock(() -> {
+                inFlight--;
+                priorityLane.inFlight--;
+                admit();
+                return null;
+            });
+        }
+
+        // Grant the free capacity to the waiting messages, lanes of higher priority first
+        private void admit() {
+            for (Priority priority : PRIORITY_ORDER) {
+                final PriorityLane priorityLane = priorityLanes.get(priority);
+                while (inFlight < capacity && priorityLane.hasCapacity()) {
+                    final Waiter next = priorityLane.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    inFlight++;
+                    forgetCollapseKey(next);
+                    next.latch().countDown();
+                }
+            }
+        }
+
+        // Remove the older message waiting with the same collapse key, its sending is skipped
+        private void supersede(final Waiter previous) {
+            if (previous != null && priorityLanes.get(previous.priority()).waiters.remove(previous)) {
+                previous.superseded().set(true);
+                previous.latch().countDown();
+            }
+        }
+
+        private void forgetCollapseKey(final Waiter waiter) {
+            if (waiter.collapseKey() != null) {
+                waitingByCollapseKey.remove(waiter.collapseKey(), waiter);
+            }
+        }
+
+        private boolean cancel(final PriorityLane priorityLane, final Waiter waiter) {
+            return withLock(() -> {
+                forgetCollapseKey(waiter);
+                return priorityLane.waiters.remove(waiter);
+            });
+        }
+
+        private void registerMeters(final MeterRegistry meterRegistry) {
+            for (PriorityLane priorityLane : priorityLanes.values()) {
+                final Tags tags = Tags.of(TAG_TRAFFIC_CLASS, trafficClass.name().toLowerCase(), TAG_PRIORITY, priorityLane.priority.name().toLowerCase());
+                Gauge.builder(METER_IN_FLIGHT, priorityLane, lane -> withLock(() -> lane.inFlight))
+                        .description("Number of scheduled push messages waiting for the provider response")
+                        .tags(tags)
+                        .register(meterRegistry);
+                Gauge.builder(METER_WAITING, priorityLane, lane -> withLock(() -> lane.waiters.size()))
+                        .description("Number of push messages waiting for the sending capacity")
+                        .tags(tags)
+                        .register(meterRegistry);
+                priorityLane.waitTimer = Timer.builder(METER_WAIT)
+                        .description("Time a push message waited for the sending capacity")
+                        .tags(tags)
+                        .register(meterRegistry);
+            }
+        }
+
+        private <T> T withLock(final Supplier<T> action) {
+            lock.lock();
+            try {
+                return action.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lane of messages of a single priority, ordered by the virtual finish tags. Guarded by the lock of the traffic class.
+     */
+    private static final class PriorityLane {
+
+        private final Priority priority;
+        private final int capacity;
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator
+                .comparingDouble(Waiter::finishTag)
+                .thenComparingLong(Waiter::sequence));
+        private final Map<String, Double> lastFinishTags = new HashMap<>();
+
+        private int inFlight;
+        private double virtualTime;
+        private long sequence;
+        private Timer waitTimer;
+
+        PriorityLane(final Priority priority, final int capacity) {
+            this.priority = priority;
+            this.capacity = capacity;
+        }
+
+        Waiter enqueue(final String appId, final int weight, final String collapseKey) {
+            final double startTag = Math.max(virtualTime, lastFinishTags.getOrDefault(appId, 0.0));
+            final double finishTag = startTag + 1.0 / weight;
+            lastFinishTags.put(appId, finishTag);
+            final Waiter waiter = new Waiter(priority, collapseKey, startTag, finishTag, sequence++, new CountDownLatch(1), new AtomicBoolean());
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        boolean hasCapacity() {
+            return inFlight < capacity;
+        }
+
+        Waiter poll() {
+            final Waiter next = waiters.poll();
+            if (next == null) {
+                return null;
+            }
+            inFlight++;
+            virtualTime = next.startTag();
+            if (waiters.isEmpty()) {
+                // No message is waiting, the virtual time starts over
+                virtualTime = 0;
+                lastFinishTags.clear();
+            }
+            return next;
+        }
+    }
+
+    private record Waiter(Priority priority, String collapseKey, double startTag, double finishTag, long sequence,
+                          CountDownLatch latch, AtomicBoolean superseded) {
+    }
+
+}
@@ -25,7 +25,6 @@ import com.eatthepath.pushy.apns.util.concurrent.PushNotificationFuture;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.firebase.messaging.*;
-import com.wultra.core.rest.client.base.RestClientException;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.FcmMissingTokenException;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
@@ -48,6 +47,9 @@ import io.opentelemetry.context.Context;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.resources.ConnectionProvider;
 
 import javax.net.ssl.SSLException;
 import java.io.ByteArrayInputStream;
@@ -74,8 +76,9 @@ public class PushSendingWorker {
     // FCM data only notification keys
     private static final String FCM_NOTIFICATION_KEY            = "_notification";
 
-    // Expected response String from FCM
-    private static final String FCM_RESPONSE_VALID_REGEXP       = "projects/.+/messages/.+";
+    // Expected response String from FCM is "projects/{project_id}/messages/{message_id}"
+    private static final String FCM_RESPONSE_NAME_PREFIX        = "projects/";
+    private static final String FCM_RESPONSE_NAME_MESSAGES      = "/messages/";
 
 
     // Maximum Android TTL value in seconds, see: https://firebase.google.com/docs/cloud-messaging/concept-options#ttl
@@ -84,6 +87,7 @@ public class PushSendingWorker {
     private final PushServiceConfiguration pushServiceConfiguration;
     private final FcmModelConverter fcmConverter;
     private final CaCertificateService caCertificateService;
+    private final ConnectionProvider fcmConnectionProvider;
 
     // Android related methods
 
@@ -95,7 +99,7 @@ public class PushSendingWorker {
      * @return A new instance of FCM client.
      */
     FcmClient prepareFcmClient(String projectId, byte[] privateKey) throws PushServerException {
-        final FcmClient fcmClient = new FcmClient(projectId, privateKey, pushServiceConfiguration, fcmConverter);
+        final FcmClient fcmClient = new FcmClient(projectId, privateKey, pushServiceConfiguration, fcmConverter, fcmConnectionProvider);
         if (pushServiceConfiguration.isFcmProxyEnabled()) {
             String proxyHost = pushServiceConfiguration.getFcmProxyHost();
             int proxyPort = pushServiceConfiguration.getFcmProxyPort();
@@ -109,7 +113,7 @@ public class PushSendingWorker {
             }
             fcmClient.setProxySettings(proxyHost, proxyPort, proxyUsername, proxyPassword);
         }
-        fcmClient.initializeRestClient();
+        fcmClient.initializeWebClient();
         final String fcmUrl = pushServiceConfiguration.getFcmSendMessageUrl();
         if (fcmUrl.contains("projects/%s/")) {
             // Initialize Google Credential for production FCM URL
@@ -123,6 +127,32 @@ public class PushSendingWorker {
         return fcmClient;
     }
 
+    /**
+     * Check whether the name of an FCM success response has the expected format {@code projects/.+/messages/.+}.
+     * The check is called for every sent message, so it is hand-rolled instead of matching a regular expression.
+     *
+     * @param name Name from the FCM success response.
+     * @return True if the name has the expected format, false otherwise.
+     */
+    static boolean isValidFcmResponseName(final String name) {
+        if (!name.startsWith(FCM_RESPONSE_NAME_PREFIX)) {
+            return false;
+        }
+        // Both the project and the message part must not be empty, the first separator after the project part decides
+        final int messagesIndex = name.indexOf(FCM_RESPONSE_NAME_MESSAGES, FCM_RESPONSE_NAME_PREFIX.length() + 1);
+        if (messagesIndex < 0 || messagesIndex + FCM_RESPONSE_NAME_MESSAGES.length() == name.length()) {
+            return false;
+        }
+        // Line terminators are not allowed, the same as for the dot in the format
+        for (int i = FCM_RESPONSE_NAME_PREFIX.length(); i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Prepares an HMS (Huawei Mobile Services) service client.
      *
@@ -151,7 +181,7 @@ public class PushSendingWorker {
         final Consumer<ResponseEntity<FcmSuccessResponse>> onSuccess = Context.current().wrapConsumer(responseEntity -> {
             final FcmSuccessResponse response = responseEntity.getBody();
             if (response != null && response.getName() != null) {
-                if (response.getName().matches(FCM_RESPONSE_VALID_REGEXP)) {
+                if (isValidFcmResponseName(response.getName())) {
                     logger.info("Notification sent successfully, response: {}.", response.getName());
                     callback.didFinishSendingMessage(PushSendingCallback.Result.OK);
                 } else {
@@ -167,33 +197,18 @@ public class PushSendingWorker {
 
         // Callback when FCM request fails
         final Consumer<Throwable> onError = Context.current().wrapConsumer(t -> {
-            if (t instanceof final RestClientException restClientException) {
-                final MessagingErrorCode errorCode = fcmConverter.convertExceptionToErrorCode(restClientException);
-                logger.warn("FCM server returned error response: {}.", (restClientException).getResponse());
-                switch (errorCode) {
-                    case UNREGISTERED, INVALID_ARGUMENT -> {
-                        logger.info("Push message rejected by FCM gateway, device registration for token: {} is invalid and will be removed. Error: {}", pushToken, errorCode);
-                        callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED_DELETE);
-                        return;
-                    }
-                    case UNAVAILABLE, INTERNAL, QUOTA_EXCEEDED -> {
-                        // TODO - implement throttling of messages, see:
-                        // https://firebase.google.com/docs/cloud-messaging/admin/errors
-                        logger.warn("Push message rejected by FCM gateway, message status set to PENDING. Error: {}", errorCode);
-                        callback.didFinishSendingMessage(PushSendingCallback.Result.PENDING);
-                        return;
-                    }
-                    case SENDER_ID_MISMATCH, THIRD_PARTY_AUTH_ERROR -> {
-                        logger.warn("Push message rejected by FCM gateway. Error: {}", errorCode);
-                        callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
-                        return;
-                    }
-                    default -> {
-                        logger.error("Unexpected error code received from FCM gateway. Error: {}", errorCode);
-                        callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
-                        return;
-                    }
-                }
+            if (t instanceof final WebClientResponseException responseException) {
+                final String errorResponse = responseException.getResponseBodyAsString();
+                logger.warn("FCM server returned error response: {}, status: {}.", errorResponse, responseException.getStatusCode());
+                handleFcmErrorCode(fcmConverter.convertResponseToErrorCode(errorResponse), pushToken, callback);
+                return;
+            }
+            if (t instanceof final WebClientRequestException requestException) {
+                // No response received, e.g. connection or read timeout, the message may be sent again later
+                logger.warn("FCM request failed, message status set to PENDING. Error: {}", requestException.getMessage());
+                logger.debug("Exception details:", requestException);
+                callback.didFinishSendingMessage(PushSendingCallback.Result.PENDING);
+                return;
             }
 
             // Unexpected errors
@@ -212,6 +227,37 @@ public class PushSendingWorker {
         }
     }
 
+    /**
+     * Finish sending of a push message rejected by FCM.
+     *
+     * @param errorCode FCM error code.
+     * @param pushToken Push token used to deliver the message.
+     * @param callback Callback that is called after the asynchronous executions is completed.
+     */
+    private static void handleFcmErrorCode(final MessagingErrorCode errorCode, final String pushToken, final PushSendingCallback callback) {
+        callback.didReceiveRejectionReason(String.valueOf(errorCode));
+        switch (errorCode) {
+            case UNREGISTERED, INVALID_ARGUMENT -> {
+                logger.info("Push message rejected by FCM gateway, device registration for token: {} is invalid and will be removed. Error: {}", pushToken, errorCode);
+                callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED_DELETE);
+            }
+            case UNAVAILABLE, INTERNAL, QUOTA_EXCEEDED -> {
+                // TODO - implement throttling of messages, see:
+                // https://firebase.google.com/docs/cloud-messaging/admin/errors
+                logger.warn("Push message rejected by FCM gateway, message status set to PENDING. Error: {}", errorCode);
+                callback.didFinishSendingMessage(PushSendingCallback.Result.PENDING);
+            }
+            case SENDER_ID_MISMATCH, THIRD_PARTY_AUTH_ERROR -> {
+                logger.warn("Push message rejected by FCM gateway. Error: {}", errorCode);
+                callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
+            }
+            default -> {
+                logger.error("Unexpected error code received from FCM gateway. Error: {}", errorCode);
+                callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
+            }
+        }
+    }
+
     /**
      * Send message to Huawei platform.
      *
@@ -233,6 +279,7 @@ public class PushSendingWorker {
                 callback.didFinishSendingMessage(PushSendingCallback.Result.OK);
             } else {
                 logger.error("Notification sending failed, request ID: {}, code: {}, message: {}", requestId, response.code(), response.msg());
+                callback.didReceiveRejectionReason(response.code());
                 callback.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
             }
         });
@@ -254,7 +301,7 @@ public class PushSendingWorker {
      * @param pushToken Push token.
      * @return Android Message object.
      */
-    private Message buildFcmMessage(final PushMessageBody pushMessageBody, final PushMessageAttributes attributes, final Priority priority, final String pushToken) {
+    Message buildFcmMessage(final PushMessageBody pushMessageBody, final PushMessageAttributes attributes, final Priority priority, final String pushToken) {
         // convert data from Map<String, Object> to Map<String, String>
         final Map<String, Object> extras = pushMessageBody.getExtras();
         final Map<String, String> data = new LinkedHashMap<>();
@@ -319,7 +366,7 @@ public class PushSendingWorker {
      * @return HMS Message object.
      * @throws PushServerException In case any issue happens while building the push message.
      */
-    private io.getlime.push.service.hms.request.Message buildHmsMessage(final PushMessageBody pushMessageBody, final PushMessageAttributes attributes, final Priority priority, final String pushToken) throws PushServerException {
+    io.getlime.push.service.hms.request.Message buildHmsMessage(final PushMessageBody pushMessageBody, final PushMessageAttributes attributes, final Priority priority, final String pushToken) throws PushServerException {
         final var androidConfigBuilder = io.getlime.push.service.hms.request.AndroidConfig.builder()
                 .collapseKey(NumberUtils.createInteger(pushMessageBody.getCollapseKey()));
 
@@ -497,6 +544,8 @@ public class PushSendingWorker {
                         rejectionReason = rejectionReasonOptional.get();
                     }
 
+                    callback.didReceiveRejectionReason(rejectionReason != null ? rejectionReason : "UnknownReason");
+
                     if (ApnsRejectionReason.EXPIRED_PROVIDER_TOKEN.isEqualToText(rejectionReason)) {
                         logger.info("Notification rejected by the APNs gateway due to expired push token, APNs ID: {}.", response.getApnsId());
                     } else {
@@ -18,6 +18,7 @@ package io.getlime.push.service.batch;
 
 import io.getlime.push.repository.PushCampaignRepository;
 import io.getlime.push.repository.model.PushCampaignEntity;
+import io.getlime.push.service.PushSendingMetrics;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
@@ -38,6 +39,7 @@ import java.util.Date;
 public class SendCampaignJobListener implements JobExecutionListener {
 
     private final PushCampaignRepository pushCampaignRepository;
+    private final PushSendingMetrics pushSendingMetrics;
 
     @Value("#{jobParameters['campaignId']}")
     private Long campaignId;
@@ -45,14 +47,17 @@ public class SendCampaignJobListener implements JobExecutionListener {
     /**
      * Constructor with push campaign repository.
      * @param pushCampaignRepository Push campaign repository.
+     * @param pushSendingMetrics Push sending metrics.
      */
     @Autowired
-    public SendCampaignJobListener(PushCampaignRepository pushCampaignRepository) {
+    public SendCampaignJobListener(PushCampaignRepository pushCampaignRepository, PushSendingMetrics pushSendingMetrics) {
         this.pushCampaignRepository = pushCampaignRepository;
+        this.pushSendingMetrics = pushSendingMetrics;
     }
 
     @Override
     public void beforeJob(@NonNull JobExecution jobExecution) {
+        pushSendingMetrics.campaignStarted();
         PushCampaignEntity campaign = findPushCampaignById(campaignId);
         campaign.setTimestampSent(new Date());
         pushCampaignRepository.save(campaign);
@@ -60,6 +65,7 @@ public class SendCampaignJobListener implements JobExecutionListener {
 
     @Override
     public void afterJob(@NonNull JobExecution jobExecution) {
+        pushSendingMetrics.campaignFinished();
         PushCampaignEntity campaign = findPushCampaignById(campaignId);
         campaign.setTimestampCompleted(new Date());
         campaign.setSent(true);
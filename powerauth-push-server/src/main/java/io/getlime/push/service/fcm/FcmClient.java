@@ -21,22 +21,25 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.messaging.Message;
-import com.wultra.core.rest.client.base.DefaultRestClient;
-import com.wultra.core.rest.client.base.RestClient;
-import com.wultra.core.rest.client.base.RestClientException;
+import io.getlime.push.configuration.FcmConnectionConfiguration;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.FcmInitializationFailedException;
 import io.getlime.push.errorhandling.exceptions.FcmMissingTokenException;
-import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.service.fcm.model.FcmSuccessResponse;
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.ProxyProvider;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -45,7 +48,6 @@ import java.net.Authenticator;
 import java.net.InetSocketAddress;
 import java.net.PasswordAuthentication;
 import java.net.Proxy;
-import java.time.Duration;
 import java.util.Collections;
 import java.util.function.Consumer;
 
@@ -76,8 +78,11 @@ public class FcmClient {
     // FCM converter for model classes
     private final FcmModelConverter fcmConverter;
 
-    // RestClient instance
-    private RestClient restClient;
+    // Shared connection provider of the FCM clients
+    private final ConnectionProvider connectionProvider;
+
+    // WebClient instance
+    private WebClient webClient;
 
     // Proxy settings
     private String proxyHost;
@@ -91,12 +96,14 @@ public class FcmClient {
      * @param privateKey FCM Private Key.
      * @param pushServiceConfiguration Push service configuration.
      * @param fcmConverter FCM model converter helper.
+     * @param connectionProvider Connection provider shared by the FCM clients.
      */
-    public FcmClient(String projectId, byte[] privateKey, PushServiceConfiguration pushServiceConfiguration, FcmModelConverter fcmConverter) {
+    public FcmClient(String projectId, byte[] privateKey, PushServiceConfiguration pushServiceConfiguration, FcmModelConverter fcmConverter, ConnectionProvider connectionProvider) {
         this.projectId = projectId;
         this.privateKey = privateKey;
         this.pushServiceConfiguration = pushServiceConfiguration;
         this.fcmConverter = fcmConverter;
+        this.connectionProvider = connectionProvider;
     }
 
 
@@ -115,23 +122,36 @@ public class FcmClient {
     }
 
     /**
-     * Initialize RestClient instance and configure it based on client configuration.
-     * @throws PushServerException Thrown in case REST client initialization fails.
+     * Initialize WebClient instance and configure it based on client configuration.
+     * <p>
+     * HTTP/2 is negotiated with the FCM server when enabled, the connections are multiplexed and shared with the
+     * FCM clients of other applications using the shared connection provider. The protocol matches the limits of
+     * the shared connection provider, HTTP/2 is negotiated without a fallback to HTTP/1.1.
      */
-    public void initializeRestClient() throws PushServerException {
-        DefaultRestClient.Builder builder = DefaultRestClient.builder()
-                .connectionTimeout(Duration.ofMillis(pushServiceConfiguration.getFcmConnectTimeout()));
+    public void initializeWebClient() {
+        final HttpProtocol protocol = FcmConnectionConfiguration.isHttp2Used(pushServiceConfiguration)
+                ? HttpProtocol.H2
+                : HttpProtocol.HTTP11;
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .protocol(protocol)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, pushServiceConfiguration.getFcmConnectTimeout())
+                .option(ChannelOption.SO_KEEPALIVE, pushServiceConfiguration.isFcmKeepAliveEnabled())
+                .responseTimeout(pushServiceConfiguration.getFcmResponseTimeout());
         if (proxyHost != null) {
-            DefaultRestClient.ProxyBuilder proxyBuilder = builder.proxy().host(proxyHost).port(proxyPort);
-            if (proxyUsername != null) {
-                proxyBuilder.username(proxyUsername).password(proxyPassword);
-            }
-        }
-        try {
-            restClient = builder.build();
-        } catch (RestClientException ex) {
-            throw new PushServerException("REST client initialization failed", ex);
+            httpClient = httpClient.proxy(proxySpec -> {
+                final ProxyProvider.Builder proxyBuilder = proxySpec
+                        .type(ProxyProvider.Proxy.HTTP)
+                        .host(proxyHost)
+                        .port(proxyPort);
+                if (proxyUsername != null) {
+                    proxyBuilder.username(proxyUsername);
+                    proxyBuilder.password(s -> proxyPassword);
+                }
+            });
         }
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 
     /**
@@ -209,12 +229,12 @@ public class FcmClient {
      * @param message FCM message.
      * @param validationOnly Whether to perform only validation.
      * @param onSuccess Callback called when request succeeds.
-     * @param onError Callback called when request fails.
+     * @param onError Callback called when request fails, an error response of the FCM server is passed as {@link WebClientResponseException}.
      * @throws FcmMissingTokenException Thrown when FCM is not configured.
      */
     public void exchange(Message message, boolean validationOnly, Consumer<ResponseEntity<FcmSuccessResponse>> onSuccess, Consumer<Throwable> onError) throws FcmMissingTokenException {
-        if (restClient == null) {
-            logger.error("Push message delivery failed because RestClient is not initialized.");
+        if (webClient == null) {
+            logger.error("Push message delivery failed because WebClient is not initialized.");
             return;
         }
         if (projectId == null) {
@@ -232,19 +252,20 @@ public class FcmClient {
             return;
         }
 
-        AccessToken accessToken = getAccessToken();
-        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-        if (accessToken != null) {
-            headers.add("Authorization", "Bearer " + accessToken.getTokenValue());
-        }
-
-        try {
-            ParameterizedTypeReference<FcmSuccessResponse> responseType = new ParameterizedTypeReference<>(){};
-            restClient.postNonBlocking(fcmSendMessageUrl, body, null, headers, responseType, onSuccess, onError);
-        } catch (RestClientException ex) {
-            logger.debug(ex.getMessage(), ex);
-            logger.error("Push message delivery failed because of a RestClient error: " + ex.getMessage());
-        }
+        final AccessToken accessToken = getAccessToken();
+        webClient.post()
+                .uri(fcmSendMessageUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(headers -> {
+                    if (accessToken != null) {
+                        headers.setBearerAuth(accessToken.getTokenValue());
+                    }
+                })
+                .body(body, DataBuffer.class)
+                .retrieve()
+                .toEntity(FcmSuccessResponse.class)
+                .subscribe(onSuccess, onError);
     }
 
 }
@@ -20,11 +20,11 @@ import com.google.api.client.googleapis.util.Utils;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.JsonGenerator;
 import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
 import com.google.common.collect.ImmutableMap;
 import com.google.firebase.messaging.AndroidNotification;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
-import com.wultra.core.rest.client.base.RestClientException;
 import io.getlime.push.service.fcm.model.FcmErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,22 +53,26 @@ public class FcmModelConverter {
     private final JsonFactory jsonFactory = Utils.getDefaultJsonFactory();
 
     /**
-     * Convert Rest client exception to FCM error code.
+     * Convert body of an FCM error response to FCM error code.
+     * <p>
+     * The response is streamed by the shared JSON factory and only the status, message and error code of the FCM
+     * error details are extracted, the rest of the response is skipped without being mapped.
      *
-     * @param exception Rest client exception.
-     * @return FCM error code.
+     * @param error Body of the FCM error response.
+     * @return FCM error code, {@link MessagingErrorCode#INTERNAL} in case the error code cannot be resolved.
      */
-    public MessagingErrorCode convertExceptionToErrorCode(RestClientException exception) {
-        final FcmErrorResponse response = new FcmErrorResponse();
+    public MessagingErrorCode convertResponseToErrorCode(String error) {
+        if (error == null) {
+            logger.debug("FCM error response is empty");
+            return MessagingErrorCode.INTERNAL;
+        }
         MessagingErrorCode code;
-        try {
-            final String error = exception.getResponse();
-            final JsonParser parser = jsonFactory.createJsonParser(error);
-            parser.parseAndClose(response);
-            logger.debug("FCM messaging error code: {}", response.getMessagingErrorCode());
-            logger.debug("FCM status: {}", response.getStatus());
-            logger.debug("FCM error message: {}", response.getErrorMessage());
-            code = response.getMessagingErrorCode();
+        try (final JsonParser parser = jsonFactory.createJsonParser(error)) {
+            final FcmError response = parseErrorResponse(parser);
+            logger.debug("FCM messaging error code: {}", response.errorCode());
+            logger.debug("FCM status: {}", response.status());
+            logger.debug("FCM error message: {}", response.message());
+            code = FcmErrorResponse.toMessagingErrorCode(response.errorCode());
             if (code == null) {
                 code = MessagingErrorCode.INTERNAL;
             }
@@ -79,6 +83,97 @@ public class FcmModelConverter {
         return code;
     }
 
+    /**
+     * Parse the {@code error} object of an FCM error response.
+     *
+     * @param parser JSON parser positioned before the response.
+     * @return Extracted values of the error, values missing in the response are null.
+     * @throws IOException In case the response is not a valid JSON.
+     */
+    private static FcmError parseErrorResponse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new FcmError(null, null, null);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ("error".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                return parseError(parser);
+            }
+            parser.skipChildren();
+        }
+        return new FcmError(null, null, null);
+    }
+
+    private static FcmError parseError(JsonParser parser) throws IOException {
+        String status = null;
+        String message = null;
+        String errorCode = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ("status".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                status = parser.getText();
+            } else if ("message".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                message = parser.getText();
+            } else if ("details".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                final String detailErrorCode = parseErrorCode(parser);
+                if (errorCode == null) {
+                    errorCode = detailErrorCode;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new FcmError(status, message, errorCode);
+    }
+
+    /**
+     * Find the error code of the first FCM error in the error details array.
+     *
+     * @param parser JSON parser positioned at the start of the error details array, left at its end.
+     * @return Error code, or null in case the details do not contain an FCM error code.
+     * @throws IOException In case the response is not a valid JSON.
+     */
+    private static String parseErrorCode(JsonParser parser) throws IOException {
+        String errorCode = null;
+        boolean fcmErrorFound = false;
+        for (JsonToken token = parser.nextToken(); token != null && token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String type = null;
+            String code = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if ("@type".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    type = parser.getText();
+                } else if ("errorCode".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    code = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!fcmErrorFound && FcmErrorResponse.FCM_ERROR_TYPE.equals(type)) {
+                fcmErrorFound = true;
+                errorCode = code;
+            }
+        }
+        return errorCode;
+    }
+
+    /**
+     * Values extracted from the FCM error response.
+     *
+     * @param status Status of the error.
+     * @param message Error message.
+     * @param errorCode Error code from the FCM error details.
+     */
+    private record FcmError(String status, String message, String errorCode) {
+    }
+
     /**
      * Convert Android notification to String.
      *
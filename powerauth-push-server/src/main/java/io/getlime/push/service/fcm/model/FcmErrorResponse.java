@@ -16,19 +16,19 @@
 
 package io.getlime.push.service.fcm.model;
 
-import com.google.api.client.util.Key;
 import com.google.common.collect.ImmutableMap;
 import com.google.firebase.messaging.MessagingErrorCode;
 
-import java.util.List;
 import java.util.Map;
 
 /**
- * Class containing response body from FCM server in case of error.
+ * Constants of the response body from FCM server in case of error.
+ * <p>
+ * The response body itself is streamed by {@link io.getlime.push.service.fcm.FcmModelConverter}.
  *
  * @author Roman Strobl, roman.strobl@wultra.com
  */
-public class FcmErrorResponse {
+public final class FcmErrorResponse {
 
     // See class com.google.firebase.messaging.internal.MessagingServiceErrorResponse
     private static final Map<String, MessagingErrorCode> MESSAGING_ERROR_CODES =
@@ -43,56 +43,26 @@ public class FcmErrorResponse {
                     .put("UNREGISTERED", MessagingErrorCode.UNREGISTERED)
                     .build();
 
-    private static final String FCM_ERROR_TYPE =
-            "type.googleapis.com/google.firebase.fcm.v1.FcmError";
-
-    @Key("error")
-    private Map<String, Object> error;
-
     /**
-     * Get status.
-     *
-     * @return Status in case of error, or null.
+     * Type of the error details containing the FCM error code.
      */
-    public String getStatus() {
-        if (error == null) {
-            return null;
-        }
-        return (String) error.get("status");
-    }
+    public static final String FCM_ERROR_TYPE =
+            "type.googleapis.com/google.firebase.fcm.v1.FcmError";
 
     /**
-     * Get message error code from the response.
+     * Convert error code from the FCM error details to the messaging error code.
      *
-     * @return Error code.
+     * @param errorCode Error code from the FCM error details.
+     * @return Messaging error code, or null for a missing or unknown error code.
      */
-    public MessagingErrorCode getMessagingErrorCode() {
-        if (error == null) {
+    public static MessagingErrorCode toMessagingErrorCode(String errorCode) {
+        if (errorCode == null) {
             return null;
         }
-        Object details = error.get("details");
-        if (details instanceof List) {
-            for (Object detail : (List<?>) details) {
-                if (detail instanceof final Map<?, ?> detailMap) {
-                    if (FCM_ERROR_TYPE.equals(detailMap.get("@type"))) {
-                        String errorCode = (String) detailMap.get("errorCode");
-                        return MESSAGING_ERROR_CODES.get(errorCode);
-                    }
-                }
-            }
-        }
-        return null;
+        return MESSAGING_ERROR_CODES.get(errorCode);
     }
 
-    /**
-     * Get error message.
-     *
-     * @return Value of the error message, or null.
-     */
-    public String getErrorMessage() {
-        if (error != null) {
-            return (String) error.get("message");
-        }
-        return null;
+    private FcmErrorResponse() {
     }
+
 }
@@ -29,12 +29,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -113,4 +117,52 @@ class PushMessageControllerTest {
         assertNull(extras.get("_foo"), "Null value is binded correctly, should be removed before sending to APNS.");
     }
 
+    @Test
+    void sendPushMessageStream() throws Exception {
+        final List<PushMessage> pushMessages = new ArrayList<>();
+        doAnswer(invocation -> {
+            final Iterator<PushMessage> iterator = invocation.getArgument(2);
+            iterator.forEachRemaining(pushMessages::add);
+            return null;
+        }).when(pushMessageSenderService).sendPushMessage(eq("mobile-app"), eq(Mode.ASYNCHRONOUS), any(Iterator.class));
+
+        mockMvc.perform(post("/push/message/stream/send")
+                        .param("appId", "mobile-app")
+                        .param("mode", "ASYNCHRONOUS")
+                        .content("""
+                                {"userId": "123", "body": {"title": "Balance update", "body": "Your balance is now $745.00"}}
+                                {"userId": "456", "activationId": "49414e31-f3df-4cea-87e6-f214ca3b8412", "body": {"title": "Payment", "body": "Approve the payment"}}
+                                """)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("OK"));
+
+        assertEquals(2, pushMessages.size());
+        assertEquals("123", pushMessages.get(0).getUserId());
+        assertEquals("456", pushMessages.get(1).getUserId());
+        assertEquals("49414e31-f3df-4cea-87e6-f214ca3b8412", pushMessages.get(1).getActivationId());
+        assertEquals("Approve the payment", pushMessages.get(1).getBody().getBody());
+    }
+
+    @Test
+    void sendPushMessageStreamInvalidMessage() throws Exception {
+        doAnswer(invocation -> {
+            final Iterator<PushMessage> iterator = invocation.getArgument(2);
+            iterator.forEachRemaining(pushMessage -> {});
+            return null;
+        }).when(pushMessageSenderService).sendPushMessage(eq("mobile-app"), eq(Mode.SYNCHRONOUS), any(Iterator.class));
+
+        mockMvc.perform(post("/push/message/stream/send")
+                        .param("appId", "mobile-app")
+                        .content("""
+                                {"userId": "123", "body": {"title": "Balance update", "body": "Your balance is now $745.00"}}
+                                {"userId": "456", "body":
+                                """)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ERROR"));
+    }
+
 }
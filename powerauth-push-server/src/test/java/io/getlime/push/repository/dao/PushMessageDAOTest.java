@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.repository.dao;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.configuration.PushServiceConfiguration;
+import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.repository.model.PushMessageEntity;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link PushMessageDAO}.
+ */
+@SpringBootTest(properties = "powerauth.push.service.message.storage.deduplication.enabled=true")
+@ActiveProfiles("test")
+@Transactional
+class PushMessageDAOTest {
+
+    @Autowired
+    private PushMessageDAO tested;
+
+    @Autowired
+    private PushServiceConfiguration pushServiceConfiguration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @Test
+    void testStorePushMessageObject_deduplicated() throws Exception {
+        final PushMessageEntity first = tested.storePushMessageObject(createBody("Balance update"), null, "joe", "a1", 1L);
+        final PushMessageEntity second = tested.storePushMessageObject(createBody("Balance update"), null, "alice", "a2", 2L);
+
+        assertNull(first.getMessageBody());
+        assertNotNull(first.getMessageBodyHash());
+        assertEquals(first.getMessageBodyHash(), second.getMessageBodyHash());
+        final List<String> bodies = jdbcTemplate.queryForList("SELECT message_body FROM push_message_body WHERE body_hash = ?", String.class, first.getMessageBodyHash());
+        assertEquals(1, bodies.size());
+        assertTrue(bodies.get(0).contains("Balance update"));
+    }
+
+    @Test
+    void testStorePushMessageObject_inline() throws Exception {
+        pushServiceConfiguration.setMessageStorageDeduplicationEnabled(false);
+        try {
+            final PushMessageEntity entity = tested.storePushMessageObject(createBody("Welcome"), null, "joe", "a1", 1L);
+
+            assertTrue(entity.getMessageBody().contains("Welcome"));
+            assertNull(entity.getMessageBodyHash());
+            assertEquals(0, countBodies());
+        } finally {
+            pushServiceConfiguration.setMessageStorageDeduplicationEnabled(true);
+        }
+    }
+
+    @Test
+    void testStorePushMessageObject_existingBody() throws Exception {
+        final PushMessageEntity first = tested.storePushMessageObject(createBody("Balance update"), null, "joe", "a1", 1L);
+        setLastStored(first.getMessageBodyHash(), Instant.now().minus(Duration.ofDays(40)));
+
+        tested.storePushMessageObject(createBody("Balance update"), null, "alice", "a2", 2L);
+
+        final Timestamp lastStored = jdbcTemplate.queryForObject("SELECT timestamp_last_stored FROM push_message_body WHERE body_hash = ?", Timestamp.class, first.getMessageBodyHash());
+        assertTrue(lastStored.toInstant().isAfter(Instant.now().minus(Duration.ofMinutes(1))), "Timestamp the body was last stored must be refreshed");
+    }
+
+    @Test
+    void testDeleteUnreferencedBodiesStoredBefore() throws Exception {
+        final PushMessageEntity referenced = tested.storePushMessageObject(createBody("Referenced"), null, "joe", "a1", 1L);
+        setLastStored(referenced.getMessageBodyHash(), Instant.now().minus(Duration.ofDays(40)));
+        insertBody("old", Instant.now().minus(Duration.ofDays(40)));
+        insertBody("recent", Instant.now().minus(Duration.ofMinutes(30)));
+
+        assertEquals(1, tested.deleteUnreferencedBodiesStoredBefore(Date.from(Instant.now().minus(Duration.ofDays(30)))));
+        // Bodies stored within the grace period are kept
+        assertEquals(0, tested.deleteUnreferencedBodiesStoredBefore(new Date()));
+        assertEquals(2, countBodies());
+
+        // Body deleted by the purge is stored again
+        jdbcTemplate.update("DELETE FROM push_message");
+        assertEquals(1, tested.deleteUnreferencedBodiesStoredBefore(new Date()));
+        final PushMessageEntity stored = tested.storePushMessageObject(createBody("Referenced"), null, "joe", "a1", 1L);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM push_message_body WHERE body_hash = ?", Integer.class, stored.getMessageBodyHash()));
+    }
+
+    private void insertBody(final String bodyHash, final Instant lastStored) {
+        jdbcTemplate.update("INSERT INTO push_message_body (body_hash, message_body, timestamp_last_stored) VALUES (?, ?, ?)",
+                bodyHash, "{}", Timestamp.from(lastStored));
+    }
+
+    private void setLastStored(final String bodyHash, final Instant lastStored) {
+        jdbcTemplate.update("UPDATE push_message_body SET timestamp_last_stored = ? WHERE body_hash = ?", Timestamp.from(lastStored), bodyHash);
+    }
+
+    private int countBodies() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM push_message_body", Integer.class);
+    }
+
+    private static PushMessageBody createBody(final String title) {
+        final PushMessageBody body = new PushMessageBody();
+        body.setTitle(title);
+        return body;
+    }
+
+}
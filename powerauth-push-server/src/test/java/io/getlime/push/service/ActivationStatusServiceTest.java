@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import com.wultra.security.powerauth.client.model.enumeration.ActivationStatus;
+import com.wultra.security.powerauth.client.model.error.PowerAuthClientException;
+import com.wultra.security.powerauth.client.model.response.GetActivationStatusResponse;
+import io.getlime.push.service.ActivationStatusService.ActivationStatusDetail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of {@link ActivationStatusService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class ActivationStatusServiceTest {
+
+    @Mock
+    private PowerAuthClient powerAuthClient;
+
+    private ActivationStatusService tested;
+
+    @BeforeEach
+    void setUp() {
+        tested = new ActivationStatusService(powerAuthClient, Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(1)).build(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tested.shutdown();
+    }
+
+    @Test
+    void testFetchActivationStatus_cached() throws Exception {
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1", ActivationStatus.ACTIVE));
+
+        final ActivationStatusDetail first = tested.fetchActivationStatus("a1");
+        final ActivationStatusDetail second = tested.fetchActivationStatus("a1");
+
+        assertEquals(new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE), first);
+        assertEquals(first, second);
+        verify(powerAuthClient, times(1)).getActivationStatus("a1");
+    }
+
+    @Test
+    void testFetchActivationStatus_invalidated() throws Exception {
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1", ActivationStatus.ACTIVE))
+                .thenReturn(createActivationStatusResponse("a1", ActivationStatus.BLOCKED));
+
+        tested.fetchActivationStatus("a1");
+        tested.invalidate("a1");
+
+        assertEquals(ActivationStatus.BLOCKED, tested.fetchActivationStatus("a1").activationStatus());
+        verify(powerAuthClient, times(2)).getActivationStatus("a1");
+    }
+
+    @Test
+    void testFetchActivationStatuses_partialFailure() throws Exception {
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1", ActivationStatus.ACTIVE));
+        when(powerAuthClient.getActivationStatus("a2"))
+                .thenThrow(PowerAuthClientException.class);
+
+        final Map<String, ActivationStatusDetail> result = tested.fetchActivationStatuses(List.of("a1", "a2", "a1"));
+
+        assertEquals(1, result.size());
+        assertEquals("joe", result.get("a1").userId());
+        assertFalse(result.containsKey("a2"));
+    }
+
+    private static GetActivationStatusResponse createActivationStatusResponse(final String activationId, final ActivationStatus status) {
+        final GetActivationStatusResponse activationResponse = new GetActivationStatusResponse();
+        activationResponse.setActivationId(activationId);
+        activationResponse.setActivationStatus(status);
+        activationResponse.setUserId("joe");
+        return activationResponse;
+    }
+
+}
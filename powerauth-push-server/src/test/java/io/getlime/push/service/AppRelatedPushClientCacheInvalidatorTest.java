@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.getlime.push.repository.AppCredentialsRepository;
+import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.aggregate.AppCredentialsVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of {@link AppRelatedPushClientCacheInvalidator}.
+ */
+@ExtendWith(MockitoExtension.class)
+class AppRelatedPushClientCacheInvalidatorTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 12, 1, 10, 0);
+
+    @Mock
+    private AppCredentialsRepository appCredentialsRepository;
+
+    @Mock
+    private LoadingCache<String, AppRelatedPushClient> appRelatedPushClientCache;
+
+    @InjectMocks
+    private AppRelatedPushClientCacheInvalidator tested;
+
+    @Test
+    void testInvalidate_emptyCache() {
+        when(appRelatedPushClientCache.asMap()).thenReturn(new ConcurrentHashMap<>());
+
+        tested.invalidateChangedAppCredentials();
+
+        verifyNoInteractions(appCredentialsRepository);
+    }
+
+    @Test
+    void testInvalidate_changedAndRemoved() {
+        final ConcurrentMap<String, AppRelatedPushClient> cached = new ConcurrentHashMap<>();
+        cached.put("unchanged", createPushClient("unchanged", UPDATED));
+        cached.put("changed", createPushClient("changed", UPDATED));
+        cached.put("removed", createPushClient("removed", UPDATED));
+        when(appRelatedPushClientCache.asMap()).thenReturn(cached);
+        when(appRelatedPushClientCache.getIfPresent(any())).thenAnswer(invocation -> cached.get(invocation.<String>getArgument(0)));
+        when(appCredentialsRepository.findAllVersions()).thenReturn(List.of(
+                new AppCredentialsVersion("unchanged", UPDATED),
+                new AppCredentialsVersion("changed", UPDATED.plusSeconds(1)),
+                new AppCredentialsVersion("not-cached", UPDATED)));
+
+        tested.invalidateChangedAppCredentials();
+
+        verify(appRelatedPushClientCache).refresh("changed");
+        verify(appRelatedPushClientCache).invalidate("removed");
+        verify(appRelatedPushClientCache, never()).refresh("unchanged");
+        verify(appRelatedPushClientCache, never()).refresh("not-cached");
+    }
+
+    private static AppRelatedPushClient createPushClient(final String appId, final LocalDateTime timestampLastUpdated) {
+        final AppCredentialsEntity credentials = new AppCredentialsEntity();
+        credentials.setAppId(appId);
+        credentials.setTimestampLastUpdated(timestampLastUpdated);
+        final AppRelatedPushClient pushClient = new AppRelatedPushClient();
+        pushClient.setAppCredentials(credentials);
+        return pushClient;
+    }
+
+}
@@ -40,7 +40,10 @@ import org.springframework.test.context.jdbc.Sql;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -70,6 +73,12 @@ class DeviceRegistrationServiceTest {
     @Autowired
     private AppCredentialsRepository appCredentialsRepository;
 
+    @Autowired
+    private ActivationStatusService activationStatusService;
+
+    @Autowired
+    private PushDeviceService pushDeviceService;
+
     @MockBean
     private PowerAuthClient powerAuthClient;
 
@@ -85,8 +94,53 @@ class DeviceRegistrationServiceTest {
         request.setToken("t1");
         request.setPlatform(MobilePlatform.FCM);
 
-        tested.createOrUpdateDevice(request, credentials);
+        tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1"));
+
+        assertRegistrationExists("a1", "t1");
+    }
+
+    @Test
+    void testCreateOrUpdateDevice_updateToken() throws Exception {
+        final AppCredentialsEntity credentials = createAppCredentials(APP_NAME);
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1"));
+
+        final CreateDeviceRequest request = new CreateDeviceRequest();
+        request.setAppId(APP_NAME);
+        request.setActivationId("a1");
+        request.setToken("t1");
+        request.setPlatform(MobilePlatform.FCM);
+        tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1"));
+
+        request.setToken("t1_new");
+        tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1"));
+
+        assertRegistrationExists("a1", "t1_new");
+    }
 
+    @Test
+    void testCreateOrUpdateDevice_tokenOfRemovedActivation() throws Exception {
+        final AppCredentialsEntity credentials = createAppCredentials(APP_NAME);
+        final PushDeviceRegistrationEntity device = new PushDeviceRegistrationEntity();
+        device.setActivationId("a_old");
+        device.setAppCredentials(credentials);
+        device.setTimestampLastRegistered(new Date());
+        device.setPlatform(Platform.FCM);
+        device.setPushToken("t1");
+        device.setActive(true);
+        deviceRepository.save(device);
+
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1"));
+
+        final CreateDeviceRequest request = new CreateDeviceRequest();
+        request.setAppId(APP_NAME);
+        request.setActivationId("a1");
+        request.setToken("t1");
+        request.setPlatform(MobilePlatform.FCM);
+        tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1"));
+
+        assertRegistrationDoesNotExist("a_old");
         assertRegistrationExists("a1", "t1");
     }
 
@@ -108,7 +162,7 @@ class DeviceRegistrationServiceTest {
                 request.setActivationId("a1");
                 request.setToken("t1");
                 request.setPlatform(MobilePlatform.APNS);
-                tested.createOrUpdateDevice(request, credentials);
+                tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1"));
                 return null;
             });
         }
@@ -133,7 +187,7 @@ class DeviceRegistrationServiceTest {
         request.setPlatform(MobilePlatform.FCM);
 
         final PushServerException ex = assertThrows(PushServerException.class,
-                () -> tested.createOrUpdateDevice(request, credentials));
+                () -> tested.createOrUpdateDevice(request, credentials, activationStatusService.fetchActivationStatus("a1")));
         assertEquals("Multiple device registrations found for push token. Use the /push/device/create/multi endpoint for this scenario.", ex.getMessage());
     }
 
@@ -151,7 +205,7 @@ class DeviceRegistrationServiceTest {
         request.setToken("t1");
         request.setPlatform(MobilePlatform.FCM);
 
-        tested.createOrUpdateDevices(request, credentials);
+        tested.createOrUpdateDevices(request, credentials, activationStatusService.fetchActivationStatuses(request.getActivationIds()));
 
         assertRegistrationExists("a1", "t1");
         assertRegistrationExists("a2", "t1");
@@ -169,7 +223,7 @@ class DeviceRegistrationServiceTest {
         request.setToken("t1");
         request.setPlatform(MobilePlatform.FCM);
 
-        tested.createOrUpdateDevices(request, credentials);
+        tested.createOrUpdateDevices(request, credentials, activationStatusService.fetchActivationStatuses(request.getActivationIds()));
 
         assertRegistrationExists("a1", "t1");
     }
@@ -189,7 +243,7 @@ class DeviceRegistrationServiceTest {
         request.setToken("t1_new");
         request.setPlatform(MobilePlatform.FCM);
 
-        tested.createOrUpdateDevices(request, credentials);
+        tested.createOrUpdateDevices(request, credentials, activationStatusService.fetchActivationStatuses(request.getActivationIds()));
 
         assertRegistrationExists("a1", "t1_new");
         assertRegistrationExists("a2", "t1_new");
@@ -211,7 +265,7 @@ class DeviceRegistrationServiceTest {
         assertRegistrationExists("a_other", "t1");
         assertRegistrationExists("a_different", "t1");
 
-        tested.createOrUpdateDevices(request, credentials);
+        tested.createOrUpdateDevices(request, credentials, activationStatusService.fetchActivationStatuses(request.getActivationIds()));
 
         assertRegistrationDoesNotExist("a_other");
         assertRegistrationDoesNotExist("a_different");
@@ -233,7 +287,7 @@ class DeviceRegistrationServiceTest {
         request.setActivationId("a1");
         request.setActivationStatus(ActivationStatus.ACTIVE);
 
-        tested.updateStatus(request);
+        pushDeviceService.updateDeviceStatus(request);
 
         final List<PushDeviceRegistrationEntity> entities2 = deviceRepository.findByActivationId("a1");
         assertEquals(1, entities2.size());
@@ -261,7 +315,7 @@ class DeviceRegistrationServiceTest {
         final UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest();
         request.setActivationId("a1");
 
-        tested.updateStatus(request);
+        pushDeviceService.updateDeviceStatus(request);
         verify(powerAuthClient).getActivationStatus("a1");
 
         final List<PushDeviceRegistrationEntity> entities2 = deviceRepository.findByActivationId("a1");
@@ -277,6 +331,83 @@ class DeviceRegistrationServiceTest {
         assertRegistrationDoesNotExist("a2");
     }
 
+    @Test
+    void testUpsertDevices_sameTokenInBatch() throws Exception {
+        final AppCredentialsEntity credentials = createAppCredentials(APP_NAME);
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1"));
+        when(powerAuthClient.getActivationStatus("a2"))
+                .thenReturn(createActivationStatusResponse("a2"));
+
+        tested.upsertDevices(List.of(
+                tested.prepareDevice(createDeviceRequest("a1", "t1"), credentials, activationStatusService.fetchActivationStatus("a1")),
+                tested.prepareDevice(createDeviceRequest("a2", "t1"), credentials, activationStatusService.fetchActivationStatus("a2")),
+                tested.prepareDevice(createDeviceRequest("a2", "t2"), credentials, activationStatusService.fetchActivationStatus("a2"))));
+
+        assertRegistrationDoesNotExist("a1");
+        assertRegistrationExists("a2", "t2");
+    }
+
+    @Test
+    @Sql("DeviceRegistrationServiceTest.testCreateOrUpdateDevice_multipleRecords.sql")
+    void testUpsertDevices_multipleRecords() throws Exception {
+        final AppCredentialsEntity credentials = appCredentialsRepository.findById(1L).get();
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1"));
+
+        final PushDeviceRegistrationEntity device = tested.prepareDevice(createDeviceRequest("a1", "t1"), credentials, activationStatusService.fetchActivationStatus("a1"));
+        final IllegalStateException ex = assertThrows(IllegalStateException.class, () -> tested.upsertDevices(List.of(device)));
+        assertEquals("Multiple device registrations found for push token, activation ID: a1", ex.getMessage());
+        assertRegistrationDoesNotExist("a1");
+    }
+
+    @Test
+    @Sql
+    void testUpsertDevices_multipleRecordsRegistered() throws Exception {
+        final AppCredentialsEntity credentials = appCredentialsRepository.findById(1L).get();
+        when(powerAuthClient.getActivationStatus("a1"))
+                .thenReturn(createActivationStatusResponse("a1"));
+
+        final PushDeviceRegistrationEntity device = tested.prepareDevice(createDeviceRequest("a1", "t1"), credentials, activationStatusService.fetchActivationStatus("a1"));
+        tested.upsertDevices(List.of(device));
+
+        assertRegistrationExists("a1", "t1");
+        assertEquals(1L, deviceRepository.findByActivationId("a1").get(0).getAppCredentials().getId());
+        assertRegistrationDoesNotExist("a_other");
+        assertRegistrationDoesNotExist("a_different");
+    }
+
+    @Test
+    @Sql("DeviceRegistrationServiceTest.testDelete.sql")
+    void testDeleteDevices() {
+        tested.deleteDevices(List.of(1L, 1L), List.of("t1", "t_unknown"));
+        assertRegistrationDoesNotExist("a1");
+        assertRegistrationDoesNotExist("a2");
+    }
+
+    @Test
+    @Sql
+    void testUpdateStatuses() {
+        final Map<String, ActivationStatus> statuses = new LinkedHashMap<>();
+        statuses.put("a1", ActivationStatus.BLOCKED);
+        statuses.put("a2", ActivationStatus.ACTIVE);
+        statuses.put("a_unknown", ActivationStatus.ACTIVE);
+        assertEquals(Set.of("a_unknown"), tested.updateStatuses(statuses));
+
+        assertFalse(deviceRepository.findByActivationId("a1").get(0).getActive());
+        assertTrue(deviceRepository.findByActivationId("a2").get(0).getActive());
+        assertTrue(deviceRepository.findByActivationId("a3").get(0).getActive());
+    }
+
+    private static CreateDeviceRequest createDeviceRequest(final String activationId, final String token) {
+        final CreateDeviceRequest request = new CreateDeviceRequest();
+        request.setAppId(APP_NAME);
+        request.setActivationId(activationId);
+        request.setToken(token);
+        request.setPlatform(MobilePlatform.FCM);
+        return request;
+    }
+
     private GetActivationStatusResponse createActivationStatusResponse(final String activationId) {
         final GetActivationStatusResponse activationResponse = new GetActivationStatusResponse();
         activationResponse.setActivationId(activationId);
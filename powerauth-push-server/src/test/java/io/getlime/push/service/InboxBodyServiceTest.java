@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.model.enumeration.MessageType;
+import io.getlime.push.model.request.CreateInboxMessageRequest;
+import io.getlime.push.model.response.GetInboxMessageDetailResponse;
+import io.getlime.push.repository.InboxBodyRepository;
+import io.getlime.push.repository.InboxRepository;
+import io.getlime.push.repository.model.InboxMessageEntity;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link InboxBodyService}.
+ */
+@SpringBootTest(properties = "powerauth.push.service.inbox.body.deduplication.enabled=true")
+@ActiveProfiles("test")
+@Transactional
+@Sql
+class InboxBodyServiceTest {
+
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private InboxRepository inboxRepository;
+
+    @Autowired
+    private InboxBodyRepository inboxBodyRepository;
+
+    @Autowired
+    private InboxBodyService inboxBodyService;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @Test
+    void testPostMessage_deduplicatedBody() throws Exception {
+        final String body = "Deduplicated body";
+        final GetInboxMessageDetailResponse first = inboxService.postMessage(createRequest("alice", body));
+        final GetInboxMessageDetailResponse second = inboxService.postMessage(createRequest("bob", body));
+        assertEquals(body, first.getBody());
+        assertEquals(body, second.getBody());
+
+        final InboxMessageEntity firstEntity = inboxRepository.findFirstByInboxId(first.getId()).orElseThrow();
+        final InboxMessageEntity secondEntity = inboxRepository.findFirstByInboxId(second.getId()).orElseThrow();
+        assertNull(firstEntity.getBody());
+        assertEquals(InboxBodyService.hash(body), firstEntity.getBodyHash());
+        assertEquals(firstEntity.getBodyHash(), secondEntity.getBodyHash());
+        assertTrue(inboxBodyRepository.existsById(firstEntity.getBodyHash()));
+
+        assertEquals(body, inboxService.fetchMessageDetail(second.getId()).getBody());
+    }
+
+    @Test
+    void testStoreBody_existingBody() {
+        final long count = inboxBodyRepository.count();
+        final String bodyHash = inboxBodyService.storeBody("Stored body");
+        assertEquals(bodyHash, inboxBodyService.storeBody("Stored body"));
+        assertEquals(count + 1, inboxBodyRepository.count(), "Body must be inserted within the test transaction only once");
+        assertEquals("Stored body", inboxBodyRepository.findById(bodyHash).orElseThrow().getBody());
+    }
+
+    @Test
+    void testFetchMessageDetail_inlineBody() throws Exception {
+        final GetInboxMessageDetailResponse detail = inboxService.fetchMessageDetail("m1");
+        assertEquals("b1", detail.getBody());
+    }
+
+    private static CreateInboxMessageRequest createRequest(final String userId, final String body) {
+        final CreateInboxMessageRequest request = new CreateInboxMessageRequest();
+        request.setUserId(userId);
+        request.setApplications(List.of("my_app"));
+        request.setType(MessageType.TEXT);
+        request.setSubject("Subject");
+        request.setSummary("Summary");
+        request.setBody(body);
+        return request;
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.enumeration.MessageType;
+import io.getlime.push.model.request.CreateInboxBroadcastRequest;
+import io.getlime.push.model.response.GetInboxBroadcastDetailResponse;
+import io.getlime.push.model.response.GetInboxBroadcastDetailResponse.State;
+import io.getlime.push.repository.dao.InboxBroadcastDAO;
+import io.getlime.push.repository.model.InboxBroadcastEntity;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link InboxBroadcastService}.
+ */
+@SpringBootTest(properties = "powerauth.push.service.inbox.broadcast.batchSize=2")
+@ActiveProfiles("test")
+@Sql("InboxBroadcastServiceTest.sql")
+@Sql(scripts = "InboxBroadcastServiceTest.cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class InboxBroadcastServiceTest {
+
+    @Autowired
+    private InboxBroadcastService tested;
+
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private InboxBroadcastDAO inboxBroadcastDAO;
+
+    @Autowired
+    private JsonSerialization jsonSerialization;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @Test
+    void testPostBroadcast_users() throws Exception {
+        final CreateInboxBroadcastRequest request = createRequest();
+        request.setUserIds(IntStream.rangeClosed(1, 5).mapToObj(i -> "broadcast_user_" + i).toList());
+
+        final GetInboxBroadcastDetailResponse accepted = tested.postBroadcast(request);
+        assertEquals(5, accepted.getTotalCount());
+
+        final GetInboxBroadcastDetailResponse finished = awaitFinished(accepted.getId());
+        assertEquals(State.COMPLETED, finished.getState());
+        assertEquals(5, finished.getPostedCount());
+        assertEquals(1, inboxService.fetchMessageCountForUser("broadcast_user_5", "broadcast_app").getCountUnread());
+    }
+
+    @Test
+    void testPostBroadcast_campaign() throws Exception {
+        final CreateInboxBroadcastRequest request = createRequest();
+        request.setCampaignId(1001L);
+
+        final GetInboxBroadcastDetailResponse accepted = tested.postBroadcast(request);
+        assertEquals(3, accepted.getTotalCount());
+
+        final GetInboxBroadcastDetailResponse finished = awaitFinished(accepted.getId());
+        assertEquals(State.COMPLETED, finished.getState());
+        assertEquals(3, finished.getPostedCount());
+        assertEquals(1, inboxService.fetchMessageListForUserByCursor("campaign_user_3", List.of("broadcast_app"), false, null, 10).getMessages().size());
+    }
+
+    @Test
+    void testPostBroadcast_usersAndCampaign() {
+        final CreateInboxBroadcastRequest request = createRequest();
+        request.setUserIds(List.of("broadcast_user_1"));
+        request.setCampaignId(1001L);
+
+        final PushServerException exception = assertThrows(PushServerException.class, () -> tested.postBroadcast(request));
+        assertEquals("Either user IDs or campaign ID must be specified", exception.getMessage());
+    }
+
+    @Test
+    void testResumeBroadcasts_claimExpired() throws Exception {
+        final InboxBroadcastEntity broadcast = createInterruptedBroadcast(new Date(System.currentTimeMillis() - Duration.ofHours(1).toMillis()));
+
+        tested.resumeBroadcasts();
+
+        final GetInboxBroadcastDetailResponse finished = awaitFinished(broadcast.getId());
+        assertEquals(State.COMPLETED, finished.getState());
+        assertEquals(5, finished.getPostedCount());
+        // Messages posted before the interruption are not posted again
+        assertEquals(0, inboxService.fetchMessageCountForUser("broadcast_user_3", "broadcast_app").getCountUnread());
+        assertEquals(1, inboxService.fetchMessageCountForUser("broadcast_user_4", "broadcast_app").getCountUnread());
+        assertEquals(1, inboxService.fetchMessageCountForUser("broadcast_user_5", "broadcast_app").getCountUnread());
+    }
+
+    @Test
+    void testResumeBroadcasts_claimed() throws Exception {
+        final InboxBroadcastEntity broadcast = createInterruptedBroadcast(new Date());
+
+        tested.resumeBroadcasts();
+        Thread.sleep(200);
+
+        final GetInboxBroadcastDetailResponse detail = tested.fetchBroadcastDetail(broadcast.getId());
+        assertEquals(State.RUNNING, detail.getState());
+        assertEquals(3, detail.getPostedCount());
+    }
+
+    private InboxBroadcastEntity createInterruptedBroadcast(final Date timestampClaimed) throws Exception {
+        final CreateInboxBroadcastRequest request = createRequest();
+        request.setUserIds(IntStream.rangeClosed(1, 5).mapToObj(i -> "broadcast_user_" + i).toList());
+
+        final InboxBroadcastEntity broadcast = new InboxBroadcastEntity();
+        broadcast.setId("00000000-0000-0000-0000-000000001001");
+        broadcast.setRequest(jsonSerialization.serializeInboxBroadcastRequest(request));
+        broadcast.setState(InboxBroadcastEntity.State.RUNNING);
+        broadcast.setTotalCount(5);
+        broadcast.setPostedCount(3);
+        broadcast.setResumePosition(3);
+        broadcast.setTimestampCreated(new Date());
+        broadcast.setTimestampClaimed(timestampClaimed);
+        return inboxBroadcastDAO.create(broadcast);
+    }
+
+    private GetInboxBroadcastDetailResponse awaitFinished(final String id) throws Exception {
+        final Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        GetInboxBroadcastDetailResponse detail = tested.fetchBroadcastDetail(id);
+        while ((detail.getState() == State.QUEUED || detail.getState() == State.RUNNING) && Instant.now().isBefore(deadline)) {
+            Thread.sleep(50);
+            detail = tested.fetchBroadcastDetail(id);
+        }
+        return detail;
+    }
+
+    private static CreateInboxBroadcastRequest createRequest() {
+        final CreateInboxBroadcastRequest request = new CreateInboxBroadcastRequest();
+        request.setType(MessageType.TEXT);
+        request.setSubject("Planned maintenance");
+        request.setSummary("Internet banking will not be available tonight.");
+        request.setBody("Internet banking will not be available tonight from 22:00 to 23:00.");
+        request.setApplications(List.of("broadcast_app"));
+        return request;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.errorhandling.exceptions.PushServerException;
+import io.getlime.push.model.entity.InboxMessage;
+import io.getlime.push.model.entity.ListOfInboxMessages;
+import io.getlime.push.model.response.GetInboxMessageDetailResponse;
+import io.getlime.push.model.response.GetInboxMessageListResponse;
+import io.getlime.push.repository.model.AppCredentialsEntity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test of {@link InboxService}.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+@Sql
+class InboxServiceTest {
+
+    @Autowired
+    private InboxService tested;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @SpyBean
+    private InboxUnreadCountService inboxUnreadCountService;
+
+    @Test
+    void testFetchMessageListForUser() throws Exception {
+        final ListOfInboxMessages firstPage = tested.fetchMessageListForUser("joe", List.of("my_app", "my_app_2"), false, PageRequest.of(0, 3));
+        assertEquals(List.of("m5", "m4", "m3"), firstPage.stream().map(InboxMessage::getId).toList());
+
+        final ListOfInboxMessages secondPage = tested.fetchMessageListForUser("joe", List.of("my_app", "my_app_2"), false, PageRequest.of(1, 3));
+        assertEquals(List.of("m2", "m1"), secondPage.stream().map(InboxMessage::getId).toList());
+    }
+
+    @Test
+    void testFetchMessageListForUserByCursor() throws Exception {
+        final GetInboxMessageListResponse firstPage = tested.fetchMessageListForUserByCursor("joe", List.of("my_app", "my_app_2"), false, null, 2);
+        assertEquals(List.of("m5", "m4"), firstPage.getMessages().stream().map(InboxMessage::getId).toList());
+        assertNotNull(firstPage.getNextCursor());
+
+        final GetInboxMessageListResponse secondPage = tested.fetchMessageListForUserByCursor("joe", List.of("my_app", "my_app_2"), false, firstPage.getNextCursor(), 2);
+        assertEquals(List.of("m3", "m2"), secondPage.getMessages().stream().map(InboxMessage::getId).toList());
+        assertNotNull(secondPage.getNextCursor());
+
+        final GetInboxMessageListResponse lastPage = tested.fetchMessageListForUserByCursor("joe", List.of("my_app", "my_app_2"), false, secondPage.getNextCursor(), 2);
+        assertEquals(List.of("m1"), lastPage.getMessages().stream().map(InboxMessage::getId).toList());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testFetchMessageListForUserByCursor_onlyUnread() throws Exception {
+        final GetInboxMessageListResponse firstPage = tested.fetchMessageListForUserByCursor("joe", List.of("my_app"), true, null, 2);
+        assertEquals(List.of("m5", "m3"), firstPage.getMessages().stream().map(InboxMessage::getId).toList());
+
+        final GetInboxMessageListResponse lastPage = tested.fetchMessageListForUserByCursor("joe", List.of("my_app"), true, firstPage.getNextCursor(), 2);
+        assertEquals(List.of("m2"), lastPage.getMessages().stream().map(InboxMessage::getId).toList());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testFetchMessageListForUserByCursor_invalidCursor() {
+        final PushServerException exception = assertThrows(PushServerException.class,
+                () -> tested.fetchMessageListForUserByCursor("joe", List.of("my_app"), false, "invalid", 2));
+        assertEquals("Invalid cursor: invalid", exception.getMessage());
+    }
+
+    @Test
+    void testFetchMessageListForUserByCursor_queryCount() throws Exception {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final GetInboxMessageListResponse page = tested.fetchMessageListForUserByCursor("joe", List.of("my_app", "my_app_2"), false, null, 50);
+
+        assertEquals(5, page.getMessages().size());
+        // App credentials IDs, message keys and messages, regardless of the page size
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(AppCredentialsEntity.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void testFetchMessageDetail_queryCount() throws Exception {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final GetInboxMessageDetailResponse detail = tested.fetchMessageDetail("m3");
+
+        assertEquals(List.of("my_app", "my_app_2"), detail.getApplications().stream().sorted().toList());
+        // Message and app IDs
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(AppCredentialsEntity.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void testReadAllMessages_otherApplication() throws Exception {
+        assertEquals(1, tested.fetchMessageCountForUser("joe", "my_app_2").getCountUnread());
+
+        tested.readAllMessages("joe", "my_app");
+
+        // Message m3 is posted for both applications, the counter of the other application changes as well
+        verify(inboxUnreadCountService).evict("joe", Set.of("my_app", "my_app_2"));
+        assertEquals(0, tested.fetchMessageCountForUser("joe", "my_app").getCountUnread());
+    }
+
+}
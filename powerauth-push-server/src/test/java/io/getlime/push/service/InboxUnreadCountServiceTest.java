@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.getlime.push.service.InboxUnreadCountService.UnreadCountKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of {@link InboxUnreadCountService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class InboxUnreadCountServiceTest {
+
+    @Mock
+    private ObjectProvider<CacheManager> cacheManagerProvider;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    private InboxUnreadCountService tested;
+
+    @BeforeEach
+    void setUp() {
+        tested = new InboxUnreadCountService(Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(1)).build(), cacheManagerProvider, true, "");
+    }
+
+    @Test
+    void testCounter() {
+        assertNull(tested.getIfPresent("joe", "app1"));
+
+        assertEquals(2L, tested.get("joe", "app1", () -> 2));
+        tested.increment("joe", List.of("app1", "app2"));
+        assertEquals(3L, tested.getIfPresent("joe", "app1"));
+        assertNull(tested.getIfPresent("joe", "app2"), "Counter not loaded yet must not be created by increment");
+
+        tested.decrement("joe", List.of("app1"));
+        assertEquals(2L, tested.getIfPresent("joe", "app1"));
+
+        tested.evict("joe", List.of("app1"));
+        assertNull(tested.getIfPresent("joe", "app1"));
+    }
+
+    @Test
+    void testEvict() {
+        tested.get("joe", "app1", () -> 2);
+        tested.get("joe", "app2", () -> 3);
+        tested.get("alice", "app1", () -> 1);
+
+        tested.evict("joe", List.of("app1", "app2"));
+        assertNull(tested.getIfPresent("joe", "app1"));
+        assertNull(tested.getIfPresent("joe", "app2"));
+        assertEquals(1L, tested.getIfPresent("alice", "app1"));
+    }
+
+    @Test
+    void testIncrementDuringLoad() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final long count = tested.get("joe", "app1", () -> {
+                // Message posted while the counter is being loaded, not included in the loaded count
+                executor.submit(() -> tested.increment("joe", List.of("app1")));
+                return 2;
+            });
+            assertEquals(2L, count);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        // Counter is either incremented, or reloaded in case the load finished after the increment was made
+        assertEquals(3L, tested.get("joe", "app1", () -> 3), "Increment during the load must not be lost");
+    }
+
+    @Test
+    void testIncrementInTransaction() {
+        tested.get("joe", "app1", () -> 2);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tested.increment("joe", List.of("app1", "app2"));
+            // Counter loaded after the message was posted, the loaded count may include the message
+            tested.get("joe", "app2", () -> 5);
+            assertEquals(2L, tested.getIfPresent("joe", "app1"), "Counter must not be adjusted before commit");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(3L, tested.getIfPresent("joe", "app1"));
+        assertNull(tested.getIfPresent("joe", "app2"), "Counter loaded after the message was posted must not count it twice");
+    }
+
+    @Test
+    void testDecrementBelowZero() {
+        tested.get("joe", "app1", () -> 0);
+        tested.decrement("joe", List.of("app1"));
+        assertNull(tested.getIfPresent("joe", "app1"), "Counter out of sync must be reloaded");
+    }
+
+    @Test
+    void testDisabled() {
+        tested = new InboxUnreadCountService(Caffeine.newBuilder().build(), cacheManagerProvider, false, "");
+        assertEquals(2L, tested.get("joe", "app1", () -> 2));
+        assertNull(tested.getIfPresent("joe", "app1"));
+    }
+
+    @Test
+    void testSharedCache() {
+        final ConcurrentMapCache sharedCache = new ConcurrentMapCache("inbox-unread-count");
+        when(cacheManagerProvider.getIfAvailable()).thenReturn(cacheManager);
+        when(cacheManager.getCache("inbox-unread-count")).thenReturn(sharedCache);
+        sharedCache.put(new UnreadCountKey("joe", "app1"), 5L);
+
+        tested = new InboxUnreadCountService(Caffeine.newBuilder().build(), cacheManagerProvider, true, "inbox-unread-count");
+        assertEquals(5L, tested.getIfPresent("joe", "app1"));
+
+        tested.increment("joe", List.of("app1"));
+        assertEquals(6L, tested.getIfPresent("joe", "app1"));
+        assertNull(sharedCache.get(new UnreadCountKey("joe", "app1")), "Shared entry must be evicted on change");
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link InvalidTokenFilter}.
+ */
+class InvalidTokenFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testMightContain() {
+        final InvalidTokenFilter tested = new InvalidTokenFilter(meterRegistry, true, 1000, 0.001, Duration.ofHours(1));
+        tested.add("app1", "token1");
+
+        assertTrue(tested.mightContain("app1", "token1"));
+        assertFalse(tested.mightContain("app2", "token1"));
+        assertFalse(tested.mightContain("app1", "token2"));
+        assertFalse(tested.mightContain("app1", null));
+        assertEquals(1, meterRegistry.get("powerauth.push.invalidToken.filter.size").gauge().value());
+    }
+
+    @Test
+    void testDecay() {
+        final InvalidTokenFilter tested = new InvalidTokenFilter(meterRegistry, true, 1000, 0.001, Duration.ofHours(1));
+        tested.add("app1", "token1");
+
+        tested.rotate();
+        assertTrue(tested.mightContain("app1", "token1"), "Token of the previous generation is remembered");
+
+        tested.rotate();
+        assertFalse(tested.mightContain("app1", "token1"), "Token of an older generation is forgotten");
+    }
+
+    @Test
+    void testRotationWhenFull() {
+        final InvalidTokenFilter tested = new InvalidTokenFilter(meterRegistry, true, 10, 0.001, Duration.ofHours(1));
+        for (int i = 0; i < 30; i++) {
+            tested.add("app1", "token" + i);
+        }
+
+        assertTrue(tested.mightContain("app1", "token29"));
+        assertFalse(tested.mightContain("app1", "token0"), "Token of an older generation is forgotten");
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        final InvalidTokenFilter tested = new InvalidTokenFilter(meterRegistry, true, 10_000, 0.01, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            tested.add("app1", "rejected" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (tested.mightContain("app1", "valid" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testDisabled() {
+        final InvalidTokenFilter tested = new InvalidTokenFilter(meterRegistry, false, 1000, 0.001, Duration.ofHours(1));
+        tested.add("app1", "token1");
+
+        assertFalse(tested.mightContain("app1", "token1"));
+        assertNull(meterRegistry.find("powerauth.push.invalidToken.filter.size").gauge());
+    }
+
+}
@@ -16,17 +16,19 @@
 
 package io.getlime.push.service;
 
+import com.wultra.security.powerauth.client.model.enumeration.ActivationStatus;
 import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.PushServerException;
 import io.getlime.push.model.enumeration.ApnsEnvironment;
 import io.getlime.push.model.enumeration.MobilePlatform;
-import io.getlime.push.model.request.CreateDeviceForActivationsRequest;
-import io.getlime.push.model.request.CreateDeviceRequest;
-import io.getlime.push.model.request.DeleteDeviceRequest;
-import io.getlime.push.model.request.UpdateDeviceStatusRequest;
+import io.getlime.push.model.entity.DeviceBulkItemResult;
+import io.getlime.push.model.request.*;
+import io.getlime.push.model.response.DeviceBulkResponse;
 import io.getlime.push.repository.AppCredentialsRepository;
 import io.getlime.push.repository.model.AppCredentialsEntity;
+import io.getlime.push.repository.model.PushDeviceRegistrationEntity;
+import io.getlime.push.service.ActivationStatusService.ActivationStatusDetail;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -34,10 +36,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -57,6 +64,9 @@ class PushDeviceServiceTest {
     @Mock
     private PushServiceConfiguration config;
 
+    @Mock
+    private ActivationStatusService activationStatusService;
+
     @InjectMocks
     private PushDeviceService tested;
 
@@ -72,8 +82,12 @@ class PushDeviceServiceTest {
         request.setToken("t1");
         request.setPlatform(MobilePlatform.FCM);
 
+        final ActivationStatusDetail activation = new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE);
+        when(activationStatusService.fetchActivationStatus("a1"))
+                .thenReturn(activation);
+
         final Response response = tested.createDevice(request);
-        verify(deviceRegistrationService).createOrUpdateDevice(request, credentials);
+        verify(deviceRegistrationService).createOrUpdateDevice(request, credentials, activation);
         assertEquals("OK", response.getStatus());
     }
 
@@ -90,8 +104,12 @@ class PushDeviceServiceTest {
         request.setPlatform(MobilePlatform.APNS);
         request.setEnvironment(ApnsEnvironment.DEVELOPMENT);
 
+        final ActivationStatusDetail activation = new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE);
+        when(activationStatusService.fetchActivationStatus("a1"))
+                .thenReturn(activation);
+
         final Response response = tested.createDevice(request);
-        verify(deviceRegistrationService).createOrUpdateDevice(request, credentials);
+        verify(deviceRegistrationService).createOrUpdateDevice(request, credentials, activation);
         assertEquals("OK", response.getStatus());
     }
 
@@ -132,8 +150,14 @@ class PushDeviceServiceTest {
         request.setToken("t2");
         request.getActivationIds().addAll(List.of("a1", "a2"));
 
+        final Map<String, ActivationStatusDetail> activationStatuses = Map.of(
+                "a1", new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE),
+                "a2", new ActivationStatusDetail("a2", "joe", ActivationStatus.ACTIVE));
+        when(activationStatusService.fetchActivationStatuses(List.of("a1", "a2")))
+                .thenReturn(activationStatuses);
+
         final Response response = tested.createDeviceMultipleActivations(request);
-        verify(deviceRegistrationService).createOrUpdateDevices(request, credentials);
+        verify(deviceRegistrationService).createOrUpdateDevices(request, credentials, activationStatuses);
         assertEquals("OK", response.getStatus());
     }
 
@@ -177,12 +201,37 @@ class PushDeviceServiceTest {
         assertEquals("Application with given ID does not exist", exception.getMessage());
     }
 
+    @Test
+    void testCreateDevice_removedActivation() throws Exception {
+        final AppCredentialsEntity credentials = new AppCredentialsEntity();
+        when(appCredentialsRepository.findFirstByAppId("my_app"))
+                .thenReturn(Optional.of(credentials));
+        when(activationStatusService.fetchActivationStatus("a1"))
+                .thenReturn(new ActivationStatusDetail("a1", "joe", ActivationStatus.REMOVED));
+
+        final CreateDeviceRequest request = new CreateDeviceRequest();
+        request.setAppId("my_app");
+        request.setActivationId("a1");
+        request.setToken("t1");
+        request.setPlatform(MobilePlatform.FCM);
+
+        final PushServerException exception = assertThrows(PushServerException.class,
+                () -> tested.createDevice(request));
+        assertEquals("Device registration failed because associated activation is not ACTIVE", exception.getMessage());
+        verifyNoInteractions(deviceRegistrationService);
+    }
+
     @Test
     void testUpdateDeviceStatus_success() throws Exception {
+        when(activationStatusService.fetchActivationStatus("a1"))
+                .thenReturn(new ActivationStatusDetail("a1", "joe", ActivationStatus.BLOCKED));
+
         final UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest();
         request.setActivationId("a1");
 
         final Response response = tested.updateDeviceStatus(request);
+        verify(activationStatusService).invalidate("a1");
+        verify(deviceRegistrationService).updateStatus("a1", ActivationStatus.BLOCKED);
         assertEquals("OK", response.getStatus());
     }
 
@@ -195,6 +244,108 @@ class PushDeviceServiceTest {
         assertEquals("Activation ID must not be null.", exception.getMessage());
     }
 
+    @Test
+    void testCreateDevicesBulk() throws Exception {
+        final AppCredentialsEntity credentials = new AppCredentialsEntity();
+        when(appCredentialsRepository.findFirstByAppId("my_app"))
+                .thenReturn(Optional.of(credentials));
+        when(appCredentialsRepository.findFirstByAppId("non_existent"))
+                .thenReturn(Optional.empty());
+        when(config.getRegistrationBulkBatchSize())
+                .thenReturn(100);
+        when(deviceRegistrationService.isBulkUpsertEnabled())
+                .thenReturn(true);
+        final ActivationStatusDetail activation = new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE);
+        when(activationStatusService.fetchActivationStatuses(List.of("a1")))
+                .thenReturn(Map.of("a1", activation));
+
+        final CreateDeviceRequest valid = new CreateDeviceRequest("my_app", "t1", MobilePlatform.FCM, null, "a1");
+        final CreateDeviceRequest invalidApp = new CreateDeviceRequest("non_existent", "t2", MobilePlatform.FCM, null, "a2");
+        final CreateDeviceRequest invalid = new CreateDeviceRequest("my_app", null, MobilePlatform.FCM, null, "a3");
+        final PushDeviceRegistrationEntity device = new PushDeviceRegistrationEntity();
+        when(deviceRegistrationService.prepareDevice(valid, credentials, activation))
+                .thenReturn(device);
+
+        final CreateDeviceBulkRequest request = new CreateDeviceBulkRequest();
+        request.setDevices(List.of(valid, invalidApp, invalid));
+
+        final DeviceBulkResponse response = tested.createDevicesBulk(request);
+
+        verify(deviceRegistrationService).upsertDevices(List.of(device));
+        assertEquals(3, response.getResults().size());
+        assertEquals(DeviceBulkItemResult.Status.OK, response.getResults().get(0).getStatus());
+        assertEquals(DeviceBulkItemResult.Status.ERROR, response.getResults().get(1).getStatus());
+        assertEquals("Application with given ID does not exist", response.getResults().get(1).getMessage());
+        assertEquals(DeviceBulkItemResult.Status.ERROR, response.getResults().get(2).getStatus());
+    }
+
+    @Test
+    void testCreateDevicesBulk_batchFailed() throws Exception {
+        final AppCredentialsEntity credentials = new AppCredentialsEntity();
+        when(appCredentialsRepository.findFirstByAppId("my_app"))
+                .thenReturn(Optional.of(credentials));
+        when(config.getRegistrationBulkBatchSize())
+                .thenReturn(100);
+        when(deviceRegistrationService.isBulkUpsertEnabled())
+                .thenReturn(true);
+        final ActivationStatusDetail activation1 = new ActivationStatusDetail("a1", "joe", ActivationStatus.ACTIVE);
+        final ActivationStatusDetail activation2 = new ActivationStatusDetail("a2", "joe", ActivationStatus.ACTIVE);
+        when(activationStatusService.fetchActivationStatuses(List.of("a1", "a2")))
+                .thenReturn(Map.of("a1", activation1, "a2", activation2));
+
+        final CreateDeviceRequest valid = new CreateDeviceRequest("my_app", "t1", MobilePlatform.FCM, null, "a1");
+        final CreateDeviceRequest failing = new CreateDeviceRequest("my_app", "t2", MobilePlatform.FCM, null, "a2");
+        final PushDeviceRegistrationEntity validDevice = new PushDeviceRegistrationEntity();
+        validDevice.setActivationId("a1");
+        final PushDeviceRegistrationEntity failingDevice = new PushDeviceRegistrationEntity();
+        failingDevice.setActivationId("a2");
+        when(deviceRegistrationService.prepareDevice(valid, credentials, activation1))
+                .thenReturn(validDevice);
+        when(deviceRegistrationService.prepareDevice(failing, credentials, activation2))
+                .thenReturn(failingDevice);
+        doThrow(new IllegalStateException("Multiple device registrations found for push token, activation ID: a2"))
+                .when(deviceRegistrationService).upsertDevices(List.of(validDevice, failingDevice));
+        doThrow(new IllegalStateException("Multiple device registrations found for push token, activation ID: a2"))
+                .when(deviceRegistrationService).upsertDevices(List.of(failingDevice));
+
+        final CreateDeviceBulkRequest request = new CreateDeviceBulkRequest();
+        request.setDevices(List.of(valid, failing));
+
+        final DeviceBulkResponse response = tested.createDevicesBulk(request);
+
+        // The failed batch is processed one by one, only the failing item is reported as failed
+        verify(deviceRegistrationService).upsertDevices(List.of(validDevice));
+        assertEquals(DeviceBulkItemResult.Status.OK, response.getResults().get(0).getStatus());
+        assertEquals(DeviceBulkItemResult.Status.ERROR, response.getResults().get(1).getStatus());
+        assertEquals("Multiple device registrations found for push token, activation ID: a2", response.getResults().get(1).getMessage());
+    }
+
+    @Test
+    void testUpdateDeviceStatusesBulk_notFound() throws Exception {
+        when(config.getRegistrationBulkBatchSize())
+                .thenReturn(100);
+        when(activationStatusService.fetchActivationStatuses(List.of()))
+                .thenReturn(Map.of());
+        when(deviceRegistrationService.updateStatuses(anyMap()))
+                .thenReturn(Set.of("a2"));
+
+        final UpdateDeviceStatusBulkRequest request = new UpdateDeviceStatusBulkRequest();
+        request.setDevices(List.of(createStatusRequest("a1"), createStatusRequest("a2")));
+
+        final DeviceBulkResponse response = tested.updateDeviceStatusesBulk(request);
+
+        assertEquals(DeviceBulkItemResult.Status.OK, response.getResults().get(0).getStatus());
+        assertEquals(DeviceBulkItemResult.Status.ERROR, response.getResults().get(1).getStatus());
+        assertEquals("Device registration for the activation was not found", response.getResults().get(1).getMessage());
+    }
+
+    @Test
+    void testCreateDevicesBulk_empty() {
+        final PushServerException exception = assertThrows(PushServerException.class,
+                () -> tested.createDevicesBulk(new CreateDeviceBulkRequest()));
+        assertEquals("There are no devices in the request.", exception.getMessage());
+    }
+
     @Test
     void testDeleteDevice_success() throws Exception {
         final DeleteDeviceRequest request = new DeleteDeviceRequest();
@@ -215,4 +366,11 @@ class PushDeviceServiceTest {
         assertEquals("Push token must not be null or empty.", exception.getMessage());
     }
 
+    private static UpdateDeviceStatusRequest createStatusRequest(final String activationId) {
+        final UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest();
+        request.setActivationId(activationId);
+        request.setActivationStatus(ActivationStatus.ACTIVE);
+        return request;
+    }
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.repository.PushMessageRepository;
+import io.getlime.push.repository.dao.PushOutboxDAO;
+import io.getlime.push.repository.model.PushMessageEntity;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test of {@link PushMessageRetentionService}.
+ */
+@SpringBootTest(properties = {
+        "powerauth.push.service.message.retention.enabled=true",
+        "powerauth.push.service.message.retention.batchSize=2"
+})
+@ActiveProfiles("test")
+@Transactional
+@Sql
+class PushMessageRetentionServiceTest {
+
+    @Autowired
+    private PushMessageRetentionService tested;
+
+    @Autowired
+    private PushMessageRepository pushMessageRepository;
+
+    @Autowired
+    private PushOutboxDAO pushOutboxDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @Test
+    void testPurgeExpiredMessages() {
+        tested.purgeExpiredMessages();
+
+        final List<Long> remainingIds = StreamSupport.stream(pushMessageRepository.findAll().spliterator(), false)
+                .map(PushMessageEntity::getId)
+                .toList();
+        assertEquals(List.of(4L), remainingIds);
+    }
+
+    @Test
+    void testPurgeFailedOutboxMessages() {
+        pushOutboxDAO.insertAll("app1", List.of("{\"userId\":\"joe\"}", "{\"userId\":\"alice\"}", "{\"userId\":\"bob\"}"));
+        final List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM push_outbox ORDER BY id", Long.class);
+        jdbcTemplate.update("UPDATE push_outbox SET timestamp_failed = ? WHERE id = ?", Timestamp.from(Instant.now().minus(Duration.ofDays(31))), ids.get(0));
+        jdbcTemplate.update("UPDATE push_outbox SET timestamp_failed = ? WHERE id = ?", Timestamp.from(Instant.now().minus(Duration.ofDays(1))), ids.get(1));
+
+        tested.purgeExpiredMessages();
+
+        // Only the message failed before the retention period is purged, messages not failed are never purged
+        assertEquals(ids.subList(1, 3), jdbcTemplate.queryForList("SELECT id FROM push_outbox ORDER BY id", Long.class));
+    }
+
+    @Test
+    void testManagePartitions_disabled() {
+        // Partitioning is disabled by default, the messages are not touched
+        tested.managePartitions();
+
+        assertEquals(4, pushMessageRepository.count());
+    }
+
+}
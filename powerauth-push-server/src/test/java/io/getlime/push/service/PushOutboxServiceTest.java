@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import com.wultra.security.powerauth.client.PowerAuthClient;
+import io.getlime.push.errorhandling.exceptions.PushCapacityExhaustedException;
+import io.getlime.push.model.entity.PushMessage;
+import io.getlime.push.model.entity.PushMessageBody;
+import io.getlime.push.repository.dao.PushOutboxDAO;
+import io.getlime.push.repository.serialization.JsonSerialization;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test of {@link PushOutboxService}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PushOutboxServiceTest {
+
+    @Autowired
+    private PushOutboxService tested;
+
+    @Autowired
+    private PushOutboxDAO pushOutboxDAO;
+
+    @Autowired
+    private JsonSerialization jsonSerialization;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PushMessageSenderService pushMessageSenderService;
+
+    @MockBean
+    private PowerAuthClient powerAuthClient;
+
+    @BeforeEach
+    void deliverMessages() throws Exception {
+        // Providers respond to all devices of the messages immediately
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(pushMessageSenderService).sendOutboxMessage(any(), any(), any());
+    }
+
+    @Test
+    void testDispatchBatch() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(
+                jsonSerialization.serializePushMessage(createPushMessage("joe")),
+                jsonSerialization.serializePushMessage(createPushMessage("alice")),
+                jsonSerialization.serializePushMessage(createPushMessage("bob"))));
+
+        assertEquals(2, tested.dispatchBatch(2));
+        assertEquals(1, tested.dispatchBatch(2));
+        assertEquals(0, tested.dispatchBatch(2));
+
+        final ArgumentCaptor<PushMessage> captor = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushMessageSenderService, times(3)).sendOutboxMessage(eq("app1"), captor.capture(), any());
+        assertEquals(List.of("joe", "alice", "bob"), captor.getAllValues().stream().map(PushMessage::getUserId).toList());
+    }
+
+    @Test
+    void testDispatchBatch_invalidMessage() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of("{invalid"));
+
+        assertEquals(1, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10), "Invalid message must be removed from the outbox");
+        verify(pushMessageSenderService, never()).sendOutboxMessage(any(), any(), any());
+    }
+
+    @Test
+    void testDispatchBatch_collapseKey() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(
+                jsonSerialization.serializePushMessage(createPushMessage("joe", "balance", "100 EUR")),
+                jsonSerialization.serializePushMessage(createPushMessage("alice", "balance", "5 EUR")),
+                jsonSerialization.serializePushMessage(createPushMessage("joe", "balance", "90 EUR")),
+                jsonSerialization.serializePushMessage(createPushMessage("joe", null, "Welcome"))));
+
+        assertEquals(4, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10));
+
+        // Only the latest balance of joe is sent
+        final ArgumentCaptor<PushMessage> captor = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushMessageSenderService, times(3)).sendOutboxMessage(eq("app1"), captor.capture(), any());
+        assertEquals(List.of("90 EUR", "5 EUR", "Welcome"), captor.getAllValues().stream().map(message -> message.getBody().getBody()).toList());
+    }
+
+    @Test
+    void testDispatchBatch_expired() throws Exception {
+        final PushMessage expired = createPushMessage("joe", null, "Login approval");
+        expired.getBody().setValidUntil(Instant.now().minusSeconds(60));
+        final PushMessage valid = createPushMessage("alice", null, "Login approval");
+        valid.getBody().setValidUntil(Instant.now().plusSeconds(600));
+        pushOutboxDAO.insertAll("app1", List.of(
+                jsonSerialization.serializePushMessage(expired),
+                jsonSerialization.serializePushMessage(valid)));
+
+        assertEquals(2, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10), "Expired message must be removed from the outbox");
+
+        final ArgumentCaptor<PushMessage> captor = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushMessageSenderService).sendOutboxMessage(eq("app1"), captor.capture(), any());
+        assertEquals("alice", captor.getValue().getUserId());
+    }
+
+    @Test
+    void testDispatchBatch_notDelivered() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(jsonSerialization.serializePushMessage(createPushMessage("joe"))));
+        // Message handed over to the provider client, but the provider did not respond before the node failed
+        doNothing().when(pushMessageSenderService).sendOutboxMessage(any(), any(), any());
+
+        assertEquals(1, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10), "Message must not be claimed again before the claim expires");
+        expireClaims();
+        assertEquals(1, tested.dispatchBatch(10), "Message must be sent again once the claim expires");
+
+        verify(pushMessageSenderService, times(2)).sendOutboxMessage(eq("app1"), any(), any());
+        assertEquals(List.of(2), jdbcTemplate.queryForList("SELECT attempts FROM push_outbox", Integer.class));
+    }
+
+    @Test
+    void testDispatchBatch_failure() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(
+                jsonSerialization.serializePushMessage(createPushMessage("joe")),
+                jsonSerialization.serializePushMessage(createPushMessage("alice")),
+                jsonSerialization.serializePushMessage(createPushMessage("bob"))));
+        doThrow(new IllegalStateException("Provider client failure"))
+                .when(pushMessageSenderService).sendOutboxMessage(eq("app1"), argThat(message -> "alice".equals(message.getUserId())), any());
+
+        assertEquals(3, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10), "Failed message must not be claimed again before the claim expires");
+
+        final ArgumentCaptor<PushMessage> captor = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushMessageSenderService, times(3)).sendOutboxMessage(eq("app1"), captor.capture(), any());
+        assertEquals(List.of("joe", "alice", "bob"), captor.getAllValues().stream().map(PushMessage::getUserId).toList());
+
+        // Only the failed message stays in the outbox
+        assertEquals(List.of(1), jdbcTemplate.queryForList("SELECT attempts FROM push_outbox", Integer.class));
+        assertEquals(0, countFailed());
+    }
+
+    @Test
+    void testDispatchBatch_maxAttempts() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(jsonSerialization.serializePushMessage(createPushMessage("joe"))));
+        doThrow(new IllegalStateException("Provider client failure"))
+                .when(pushMessageSenderService).sendOutboxMessage(any(), any(), any());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, tested.dispatchBatch(10));
+            expireClaims();
+        }
+        assertEquals(0, tested.dispatchBatch(10), "Failed message must not be claimed anymore");
+
+        verify(pushMessageSenderService, times(5)).sendOutboxMessage(eq("app1"), any(), any());
+        assertEquals(1, countFailed());
+    }
+
+    @Test
+    void testDispatchBatch_expiredClaim() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(jsonSerialization.serializePushMessage(createPushMessage("joe"))));
+        // Message claimed in all attempts by nodes which failed before sending it
+        jdbcTemplate.update("UPDATE push_outbox SET attempts = 5");
+
+        assertEquals(1, tested.dispatchBatch(10));
+        assertEquals(0, tested.dispatchBatch(10));
+
+        verify(pushMessageSenderService, never()).sendOutboxMessage(any(), any(), any());
+        assertEquals(1, countFailed());
+    }
+
+    @Test
+    void testDispatchBatch_capacityExhausted() throws Exception {
+        pushOutboxDAO.insertAll("app1", List.of(
+                jsonSerialization.serializePushMessage(createPushMessage("joe")),
+                jsonSerialization.serializePushMessage(createPushMessage("alice")),
+                jsonSerialization.serializePushMessage(createPushMessage("bob"))));
+        doThrow(new PushCapacityExhaustedException("Capacity for sending push messages is exhausted"))
+                .when(pushMessageSenderService).sendOutboxMessage(eq("app1"), argThat(message -> "alice".equals(message.getUserId())), any());
+
+        assertEquals(3, tested.dispatchBatch(10));
+        tested.deleteDelivered();
+
+        // Remaining messages of the batch are not sent and they are claimed again without counting the attempt
+        verify(pushMessageSenderService, times(2)).sendOutboxMessage(eq("app1"), any(), any());
+        assertEquals(List.of(0, 0), jdbcTemplate.queryForList("SELECT attempts FROM push_outbox ORDER BY id", Integer.class));
+        assertEquals(0, countFailed());
+
+        reset(pushMessageSenderService);
+        assertEquals(2, tested.dispatchBatch(10));
+        final ArgumentCaptor<PushMessage> captor = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushMessageSenderService, times(2)).sendOutboxMessage(eq("app1"), captor.capture(), any());
+        assertEquals(List.of("alice", "bob"), captor.getAllValues().stream().map(PushMessage::getUserId).toList());
+    }
+
+    private void expireClaims() {
+        jdbcTemplate.update("UPDATE push_outbox SET timestamp_claimed = NULL");
+    }
+
+    private int countFailed() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM push_outbox WHERE timestamp_failed IS NOT NULL", Integer.class);
+    }
+
+    private static PushMessage createPushMessage(final String userId) {
+        final PushMessage pushMessage = new PushMessage();
+        pushMessage.setUserId(userId);
+        return pushMessage;
+    }
+
+    private static PushMessage createPushMessage(final String userId, final String collapseKey, final String text) {
+        final PushMessageBody body = new PushMessageBody();
+        body.setCollapseKey(collapseKey);
+        body.setBody(text);
+        final PushMessage pushMessage = createPushMessage(userId);
+        pushMessage.setBody(body);
+        return pushMessage;
+    }
+
+}
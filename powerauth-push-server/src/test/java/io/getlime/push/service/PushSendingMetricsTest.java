@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.repository.model.Platform;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test of {@link PushSendingMetrics}.
+ */
+class PushSendingMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PushSendingMetrics tested = new PushSendingMetrics(meterRegistry);
+
+    @Test
+    void testInstrument() {
+        final PushSendingCallback callback = mock(PushSendingCallback.class);
+        final PushSendingCallback instrumented = tested.instrument("my_app", Platform.IOS, System.nanoTime(), callback);
+        assertEquals(1, meterRegistry.get("powerauth.push.send.inFlight").tag("appId", "my_app").tag("platform", "apns").gauge().value());
+
+        instrumented.didReceiveRejectionReason("BadDeviceToken");
+        instrumented.didFinishSendingMessage(PushSendingCallback.Result.FAILED_DELETE);
+
+        verify(callback).didReceiveRejectionReason("BadDeviceToken");
+        verify(callback).didFinishSendingMessage(PushSendingCallback.Result.FAILED_DELETE);
+        assertEquals(0, meterRegistry.get("powerauth.push.send.inFlight").tag("appId", "my_app").tag("platform", "apns").gauge().value());
+        final Timer timer = meterRegistry.get("powerauth.push.send")
+                .tag("appId", "my_app")
+                .tag("platform", "apns")
+                .tag("outcome", "FAILED_DELETE")
+                .tag("reason", "BadDeviceToken")
+                .timer();
+        assertEquals(1, timer.count());
+        assertEquals(1, meterRegistry.get("powerauth.push.send.endToEnd").tag("outcome", "FAILED_DELETE").timer().count());
+    }
+
+    @Test
+    void testInstrument_withoutReason() {
+        final PushSendingCallback instrumented = tested.instrument("my_app", Platform.FCM, System.nanoTime(), result -> {});
+        instrumented.didFinishSendingMessage(PushSendingCallback.Result.OK);
+
+        assertEquals(1, meterRegistry.get("powerauth.push.send").tag("platform", "fcm").tag("outcome", "OK").tag("reason", "none").timer().count());
+    }
+
+    @Test
+    void testInstrument_dispatchFailed() {
+        final PushSendingMetrics.InstrumentedCallback instrumented = tested.instrument("my_app", Platform.HMS, System.nanoTime(), result -> {});
+        instrumented.dispatchFailed();
+        assertEquals(0, meterRegistry.get("powerauth.push.send.inFlight").tag("platform", "hms").gauge().value());
+
+        // Callback called before the provider call failed does not decrement the gauge again
+        final PushSendingMetrics.InstrumentedCallback finished = tested.instrument("my_app", Platform.HMS, System.nanoTime(), result -> {});
+        finished.didFinishSendingMessage(PushSendingCallback.Result.FAILED);
+        finished.dispatchFailed();
+        assertEquals(0, meterRegistry.get("powerauth.push.send.inFlight").tag("platform", "hms").gauge().value());
+    }
+
+    @Test
+    void testCampaignMeters() {
+        tested.campaignStarted();
+        tested.campaignMessageDispatched("my_app", Platform.HMS);
+        assertEquals(1, meterRegistry.get("powerauth.push.campaign.running").gauge().value());
+        assertEquals(1, meterRegistry.get("powerauth.push.campaign.dispatched").tag("platform", "hms").counter().count());
+
+        tested.campaignFinished();
+        assertEquals(0, meterRegistry.get("powerauth.push.campaign.running").gauge().value());
+    }
+
+    @Test
+    void testDroppedMessageMeters() {
+        tested.messageExpired("my_app", PushSendingMetrics.Stage.OUTBOX);
+        tested.messageSuperseded("my_app", Platform.APNS);
+        tested.messageInvalidToken("my_app", Platform.FCM);
+
+        assertEquals(1, meterRegistry.get("powerauth.push.send.expired").tag("appId", "my_app").tag("stage", "outbox").counter().count());
+        assertEquals(1, meterRegistry.get("powerauth.push.send.superseded").tag("platform", "apns").counter().count());
+        assertEquals(1, meterRegistry.get("powerauth.push.send.invalidToken").tag("platform", "fcm").counter().count());
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service;
+
+import io.getlime.push.errorhandling.exceptions.PushCapacityExhaustedException;
+import io.getlime.push.model.enumeration.Priority;
+import io.getlime.push.service.PushSendingScheduler.Permit;
+import io.getlime.push.service.PushSendingScheduler.TrafficClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of {@link PushSendingScheduler}.
+ */
+class PushSendingSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    private final BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<Permit> admittedPermits = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> superseded = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testWeightedFairness() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 1, Duration.ofSeconds(1), 1, 1, 1, "app1=2");
+        final Permit first = tested.acquire(TrafficClass.CAMPAIGN, Priority.HIGH, "app1", null);
+
+        for (String appId : List.of("app1", "app1", "app1", "app1", "app2", "app2")) {
+            submit(tested, TrafficClass.CAMPAIGN, Priority.HIGH, appId);
+        }
+
+        // Application with weight 2 gets two messages admitted for each message of application with weight 1
+        assertEquals(List.of("app1", "app1", "app2", "app1", "app1", "app2"), releaseAll(first, 6));
+    }
+
+    @Test
+    void testHighPriorityOvertakesNormal() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 1, Duration.ofSeconds(1), 1, 1, 1, "");
+        final Permit first = tested.acquire(TrafficClass.TRANSACTIONAL, Priority.NORMAL, "app1", null);
+
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.NORMAL, "normal1");
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.NORMAL, "normal2");
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.HIGH, "high1");
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.HIGH, "high2");
+        assertEquals(2, meterRegistry.get("powerauth.push.scheduling.waiting").tag("trafficClass", "transactional").tag("priority", "normal").gauge().value());
+
+        assertEquals(List.of("high1", "high2", "normal1", "normal2"), releaseAll(first, 4));
+        assertEquals(2, meterRegistry.get("powerauth.push.scheduling.wait").tag("trafficClass", "transactional").tag("priority", "high").timer().count());
+    }
+
+    @Test
+    void testPriorityLaneLimits() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 3, Duration.ofMillis(50), 1, 2, 1, "");
+        tested.acquire(TrafficClass.TRANSACTIONAL, Priority.NORMAL, "app1", null);
+
+        // Normal priority lane is full, high priority messages still have capacity
+        assertThrows(PushCapacityExhaustedException.class, () -> tested.acquire(TrafficClass.TRANSACTIONAL, Priority.NORMAL, "app1", null));
+        tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+        tested.acquire(TrafficClass.TRANSACTIONAL, null, "app1", null);
+        assertEquals(2, meterRegistry.get("powerauth.push.scheduling.inFlight").tag("trafficClass", "transactional").tag("priority", "high").gauge().value());
+        assertEquals(1, meterRegistry.get("powerauth.push.scheduling.inFlight").tag("trafficClass", "transactional").tag("priority", "normal").gauge().value());
+    }
+
+    @Test
+    void testCollapseKey() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 1, Duration.ofSeconds(1), 1, 1, 1, "");
+        final Permit first = tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.HIGH, "balance1", "device1-balance");
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.HIGH, "other", "device2-balance");
+        assertEquals(2, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.HIGH));
+
+        // Newer message with the same collapse key supersedes the waiting one, even from another lane
+        final int waiting = tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.NORMAL);
+        submit(tested, TrafficClass.TRANSACTIONAL, Priority.NORMAL, "balance2", "device1-balance");
+        assertEquals(waiting + 1, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.NORMAL));
+        assertEquals("balance1", superseded.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.HIGH));
+
+        assertEquals(List.of("other", "balance2"), releaseAll(first, 2));
+        assertTrue(superseded.isEmpty());
+    }
+
+    @Test
+    void testTrafficClassesIsolated() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 1, Duration.ofSeconds(1), 1, 1, 1, "");
+        tested.acquire(TrafficClass.CAMPAIGN, Priority.HIGH, "app1", null);
+
+        // Exhausted campaign capacity does not affect transactional messages
+        final Permit permit = tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app2", null);
+        assertNotNull(permit);
+        assertEquals(0, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.HIGH));
+    }
+
+    @Test
+    void testMaxWait() throws Exception {
+        final PushSendingScheduler tested = createScheduler(true, 1, Duration.ofMillis(50), 1, 1, 1, "");
+        final Permit permit = tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+
+        assertThrows(PushCapacityExhaustedException.class, () -> tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null));
+        assertEquals(0, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.HIGH));
+
+        // Callback releases the permit once
+        final PushSendingCallback callback = permit.wrap(result -> { });
+        callback.didFinishSendingMessage(PushSendingCallback.Result.OK);
+        callback.didFinishSendingMessage(PushSendingCallback.Result.OK);
+        tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+        assertThrows(PushCapacityExhaustedException.class, () -> tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null));
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        final PushSendingScheduler tested = createScheduler(false, 1, Duration.ofMillis(50), 1, 1, 1, "");
+        tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+        tested.acquire(TrafficClass.TRANSACTIONAL, Priority.HIGH, "app1", null);
+        assertEquals(0, tested.getWaitingCount(TrafficClass.TRANSACTIONAL, Priority.HIGH));
+        assertTrue(meterRegistry.find("powerauth.push.scheduling.inFlight").gauges().isEmpty());
+    }
+
+    private PushSendingScheduler createScheduler(final boolean enabled, final int transactionalMaxConcurrency, final Duration transactionalMaxWait,
+                                                 final int campaignMaxConcurrency, final int highMaxConcurrency, final int normalMaxConcurrency, final String weights) {
+        return new PushSendingScheduler(meterRegistry, enabled, transactionalMaxConcurrency, transactionalMaxWait, campaignMaxConcurrency,
+                highMaxConcurrency, normalMaxConcurrency, weights);
+    }
+
+    // Submit a message waiting for the capacity, the label is recorded once the message is admitted
+    private void submit(final PushSendingScheduler scheduler, final TrafficClass trafficClass, final Priority priority, final String label) throws InterruptedException {
+        submit(scheduler, trafficClass, priority, label, null);
+    }
+
+    // Submit a message waiting for the capacity, the label is recorded once the message is admitted or superseded
+    private void submit(final PushSendingScheduler scheduler, final TrafficClass trafficClass, final Priority priority, final String label, final String collapseKey) throws InterruptedException {
+        final int waiting = scheduler.getWaitingCount(trafficClass, priority);
+        executorService.execute(() -> {
+            try {
+                final Permit permit = scheduler.acquire(trafficClass, priority, label, collapseKey);
+                if (permit.isSuperseded()) {
+                    superseded.add(label);
+                    return;
+                }
+                admitted.add(label);
+                admittedPermits.add(permit);
+            } catch (PushCapacityExhaustedException ex) {
+                fail(ex);
+            }
+        });
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getWaitingCount(trafficClass, priority) <= waiting) {
+            assertTrue(System.nanoTime() < deadline, "Timeout while waiting for the queued message");
+            Thread.sleep(5);
+        }
+    }
+
+    // Release the first permit and then the permit of each admitted message, return the order of admission
+    private List<String> releaseAll(final Permit first, final int count) throws InterruptedException {
+        first.release();
+        final List<String> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            order.add(admitted.poll(5, TimeUnit.SECONDS));
+            admittedPermits.poll(5, TimeUnit.SECONDS).release();
+        }
+        return order;
+    }
+
+}
@@ -16,7 +16,6 @@
 package io.getlime.push.service;
 
 import com.google.firebase.messaging.MessagingErrorCode;
-import com.wultra.core.rest.client.base.RestClientException;
 import io.getlime.push.configuration.PushServiceConfiguration;
 import io.getlime.push.errorhandling.exceptions.FcmMissingTokenException;
 import io.getlime.push.model.entity.PushMessageAttributes;
@@ -28,10 +27,19 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -60,9 +68,9 @@ class PushSendingWorkerTest {
 
     @Test
     void testSendMessageToFcmError() throws FcmMissingTokenException {
-        final RestClientException simulatedException = new RestClientException("Simulated INVALID_ARGUMENT error");
+        final WebClientRequestException simulatedException = new WebClientRequestException(
+                new ConnectException("Simulated connection error"), HttpMethod.POST, URI.create("https://fcm.googleapis.com/v1/projects/p/messages:send"), HttpHeaders.EMPTY);
         when(pushServiceConfiguration.isFcmDataNotificationOnly()).thenReturn(false);
-        when(fcmModelConverter.convertExceptionToErrorCode(simulatedException)).thenReturn(MessagingErrorCode.INVALID_ARGUMENT);
         doAnswer(invocation -> {
             final Consumer<Throwable> onError = invocation.getArgument(3);
             onError.accept(simulatedException);
@@ -70,7 +78,44 @@ class PushSendingWorkerTest {
         }).when(fcmClient).exchange(any(), anyBoolean(), any(), any());
 
         tested.sendMessageToFcm(fcmClient, new PushMessageBody(), new PushMessageAttributes(), Priority.HIGH, "dummyToken", callback);
-        verify(callback).didFinishSendingMessage(PushSendingCallback.Result.FAILED_DELETE);
+        verify(callback).didFinishSendingMessage(PushSendingCallback.Result.PENDING);
+    }
+
+    @Test
+    void testSendMessageToFcmErrorResponse() throws FcmMissingTokenException {
+        final String errorResponse = "{\"error\": {\"details\": [{\"@type\": \"type.googleapis.com/google.firebase.fcm.v1.FcmError\", \"errorCode\": \"QUOTA_EXCEEDED\"}]}}";
+        final WebClientResponseException simulatedException = WebClientResponseException.create(
+                429, "Too Many Requests", HttpHeaders.EMPTY, errorResponse.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        when(pushServiceConfiguration.isFcmDataNotificationOnly()).thenReturn(false);
+        when(fcmModelConverter.convertResponseToErrorCode(errorResponse)).thenReturn(MessagingErrorCode.QUOTA_EXCEEDED);
+        doAnswer(invocation -> {
+            final Consumer<Throwable> onError = invocation.getArgument(3);
+            onError.accept(simulatedException);
+            return null;
+        }).when(fcmClient).exchange(any(), anyBoolean(), any(), any());
+
+        tested.sendMessageToFcm(fcmClient, new PushMessageBody(), new PushMessageAttributes(), Priority.HIGH, "dummyToken", callback);
+        verify(callback).didReceiveRejectionReason("QUOTA_EXCEEDED");
+        verify(callback).didFinishSendingMessage(PushSendingCallback.Result.PENDING);
+    }
+
+    @Test
+    void testFcmResponseName() {
+        final List<String> names = List.of(
+                "projects/my-project/messages/0:1500415314455276%31bd1c9631bd1c96",
+                "projects/p/messages/m",
+                "projects/p/messages/m/messages/",
+                "projects/p/messages/messages/",
+                "projects//messages/m",
+                "projects/p/messages/",
+                "projects/messages/m",
+                "projects/p/message/m",
+                "project/p/messages/m",
+                "projects/p/messages/m\n",
+                "");
+        for (String name : names) {
+            assertEquals(name.matches("projects/.+/messages/.+"), PushSendingWorker.isValidFcmResponseName(name), name);
+        }
     }
 
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.getlime.push.service.fcm;
+
+import com.google.firebase.messaging.MessagingErrorCode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link FcmModelConverter}.
+ */
+class FcmModelConverterTest {
+
+    private final FcmModelConverter tested = new FcmModelConverter();
+
+    @Test
+    void testConvertResponseToErrorCode() {
+        final String response = """
+                {
+                  "error": {
+                    "code": 404,
+                    "message": "Requested entity was not found.",
+                    "status": "NOT_FOUND",
+                    "details": [
+                      {
+                        "@type": "type.googleapis.com/google.rpc.BadRequest",
+                        "fieldViolations": [ { "field": "message.token", "description": "Invalid token" } ]
+                      },
+                      {
+                        "@type": "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                        "errorCode": "UNREGISTERED"
+                      }
+                    ]
+                  }
+                }
+                """;
+        assertEquals(MessagingErrorCode.UNREGISTERED, tested.convertResponseToErrorCode(response));
+    }
+
+    @Test
+    void testConvertResponseToErrorCode_fieldOrder() {
+        final String response = """
+                {"error": {"details": [{"errorCode": "QUOTA_EXCEEDED", "@type": "type.googleapis.com/google.firebase.fcm.v1.FcmError"}], "status": "RESOURCE_EXHAUSTED"}}
+                """;
+        assertEquals(MessagingErrorCode.QUOTA_EXCEEDED, tested.convertResponseToErrorCode(response));
+    }
+
+    @Test
+    void testConvertResponseToErrorCode_apnsAuthError() {
+        final String response = """
+                {"error": {"details": [{"@type": "type.googleapis.com/google.firebase.fcm.v1.FcmError", "errorCode": "APNS_AUTH_ERROR"}]}}
+                """;
+        assertEquals(MessagingErrorCode.THIRD_PARTY_AUTH_ERROR, tested.convertResponseToErrorCode(response));
+    }
+
+    @Test
+    void testConvertResponseToErrorCode_unresolved() {
+        assertEquals(MessagingErrorCode.INTERNAL, tested.convertResponseToErrorCode(null));
+        assertEquals(MessagingErrorCode.INTERNAL, tested.convertResponseToErrorCode("<html>Bad Gateway</html>"));
+        assertEquals(MessagingErrorCode.INTERNAL, tested.convertResponseToErrorCode("{\"error\": {\"status\": \"UNAVAILABLE\"}}"));
+        assertEquals(MessagingErrorCode.INTERNAL, tested.convertResponseToErrorCode(
+                "{\"error\": {\"details\": [\"text\", {\"@type\": \"type.googleapis.com/google.firebase.fcm.v1.FcmError\", \"errorCode\": \"UNKNOWN_CODE\"}]}}"));
+    }
+
+}
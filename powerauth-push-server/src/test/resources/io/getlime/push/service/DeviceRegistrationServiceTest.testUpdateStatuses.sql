@@ -0,0 +1,6 @@
+INSERT INTO push_app_credentials (id, app_id) VALUES (1, 'my_app');
+
+INSERT INTO push_device_registration (id, activation_id, platform, push_token, timestamp_last_registered, app_id, is_active)
+    VALUES (1, 'a1', 'ios',     't1', now(), 1, true),
+           (2, 'a2', 'android', 't2', now(), 1, false),
+           (3, 'a3', 'android', 't3', now(), 1, true);
@@ -0,0 +1,7 @@
+INSERT INTO push_app_credentials (id, app_id) VALUES (1, 'my_app');
+
+-- Message IDs are out of the range of the push_inbox_seq sequence used by the tested service
+INSERT INTO push_inbox (id, inbox_id, user_id, message_type, subject, summary, body, is_read, timestamp_created)
+    VALUES (100001, 'm1', 'joe', 'text', 's1', 's1', 'b1', false, '2024-01-01 10:00:00');
+
+INSERT INTO push_inbox_app (inbox_id, app_credentials_id) VALUES (100001, 1);
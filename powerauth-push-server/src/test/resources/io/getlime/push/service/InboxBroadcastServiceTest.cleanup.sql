@@ -0,0 +1,6 @@
+DELETE FROM push_inbox_broadcast;
+DELETE FROM push_inbox_app WHERE app_credentials_id = 1001;
+DELETE FROM push_inbox WHERE user_id LIKE 'broadcast_user_%' OR user_id LIKE 'campaign_user_%';
+DELETE FROM push_campaign_user WHERE campaign_id = 1001;
+DELETE FROM push_campaign WHERE id = 1001;
+DELETE FROM push_app_credentials WHERE id = 1001;
@@ -0,0 +1,9 @@
+INSERT INTO push_app_credentials (id, app_id) VALUES (1001, 'broadcast_app');
+
+INSERT INTO push_campaign (id, app_id, message, is_sent, timestamp_created)
+    VALUES (1001, 1001, '{}', false, now());
+
+INSERT INTO push_campaign_user (id, campaign_id, user_id, timestamp_created)
+    VALUES (1001, 1001, 'campaign_user_1', now()),
+           (1002, 1001, 'campaign_user_2', now()),
+           (1003, 1001, 'campaign_user_3', now());
@@ -0,0 +1,13 @@
+INSERT INTO push_app_credentials (id, app_id) VALUES (1, 'my_app');
+INSERT INTO push_app_credentials (id, app_id) VALUES (2, 'my_app_2');
+
+INSERT INTO push_inbox (id, inbox_id, user_id, message_type, subject, summary, body, is_read, timestamp_created)
+    VALUES (1, 'm1', 'joe', 'text', 's1', 's1', 'b1', true,  '2024-01-01 10:00:00'),
+           (2, 'm2', 'joe', 'text', 's2', 's2', 'b2', false, '2024-01-01 11:00:00'),
+           (3, 'm3', 'joe', 'text', 's3', 's3', 'b3', false, '2024-01-01 11:00:00'),
+           (4, 'm4', 'joe', 'text', 's4', 's4', 'b4', true,  '2024-01-01 12:00:00'),
+           (5, 'm5', 'joe', 'text', 's5', 's5', 'b5', false, '2024-01-01 13:00:00'),
+           (6, 'm6', 'alice', 'text', 's6', 's6', 'b6', false, '2024-01-01 14:00:00');
+
+INSERT INTO push_inbox_app (inbox_id, app_credentials_id)
+    VALUES (1, 1), (2, 1), (3, 1), (3, 2), (4, 2), (5, 1), (6, 1);
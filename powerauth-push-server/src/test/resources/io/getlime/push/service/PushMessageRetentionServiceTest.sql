@@ -0,0 +1,5 @@
+INSERT INTO push_message (id, device_registration_id, user_id, activation_id, is_silent, is_personal, message_body, timestamp_created, status)
+    VALUES (1, 1, 'joe', 'a1', false, false, '{}', '2024-01-01 10:00:00', 1),
+           (2, 1, 'joe', 'a1', false, false, '{}', '2024-01-02 10:00:00', 1),
+           (3, 1, 'joe', 'a1', false, false, '{}', '2024-01-03 10:00:00', 1),
+           (4, 1, 'joe', 'a1', false, false, '{}', CURRENT_TIMESTAMP, 0);